@@ -18,10 +18,13 @@ package reactor.core;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.fn.Consumer;
 import reactor.fn.Registration;
 import reactor.fn.Registry;
 import reactor.fn.SelectionStrategy;
 import reactor.fn.Selector;
+import reactor.fn.support.ArgumentAdapter;
+import reactor.util.Assert;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -31,6 +34,17 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * An optimized selectors registry working with a L1 Cache and ReadWrite reentrant locks
  * Events dispatching strategy can be tuned through its {@link LoadBalancingStrategy} .
+ * <p/>
+ * The cache is maintained incrementally: a new registration is only tested against the keys already cached and is
+ * appended to the ones it matches, and a removed registration is only dropped from the cached keys that hold it.
+ * <p/>
+ * The cache is bounded. Keys that select at least one registration and keys that select none are kept within separate
+ * budgets, and once a budget is exceeded entries are evicted in approximate least-recently-used order: an entry that
+ * has been selected since it was last considered gets a second chance, otherwise it is dropped.
+ * <p/>
+ * On a cache miss only the candidates found through a {@link SelectorIndex} are tested, so plain object and class
+ * selectors cost a hash lookup rather than a scan of every registration, and regex selectors are all tested in one
+ * scan of the key.
  *
  * @author Jon Brisbin
  * @author Andy Wilkinson
@@ -38,22 +52,47 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 public class CachingRegistry<T> implements Registry<T> {
 
-	private final Random                                       random            = new Random();
-	private final ReentrantReadWriteLock                       readWriteLock     = new ReentrantReadWriteLock(true);
-	private final Lock                                         readLock          = readWriteLock.readLock();
-	private final Lock                                         writeLock         = readWriteLock.writeLock();
-	private final List<Registration<? extends T>>              registrations     = new ArrayList<Registration<? extends T>>();
-	private final Map<Object, List<Registration<? extends T>>> registrationCache = new HashMap<Object, List<Registration<? extends T>>>();
-	private final Map<Object, AtomicLong>                      usageCounts       = new HashMap<Object, AtomicLong>();
+	public static final int DEFAULT_CACHE_SIZE          = Integer.parseInt(System.getProperty("reactor.registry.cache.size", "8192"));
+	public static final int DEFAULT_NEGATIVE_CACHE_SIZE = Integer.parseInt(System.getProperty("reactor.registry.cache.negative.size", "1024"));
+
+	private final Random                                 random            = new Random();
+	private final ReentrantReadWriteLock                 readWriteLock     = new ReentrantReadWriteLock(true);
+	private final Lock                                   readLock          = readWriteLock.readLock();
+	private final Lock                                   writeLock         = readWriteLock.writeLock();
+	private final List<Registration<? extends T>>        registrations     = new ArrayList<Registration<? extends T>>();
+	private final SelectorIndex<T>                       index             = new SelectorIndex<T>();
+	private final LinkedHashMap<Object, CacheEntry<T>>   registrationCache = new LinkedHashMap<Object, CacheEntry<T>>();
+	private final LinkedHashMap<Object, CacheEntry<T>>   negativeCache     = new LinkedHashMap<Object, CacheEntry<T>>();
+	private final AtomicLong                             invalidatedKeys   = new AtomicLong();
+	private final AtomicLong                             evictedKeys       = new AtomicLong();
 
 	private final LoadBalancingStrategy loadBalancingStrategy;
 	private final SelectionStrategy     selectionStrategy;
-
-	private boolean refreshRequired;
+	private final int                   maxCacheSize;
+	private final int                   maxNegativeCacheSize;
 
 	public CachingRegistry(LoadBalancingStrategy loadBalancingStrategy, SelectionStrategy selectionStrategy) {
+		this(loadBalancingStrategy, selectionStrategy, DEFAULT_CACHE_SIZE, DEFAULT_NEGATIVE_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a new {@literal CachingRegistry} with the given cache budgets.
+	 *
+	 * @param loadBalancingStrategy The {@link LoadBalancingStrategy} to use. May be {@code null} to use the default.
+	 * @param selectionStrategy     The custom {@link SelectionStrategy} to use. May be {@code null}.
+	 * @param maxCacheSize          The maximum number of cached keys that select at least one registration.
+	 * @param maxNegativeCacheSize  The maximum number of cached keys that select no registrations.
+	 */
+	public CachingRegistry(LoadBalancingStrategy loadBalancingStrategy,
+	                       SelectionStrategy selectionStrategy,
+	                       int maxCacheSize,
+	                       int maxNegativeCacheSize) {
+		Assert.isTrue(maxCacheSize > 0, "Cache size must be greater than 0.");
+		Assert.isTrue(maxNegativeCacheSize >= 0, "Negative cache size cannot be negative.");
 		this.loadBalancingStrategy = loadBalancingStrategy == null ? LoadBalancingStrategy.NONE : loadBalancingStrategy;
 		this.selectionStrategy = selectionStrategy;
+		this.maxCacheSize = maxCacheSize;
+		this.maxNegativeCacheSize = maxNegativeCacheSize;
 	}
 
 	public SelectionStrategy getSelectionStrategy() {
@@ -71,7 +110,8 @@ public class CachingRegistry<T> implements Registry<T> {
 		writeLock.lock();
 		try {
 			registrations.add(reg);
-			refreshRequired = true;
+			index.add(reg);
+			cacheAdd(reg);
 		} finally {
 			writeLock.unlock();
 		}
@@ -92,7 +132,10 @@ public class CachingRegistry<T> implements Registry<T> {
 
 			if (!regs.isEmpty()) {
 				registrations.removeAll(regs);
-				refreshRequired = true;
+				for (Registration<? extends T> reg : regs) {
+					index.remove(reg);
+				}
+				cacheRemove(regs);
 				return true;
 			} else {
 				return false;
@@ -104,34 +147,20 @@ public class CachingRegistry<T> implements Registry<T> {
 
 	@Override
 	public Iterable<Registration<? extends T>> select(Object key) {
-		List<Registration<? extends T>> matchingRegistrations;
+		CacheEntry<T> entry;
 
 		readLock.lock();
 
 		try {
-			if (refreshRequired) {
-				readLock.unlock();
-				writeLock.lock();
-				try {
-					if (refreshRequired) {
-						registrationCache.clear();
-						refreshRequired = false;
-					}
-				} finally {
-					readLock.lock();
-					writeLock.unlock();
-				}
-			}
-
-			matchingRegistrations = registrationCache.get(key);
+			entry = getCacheEntry(key);
 
-			if (null == matchingRegistrations) {
+			if (null == entry) {
 				readLock.unlock();
 				writeLock.lock();
 				try {
-					matchingRegistrations = registrationCache.get(key);
-					if (null == matchingRegistrations) {
-						matchingRegistrations = find(key);
+					entry = getCacheEntry(key);
+					if (null == entry) {
+						entry = find(key);
 					}
 				} finally {
 					readLock.lock();
@@ -142,9 +171,14 @@ public class CachingRegistry<T> implements Registry<T> {
 			readLock.unlock();
 		}
 
+		List<Registration<? extends T>> matchingRegistrations = entry.registrations;
+		if (matchingRegistrations.isEmpty()) {
+			return matchingRegistrations;
+		}
+
 		switch (loadBalancingStrategy) {
 			case ROUND_ROBIN: {
-				int i = (int) (getUsageCount(key).incrementAndGet() % matchingRegistrations.size());
+				int i = (int) (entry.usageCount.incrementAndGet() % matchingRegistrations.size());
 				return Collections.<Registration<? extends T>>singletonList(matchingRegistrations.get(i));
 			}
 			case RANDOM: {
@@ -156,29 +190,6 @@ public class CachingRegistry<T> implements Registry<T> {
 		}
 	}
 
-	private AtomicLong getUsageCount(Object key) {
-		readLock.lock();
-		try {
-			AtomicLong usageCount = this.usageCounts.get(key);
-			if (usageCount == null) {
-				readLock.unlock();
-				writeLock.lock();
-				try {
-					if (usageCount == null) {
-						usageCount = new AtomicLong();
-						this.usageCounts.put(key, usageCount);
-					}
-				} finally {
-					writeLock.unlock();
-					readLock.lock();
-				}
-			}
-			return usageCount;
-		} finally {
-			readLock.unlock();
-		}
-	}
-
 	@Override
 	public Iterator<Registration<? extends T>> iterator() {
 		try {
@@ -189,7 +200,22 @@ public class CachingRegistry<T> implements Registry<T> {
 		}
 	}
 
-	private List<Registration<? extends T>> find(Object object) {
+	/*
+	 * Lookups only read the maps, which is safe under the read lock since they are kept in insertion order. Recency is
+	 * recorded on the entry itself and acted upon when evicting.
+	 */
+	private CacheEntry<T> getCacheEntry(Object key) {
+		CacheEntry<T> entry = registrationCache.get(key);
+		if (null == entry) {
+			entry = negativeCache.get(key);
+		}
+		if (null != entry) {
+			entry.referenced = true;
+		}
+		return entry;
+	}
+
+	private CacheEntry<T> find(Object object) {
 		cacheMiss(object);
 		try {
 			writeLock.lock();
@@ -202,24 +228,27 @@ public class CachingRegistry<T> implements Registry<T> {
 				regs = findMatchingRegistrations(object);
 			}
 
-			registrationCache.put(object, regs);
+			CacheEntry<T> entry = new CacheEntry<T>(regs);
+			cache(object, entry);
 
-			return regs;
+			return entry;
 		} finally {
 			writeLock.unlock();
 		}
 	}
 
 	private List<Registration<? extends T>> findMatchingRegistrations(Object object) {
-		List<Registration<? extends T>> regs = new ArrayList<Registration<? extends T>>();
-		for (Registration<? extends T> reg : registrations) {
-			if (null != selectionStrategy
-					&& selectionStrategy.supports(object)
-					&& selectionStrategy.matches(reg.getSelector(), object)) {
-				regs.add(reg);
-			} else if (reg.getSelector().matches(object)) {
-				regs.add(reg);
+		List<Registration<? extends T>> regs;
+		if (null != selectionStrategy && selectionStrategy.supports(object)) {
+			regs = new ArrayList<Registration<? extends T>>();
+			for (Registration<? extends T> reg : registrations) {
+				if (matches(reg, object)) {
+					regs.add(reg);
+				}
 			}
+		} else {
+			// without a selection strategy a registration matches whenever its selector does
+			regs = index.select(object);
 		}
 		if (regs.isEmpty()) {
 			Logger log = LoggerFactory.getLogger(CachingRegistry.class);
@@ -230,13 +259,165 @@ public class CachingRegistry<T> implements Registry<T> {
 		return regs;
 	}
 
+	/**
+	 * Get the total number of cached keys that have been updated because a {@link Registration} was added or removed.
+	 *
+	 * @return The number of invalidated keys since this registry was created.
+	 */
+	public long getInvalidatedKeyCount() {
+		return invalidatedKeys.get();
+	}
+
+	/**
+	 * Get the total number of keys that have been evicted from the cache to keep it within its budgets.
+	 *
+	 * @return The number of evicted keys since this registry was created.
+	 */
+	public long getEvictedKeyCount() {
+		return evictedKeys.get();
+	}
+
+	/**
+	 * Get the number of keys currently cached, including those that select no registrations.
+	 *
+	 * @return The number of cached keys.
+	 */
+	public int getCacheSize() {
+		readLock.lock();
+		try {
+			return registrationCache.size() + negativeCache.size();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
 	protected void cacheMiss(Object key) {
 
 	}
 
+	/**
+	 * Called after each register, cancel, or unregister with the number of cached keys that change touched.
+	 *
+	 * @param keyCount The number of cached keys that were updated.
+	 */
+	protected void cacheInvalidated(int keyCount) {
+
+	}
+
+	/*
+	 * The lists held by cache entries are handed out to callers of select() outside of the lock, so they are replaced
+	 * rather than modified. All of the following must be called with the write lock held.
+	 */
+	private void cache(Object key, CacheEntry<T> entry) {
+		if (entry.registrations.isEmpty()) {
+			negativeCache.put(key, entry);
+			evict(negativeCache, maxNegativeCacheSize);
+		} else {
+			registrationCache.put(key, entry);
+			evict(registrationCache, maxCacheSize);
+		}
+	}
+
+	private void evict(LinkedHashMap<Object, CacheEntry<T>> cache, int maxSize) {
+		int chances = cache.size();
+		while (cache.size() > maxSize) {
+			Iterator<Map.Entry<Object, CacheEntry<T>>> iter = cache.entrySet().iterator();
+			Map.Entry<Object, CacheEntry<T>> eldest = iter.next();
+			Object key = eldest.getKey();
+			CacheEntry<T> entry = eldest.getValue();
+			iter.remove();
+
+			if (entry.referenced && chances-- > 0) {
+				entry.referenced = false;
+				cache.put(key, entry);
+			} else {
+				evictedKeys.incrementAndGet();
+			}
+		}
+	}
+
+	private void cacheAdd(Registration<? extends T> reg) {
+		int updated = 0;
+		for (Map.Entry<Object, CacheEntry<T>> entry : registrationCache.entrySet()) {
+			if (matches(reg, entry.getKey())) {
+				List<Registration<? extends T>> regs = new ArrayList<Registration<? extends T>>(entry.getValue().registrations.size() + 1);
+				regs.addAll(entry.getValue().registrations);
+				regs.add(reg);
+				entry.getValue().registrations = regs;
+				updated++;
+			}
+		}
+
+		List<Object> nowMatching = null;
+		for (Object key : negativeCache.keySet()) {
+			if (matches(reg, key)) {
+				if (null == nowMatching) {
+					nowMatching = new ArrayList<Object>();
+				}
+				nowMatching.add(key);
+			}
+		}
+		if (null != nowMatching) {
+			for (Object key : nowMatching) {
+				negativeCache.remove(key);
+				List<Registration<? extends T>> regs = new ArrayList<Registration<? extends T>>(1);
+				regs.add(reg);
+				cache(key, new CacheEntry<T>(regs));
+			}
+			updated += nowMatching.size();
+		}
+
+		invalidated(updated);
+	}
+
+	private void cacheRemove(Collection<? extends Registration<?>> removed) {
+		int updated = 0;
+		List<Object> noLongerMatching = null;
+		for (Map.Entry<Object, CacheEntry<T>> entry : registrationCache.entrySet()) {
+			List<Registration<? extends T>> regs = null;
+			for (Registration<? extends T> reg : entry.getValue().registrations) {
+				if (removed.contains(reg)) {
+					if (null == regs) {
+						regs = new ArrayList<Registration<? extends T>>(entry.getValue().registrations);
+					}
+					regs.remove(reg);
+				}
+			}
+			if (null != regs) {
+				if (regs.isEmpty()) {
+					if (null == noLongerMatching) {
+						noLongerMatching = new ArrayList<Object>();
+					}
+					noLongerMatching.add(entry.getKey());
+				}
+				entry.getValue().registrations = regs;
+				updated++;
+			}
+		}
+		if (null != noLongerMatching) {
+			for (Object key : noLongerMatching) {
+				cache(key, registrationCache.remove(key));
+			}
+		}
+		invalidated(updated);
+	}
+
+	private void invalidated(int keyCount) {
+		invalidatedKeys.addAndGet(keyCount);
+		cacheInvalidated(keyCount);
+	}
+
+	private boolean matches(Registration<? extends T> reg, Object object) {
+		return (null != selectionStrategy
+				&& selectionStrategy.supports(object)
+				&& selectionStrategy.matches(reg.getSelector(), object))
+				|| reg.getSelector().matches(object);
+	}
+
 	private class CachableRegistration<V> implements Registration<V> {
-		private final Selector selector;
-		private final V        object;
+		private final Selector        selector;
+		private final V               object;
+		private final ArgumentAdapter argumentAdapter;
 		private volatile boolean cancelAfterUse = false;
 		private volatile boolean cancelled      = false;
 		private volatile boolean paused         = false;
@@ -244,6 +425,8 @@ public class CachingRegistry<T> implements Registry<T> {
 		private CachableRegistration(Selector selector, V object) {
 			this.selector = selector;
 			this.object = object;
+			// worked out now, so that it isn't for every event the consumer is selected for
+			this.argumentAdapter = (object instanceof Consumer ? ArgumentAdapter.forConsumer((Consumer<?>) object) : null);
 		}
 
 		@Override
@@ -273,8 +456,10 @@ public class CachingRegistry<T> implements Registry<T> {
 
 			writeLock.lock();
 			try {
-				registrations.remove(CachableRegistration.this);
-				refreshRequired = true;
+				if (registrations.remove(CachableRegistration.this)) {
+					index.remove(CachableRegistration.this);
+					cacheRemove(Collections.singletonList(CachableRegistration.this));
+				}
 			} finally {
 				writeLock.unlock();
 			}
@@ -303,6 +488,21 @@ public class CachingRegistry<T> implements Registry<T> {
 			paused = false;
 			return this;
 		}
+
+		@Override
+		public ArgumentAdapter getArgumentAdapter() {
+			return argumentAdapter;
+		}
+	}
+
+	private static class CacheEntry<T> {
+		final AtomicLong usageCount = new AtomicLong();
+		volatile List<Registration<? extends T>> registrations;
+		volatile boolean                         referenced;
+
+		private CacheEntry(List<Registration<? extends T>> registrations) {
+			this.registrations = registrations;
+		}
 	}
 
 }
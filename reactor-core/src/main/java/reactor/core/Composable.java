@@ -26,6 +26,8 @@ import reactor.util.Assert;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -35,6 +37,12 @@ import static reactor.Fn.$;
 /**
  * A {@literal Composable} is a way to provide components when other threads to act on incoming data and provide new
  * data to other components that must wait on the data to become available.
+ * <p/>
+ * The stages a {@literal Composable} is given by {@link #map(Function)}, {@link #filter(Function)}, {@link #take(long)}
+ * and {@link #reduce(Function, Object)} are only dispatched where the {@literal Composable}'s {@link Observable} has a
+ * dispatcher of its own. When it dispatches synchronously, which is the case for every {@literal Composable} those
+ * methods return, the stages are fused: they are called directly by {@link #accept(Object)}, so that a chain of them
+ * runs as one consumer, with no {@link Event} created and no consumers selected for each stage in between.
  *
  * @author Jon Brisbin
  * @author Andy Wilkinson
@@ -87,7 +95,11 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	protected final AtomicLong expectedAcceptCount = new AtomicLong(-1);
 
 
+	private final List<Consumer<T>> fusedStages = new CopyOnWriteArrayList<Consumer<T>>();
+	private volatile boolean acceptConsumers;
+
 	protected final Observable observable;
+	private final boolean synchronous;
 	protected boolean hasBlockers = false;
 	protected T         value;
 	protected Throwable error;
@@ -97,10 +109,12 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	 */
 	public Composable() {
 		this.observable = createObservable((Observable) null);
+		this.synchronous = isSynchronous(observable);
 	}
 
 	public Composable(Dispatcher dispatcher) {
 		this.observable = createObservable(dispatcher);
+		this.synchronous = isSynchronous(observable);
 	}
 
 	/**
@@ -200,6 +214,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	 */
 	public Composable(Observable observable) {
 		this.observable = observable;
+		this.synchronous = isSynchronous(observable);
 	}
 
 
@@ -210,6 +225,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	 */
 	public Composable(Composable composable) {
 		this.observable = composable.observable;
+		this.synchronous = composable.synchronous;
 	}
 
 	/**
@@ -309,7 +325,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	public <V> Composable<V> map(final Function<T, V> fn) {
 		Assert.notNull(fn);
 		final Composable<V> c = createComposable(createObservable(observable));
-		when(acceptSelector, new Consumer<T>() {
+		stage(new Consumer<T>() {
 			@Override
 			public void accept(T value) {
 				try {
@@ -349,7 +365,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 			}
 		});
 
-		when(acceptSelector, new Consumer<T>() {
+		stage(new Consumer<T>() {
 			@Override
 			public void accept(T value) {
 				try {
@@ -386,7 +402,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 				c.accept(lastValue.get());
 			}
 		});
-		when(acceptSelector, new Consumer<T>() {
+		stage(new Consumer<T>() {
 			@Override
 			public void accept(T value) {
 				try {
@@ -434,13 +450,17 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 				AtomicReference<Registration<Consumer<Event<T>>>>();
 		final Composable<T> c = createComposable(createObservable(observable));
 		c.setExpectedAcceptCount(count);
-		reg.set(when(acceptSelector, new Consumer<T>() {
+		reg.set(stage(new Consumer<T>() {
 			@Override
 			public void accept(T value) {
 				try {
 					long _cursor = cursor.decrementAndGet();
 					if (_cursor == 0) {
-						reg.get().cancel();
+						if (null != reg.get()) {
+							reg.get().cancel();
+						} else {
+							fusedStages.remove(this);
+						}
 					}
 					if (_cursor >= 0) {
 						c.accept(value);
@@ -476,7 +496,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 	public Composable<T> filter(final Function<T, Boolean> fn) {
 		Assert.notNull(fn);
 		final Composable<T> c = createComposable(createObservable(observable));
-		when(acceptSelector, new Consumer<T>() {
+		stage(new Consumer<T>() {
 			@Override
 			public void accept(T value) {
 				try {
@@ -522,7 +542,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 			}
 		}
 		acceptedCount.incrementAndGet();
-		observable.notify(acceptKey, Fn.event(value));
+		notifyAccept(value, null);
 	}
 
 	@Override
@@ -607,6 +627,9 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 
 	protected Registration<Consumer<Event<T>>> when(Selector sel, final Consumer<T> consumer) {
 		if (!isComplete()) {
+			if (sel == acceptSelector) {
+				acceptConsumers = true;
+			}
 			return observable.on(sel, new Consumer<Event<T>>() {
 				@Override
 				public void accept(Event<T> ev) {
@@ -619,6 +642,39 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 		return null;
 	}
 
+	/**
+	 * Register a stage that is to be invoked whenever {@link #accept(Object)} is called. If the {@link Observable} of this
+	 * {@literal Composable} dispatches synchronously, the stage is fused with {@link #accept(Object)} and invoked
+	 * directly, in which case it must handle its own errors. Otherwise it is registered like any other consumer.
+	 *
+	 * @param stage The stage to invoke.
+	 * @return The {@link Registration} of the stage, or {@literal null} if it has been fused or this {@literal Composable}
+	 *         is already complete
+	 */
+	protected Registration<Consumer<Event<T>>> stage(Consumer<T> stage) {
+		if (synchronous && !isComplete()) {
+			fusedStages.add(stage);
+			return null;
+		}
+		return when(acceptSelector, stage);
+	}
+
+	/**
+	 * Pass an accepted value to the consumers registered for it, and then to the fused stages. No {@link Event} is
+	 * created, nor the {@link Observable} notified, if there are no consumers registered for it.
+	 *
+	 * @param value The accepted value
+	 * @param ev    The {@link Event} to notify the consumers with, or {@literal null} to wrap the value in a new one
+	 */
+	protected void notifyAccept(T value, Event<T> ev) {
+		if (acceptConsumers) {
+			observable.notify(acceptKey, null != ev ? ev : Fn.event(value));
+		}
+		for (Consumer<T> stage : fusedStages) {
+			stage.accept(value);
+		}
+	}
+
 	protected Observable createObservable(Dispatcher dispatcher) {
 		return new Reactor(dispatcher);
 	}
@@ -634,6 +690,10 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 		}
 	}
 
+	private static boolean isSynchronous(Observable observable) {
+		return observable instanceof Reactor && ((Reactor) observable).getDispatcher() instanceof SynchronousDispatcher;
+	}
+
 	protected <U> Composable<U> createComposable(Observable src) {
 		Composable<U> c = new Composable<U>(src);
 		c.expectedAcceptCount.set(expectedAcceptCount.get());
@@ -748,7 +808,7 @@ public class Composable<T> implements Consumer<T>, Supplier<T>, Deferred<T> {
 				observable.notify(firstKey, ev);
 			}
 
-			observable.notify(acceptKey, ev);
+			notifyAccept(value, ev);
 
 			if (acceptedCount.get() == expectedAcceptCount.get()) {
 				observable.notify(lastKey, ev);
@@ -1,18 +1,48 @@
 package reactor.core;
 
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
+import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.ShutdownReport;
+import reactor.fn.dispatch.Task;
+import reactor.fn.dispatch.TaskBatch;
+import reactor.fn.timer.HashedWheelTimer;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * A bounded group of event loops, each a single-threaded {@link Dispatcher}, that {@link Reactor}s created without a
+ * {@link Dispatcher} of their own are assigned to in turn. However many such reactors there are, they share no more
+ * threads than the group has loops. A loop's thread is only started when the loop is first handed out.
+ * <p/>
+ * The loops handed out by {@link #nextDispatcher()} belong to the {@literal Context}: stopping or destroying them has no
+ * effect, so that one reactor can't take down the loop it shares with others, and {@link Dispatcher#shutdown(long,
+ * TimeUnit) shutting one down} throws an {@link UnsupportedOperationException}. Use {@link #shutdown()}, or {@link
+ * #shutdown(long, TimeUnit)} to let them finish what they have been given first, to stop them.
+ * <p/>
+ * The {@link #getDefault() default} {@literal Context} has as many loops as the {@code reactor.context.eventLoops}
+ * system property says, or as many as there are processors if it isn't set.
+ * <p/>
+ * A {@literal Context} also has a single {@link HashedWheelTimer} that the {@link Reactor}s share for their scheduled
+ * notifications.
+ *
  * @author Stephane Maldini
+ * @author Jon Brisbin
  */
 public class Context {
 
+	private static final int     DEFAULT_EVENT_LOOPS = Integer.parseInt(System.getProperty("reactor.context.eventLoops", "0"));
+	private static final int     DEFAULT_BACKLOG     = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+	private static final Context DEFAULT             = new Context(DEFAULT_EVENT_LOOPS);
+
 	private final int eventsLoops;
 	private final AtomicLong                               nextDispatcherCounter = new AtomicLong(Long.MIN_VALUE);
 	private final NonBlockingHashMap<String, ReactorEntry> reactors              = new NonBlockingHashMap<String,
 			ReactorEntry>();
+	private final AtomicReferenceArray<EventLoop>          loops;
+	private volatile HashedWheelTimer                      timer;
 
 	public Context() {
 		this(Runtime.getRuntime().availableProcessors());
@@ -20,6 +50,164 @@ public class Context {
 
 	public Context(int eventsLoops) {
 		this.eventsLoops = eventsLoops > 0 ? eventsLoops : Runtime.getRuntime().availableProcessors();
+		this.loops = new AtomicReferenceArray<EventLoop>(this.eventsLoops);
+	}
+
+	/**
+	 * Get the {@literal Context} whose event loops are used by {@link Reactor}s that aren't given a {@link Dispatcher}.
+	 *
+	 * @return The default {@literal Context}
+	 */
+	public static Context getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Get the number of event loops in this {@literal Context}.
+	 *
+	 * @return The number of event loops
+	 */
+	public int getEventLoops() {
+		return eventsLoops;
+	}
+
+	/**
+	 * Get the next event loop, going round-robin over the loops of this {@literal Context} and starting the loop if this
+	 * is the first time it's been handed out.
+	 *
+	 * @return A shared {@link Dispatcher}
+	 */
+	public Dispatcher nextDispatcher() {
+		int i = (int) ((nextDispatcherCounter.getAndIncrement() & Long.MAX_VALUE) % eventsLoops);
+		EventLoop loop = loops.get(i);
+		if (null == loop) {
+			EventLoop created = new EventLoop(new BlockingQueueDispatcher("event-loop", DEFAULT_BACKLOG));
+			if (loops.compareAndSet(i, null, created)) {
+				created.delegate.start();
+				loop = created;
+			} else {
+				loop = loops.get(i);
+			}
+		}
+		return loop;
+	}
+
+	/**
+	 * Get the timer of this {@literal Context}, creating it if this is the first time it's been asked for. Its thread is
+	 * only started when the first timeout is scheduled.
+	 *
+	 * @return The shared {@link HashedWheelTimer}
+	 */
+	public HashedWheelTimer getTimer() {
+		HashedWheelTimer t = timer;
+		if (null == t) {
+			synchronized (this) {
+				t = timer;
+				if (null == t) {
+					timer = t = new HashedWheelTimer();
+				}
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Stop every event loop that has been started, and the timer. {@link Reactor}s still using them will no longer have
+	 * their events dispatched, nor their scheduled notifications made.
+	 */
+	public void shutdown() {
+		for (int i = 0; i < eventsLoops; i++) {
+			EventLoop loop = loops.get(i);
+			if (null != loop) {
+				loop.delegate.stop();
+			}
+		}
+		HashedWheelTimer t = timer;
+		if (null != t) {
+			t.stop();
+		}
+	}
+
+	/**
+	 * Stop every event loop that has been started, letting each finish the tasks it has already been given within what
+	 * is left of the {@literal timeout}, and then the timer.
+	 *
+	 * @param timeout How long to wait, in all, for the loops to finish
+	 * @param unit    The unit of the {@literal timeout}
+	 * @return The report of the tasks that all the loops completed and abandoned
+	 */
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long completed = 0;
+		long abandoned = 0;
+		boolean terminated = true;
+		for (int i = 0; i < eventsLoops; i++) {
+			EventLoop loop = loops.get(i);
+			if (null != loop) {
+				ShutdownReport report = loop.delegate.shutdown(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				completed += report.getCompleted();
+				abandoned += report.getAbandoned();
+				terminated &= report.isTerminated();
+			}
+		}
+		HashedWheelTimer t = timer;
+		if (null != t) {
+			t.stop();
+		}
+		return new ShutdownReport(completed, abandoned, terminated);
+	}
+
+	private static class EventLoop implements Dispatcher {
+		final Dispatcher delegate;
+
+		private EventLoop(Dispatcher delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public <T> Task<T> nextTask() {
+			return delegate.nextTask();
+		}
+
+		@Override
+		public <T> TaskBatch<T> nextTasks(int size) {
+			return delegate.nextTasks(size);
+		}
+
+		@Override
+		public long remainingCapacity() {
+			return delegate.remainingCapacity();
+		}
+
+		@Override
+		public Dispatcher destroy() {
+			return this;
+		}
+
+		@Override
+		public Dispatcher stop() {
+			return this;
+		}
+
+		@Override
+		public Dispatcher start() {
+			return this;
+		}
+
+		/**
+		 * A loop is shared by other {@link Reactor}s, so it can't be shut down on its own.
+		 *
+		 * @throws UnsupportedOperationException always; use {@link Context#shutdown(long, TimeUnit)} instead
+		 */
+		@Override
+		public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+			throw new UnsupportedOperationException("This event loop is shared by other reactors. Use Context.shutdown(timeout, unit) to shut down all the loops of its Context.");
+		}
+
+		@Override
+		public boolean isAlive() {
+			return delegate.isAlive();
+		}
 	}
 
 	private static class ReactorEntry {
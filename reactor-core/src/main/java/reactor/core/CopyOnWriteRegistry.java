@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Consumer;
+import reactor.fn.Registration;
+import reactor.fn.Registry;
+import reactor.fn.SelectionStrategy;
+import reactor.fn.Selector;
+import reactor.fn.support.ArgumentAdapter;
+import reactor.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Registry} whose {@link #select(Object)} path takes no locks. Registrations are kept in an immutable array
+ * that is replaced on every change, and selections are cached per key in a {@link NonBlockingHashMap}. When something
+ * is registered or cancelled only the cached keys affected by that change are invalidated.
+ * <p/>
+ * The cache is bounded. Keys that select at least one registration and keys that select none are kept within the same
+ * separate budgets as in a {@link CachingRegistry}. As the cache keeps no order, a new key that doesn't fit takes the
+ * place of an arbitrary one. The usage counts of round-robin load balancing are bounded like the non-empty keys.
+ * <p/>
+ * Writers are serialized with each other, so this implementation is best suited to applications that notify far more
+ * often than they register or cancel consumers.
+ *
+ * @author Jon Brisbin
+ * @author Stephane Maldini
+ */
+public class CopyOnWriteRegistry<T> implements Registry<T> {
+
+	@SuppressWarnings("rawtypes")
+	private static final Registration[] EMPTY = new Registration[0];
+
+	private final Random                                                     random            = new Random();
+	private final Object                                                     monitor           = new Object();
+	private final AtomicLong                                                 generation        = new AtomicLong();
+	private final NonBlockingHashMap<Object, List<Registration<? extends T>>> registrationCache = new NonBlockingHashMap<Object, List<Registration<? extends T>>>();
+	private final NonBlockingHashMap<Object, List<Registration<? extends T>>> negativeCache     = new NonBlockingHashMap<Object, List<Registration<? extends T>>>();
+	private final NonBlockingHashMap<Object, AtomicLong>                      usageCounts       = new NonBlockingHashMap<Object, AtomicLong>();
+
+	private final LoadBalancingStrategy loadBalancingStrategy;
+	private final SelectionStrategy     selectionStrategy;
+	private final int                   maxCacheSize;
+	private final int                   maxNegativeCacheSize;
+
+	@SuppressWarnings("unchecked")
+	private volatile Registration<? extends T>[] registrations = EMPTY;
+
+	public CopyOnWriteRegistry(LoadBalancingStrategy loadBalancingStrategy, SelectionStrategy selectionStrategy) {
+		this(loadBalancingStrategy, selectionStrategy, CachingRegistry.DEFAULT_CACHE_SIZE, CachingRegistry.DEFAULT_NEGATIVE_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a new {@literal CopyOnWriteRegistry} with the given cache budgets.
+	 *
+	 * @param loadBalancingStrategy The {@link LoadBalancingStrategy} to use. May be {@code null} to use the default.
+	 * @param selectionStrategy     The custom {@link SelectionStrategy} to use. May be {@code null}.
+	 * @param maxCacheSize          The maximum number of cached keys that select at least one registration.
+	 * @param maxNegativeCacheSize  The maximum number of cached keys that select no registrations.
+	 */
+	public CopyOnWriteRegistry(LoadBalancingStrategy loadBalancingStrategy,
+	                           SelectionStrategy selectionStrategy,
+	                           int maxCacheSize,
+	                           int maxNegativeCacheSize) {
+		Assert.isTrue(maxCacheSize > 0, "Cache size must be greater than 0.");
+		Assert.isTrue(maxNegativeCacheSize >= 0, "Negative cache size cannot be negative.");
+		this.loadBalancingStrategy = loadBalancingStrategy == null ? LoadBalancingStrategy.NONE : loadBalancingStrategy;
+		this.selectionStrategy = selectionStrategy;
+		this.maxCacheSize = maxCacheSize;
+		this.maxNegativeCacheSize = maxNegativeCacheSize;
+	}
+
+	@Override
+	public SelectionStrategy getSelectionStrategy() {
+		return selectionStrategy;
+	}
+
+	@Override
+	public LoadBalancingStrategy getLoadBalancingStrategy() {
+		return loadBalancingStrategy;
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public <V extends T> Registration<V> register(Selector sel, V obj) {
+		SnapshotRegistration<V> reg = new SnapshotRegistration<V>(sel, obj);
+
+		synchronized (monitor) {
+			Registration<? extends T>[] current = registrations;
+			Registration<? extends T>[] next = new Registration[current.length + 1];
+			System.arraycopy(current, 0, next, 0, current.length);
+			next[current.length] = reg;
+			registrations = next;
+			generation.incrementAndGet();
+
+			for (Object key : registrationCache.keySet()) {
+				if (matches(reg, key)) {
+					registrationCache.remove(key);
+				}
+			}
+			for (Object key : negativeCache.keySet()) {
+				if (matches(reg, key)) {
+					negativeCache.remove(key);
+				}
+			}
+		}
+
+		return reg;
+	}
+
+	@Override
+	public boolean unregister(Object key) {
+		synchronized (monitor) {
+			List<Registration<? extends T>> regs = findMatchingRegistrations(registrations, key);
+			if (regs.isEmpty()) {
+				return false;
+			}
+			remove(regs);
+			return true;
+		}
+	}
+
+	@Override
+	public Iterable<Registration<? extends T>> select(Object key) {
+		List<Registration<? extends T>> matchingRegistrations = registrationCache.get(key);
+		if (null == matchingRegistrations && null == (matchingRegistrations = negativeCache.get(key))) {
+			matchingRegistrations = find(key);
+		}
+
+		if (matchingRegistrations.isEmpty()) {
+			return matchingRegistrations;
+		}
+
+		switch (loadBalancingStrategy) {
+			case ROUND_ROBIN: {
+				int i = (int) (getUsageCount(key).incrementAndGet() % matchingRegistrations.size());
+				return Collections.<Registration<? extends T>>singletonList(matchingRegistrations.get(i));
+			}
+			case RANDOM: {
+				int i = random.nextInt(matchingRegistrations.size());
+				return Collections.<Registration<? extends T>>singletonList(matchingRegistrations.get(i));
+			}
+			default:
+				return matchingRegistrations;
+		}
+	}
+
+	/**
+	 * Get the number of keys currently cached, including those that select no registrations.
+	 *
+	 * @return The number of cached keys.
+	 */
+	public int getCacheSize() {
+		return registrationCache.size() + negativeCache.size();
+	}
+
+	@Override
+	public Iterator<Registration<? extends T>> iterator() {
+		return Collections.unmodifiableList(Arrays.asList(registrations)).iterator();
+	}
+
+	/**
+	 * Called when a key is not found in the selection cache and the registrations have to be scanned.
+	 *
+	 * @param key The key that missed the cache.
+	 */
+	protected void cacheMiss(Object key) {
+
+	}
+
+	private List<Registration<? extends T>> find(Object key) {
+		cacheMiss(key);
+
+		long gen = generation.get();
+		List<Registration<? extends T>> regs = findMatchingRegistrations(registrations, key);
+
+		NonBlockingHashMap<Object, List<Registration<? extends T>>> cache = (regs.isEmpty() ? negativeCache : registrationCache);
+		List<Registration<? extends T>> existing = putIfAbsent(cache, key, regs, regs.isEmpty() ? maxNegativeCacheSize : maxCacheSize);
+		if (null != existing) {
+			return existing;
+		}
+		if (gen != generation.get()) {
+			// a writer changed the registrations while we were scanning, so don't keep a possibly stale result around
+			cache.remove(key, regs);
+		}
+		return regs;
+	}
+
+	private AtomicLong getUsageCount(Object key) {
+		AtomicLong usageCount = usageCounts.get(key);
+		if (null == usageCount) {
+			usageCount = new AtomicLong();
+			AtomicLong existing = putIfAbsent(usageCounts, key, usageCount, maxCacheSize);
+			if (null != existing) {
+				usageCount = existing;
+			}
+		}
+		return usageCount;
+	}
+
+	/**
+	 * Put the value in the map if the key isn't there yet, first making room for it by dropping an arbitrary key if the
+	 * map is full. Nothing is put in a map that may hold no keys.
+	 */
+	private static <V> V putIfAbsent(NonBlockingHashMap<Object, V> map, Object key, V value, int max) {
+		if (max <= 0) {
+			return null;
+		}
+		if (map.size() >= max) {
+			Iterator<Object> keys = map.keySet().iterator();
+			if (keys.hasNext()) {
+				map.remove(keys.next());
+			}
+		}
+		return map.putIfAbsent(key, value);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void remove(Collection<? extends Registration<?>> regs) {
+		Registration<? extends T>[] current = registrations;
+		List<Registration<? extends T>> remaining = new ArrayList<Registration<? extends T>>(current.length);
+		for (Registration<? extends T> reg : current) {
+			if (!regs.contains(reg)) {
+				remaining.add(reg);
+			}
+		}
+		if (remaining.size() == current.length) {
+			return;
+		}
+		registrations = remaining.toArray(new Registration[remaining.size()]);
+		generation.incrementAndGet();
+
+		for (Map.Entry<Object, List<Registration<? extends T>>> entry : registrationCache.entrySet()) {
+			for (Registration<?> reg : regs) {
+				if (entry.getValue().contains(reg)) {
+					registrationCache.remove(entry.getKey());
+					break;
+				}
+			}
+		}
+	}
+
+	private boolean matches(Registration<? extends T> reg, Object key) {
+		return (null != selectionStrategy
+				&& selectionStrategy.supports(key)
+				&& selectionStrategy.matches(reg.getSelector(), key))
+				|| reg.getSelector().matches(key);
+	}
+
+	private List<Registration<? extends T>> findMatchingRegistrations(Registration<? extends T>[] snapshot, Object key) {
+		if (snapshot.length == 0) {
+			return Collections.emptyList();
+		}
+		List<Registration<? extends T>> regs = new ArrayList<Registration<? extends T>>();
+		for (Registration<? extends T> reg : snapshot) {
+			if (matches(reg, key)) {
+				regs.add(reg);
+			}
+		}
+		if (regs.isEmpty()) {
+			Logger log = LoggerFactory.getLogger(CopyOnWriteRegistry.class);
+			if (log.isTraceEnabled()) {
+				log.trace("No objects registered for key {}", key);
+			}
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(regs);
+	}
+
+	private class SnapshotRegistration<V> implements Registration<V> {
+		private final Selector        selector;
+		private final V               object;
+		private final ArgumentAdapter argumentAdapter;
+		private volatile boolean cancelAfterUse = false;
+		private volatile boolean cancelled      = false;
+		private volatile boolean paused         = false;
+
+		private SnapshotRegistration(Selector selector, V object) {
+			this.selector = selector;
+			this.object = object;
+			// worked out now, so that it isn't for every event the consumer is selected for
+			this.argumentAdapter = (object instanceof Consumer ? ArgumentAdapter.forConsumer((Consumer<?>) object) : null);
+		}
+
+		@Override
+		public Selector getSelector() {
+			return selector;
+		}
+
+		@Override
+		public V getObject() {
+			return object;
+		}
+
+		@Override
+		public Registration<V> cancelAfterUse() {
+			cancelAfterUse = !cancelAfterUse;
+			return this;
+		}
+
+		@Override
+		public boolean isCancelAfterUse() {
+			return cancelAfterUse;
+		}
+
+		@Override
+		public Registration<V> cancel() {
+			this.cancelled = true;
+
+			synchronized (monitor) {
+				remove(Collections.singletonList(SnapshotRegistration.this));
+			}
+
+			return this;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public Registration<V> pause() {
+			paused = true;
+			return this;
+		}
+
+		@Override
+		public boolean isPaused() {
+			return paused;
+		}
+
+		@Override
+		public Registration<V> resume() {
+			paused = false;
+			return this;
+		}
+
+		@Override
+		public ArgumentAdapter getArgumentAdapter() {
+			return argumentAdapter;
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import reactor.fn.support.UriTemplate;
+
+import java.util.*;
+
+/**
+ * A trie of {@link UriTemplate} segments that finds every template matching a path in a single walk over the path's
+ * segments. Plain segments are looked up by hash, while all <code>{name}</code> segments at the same position share one
+ * child, as do all <code>**</code> splats. The variables themselves are left to {@link UriTemplate#match(String)}.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @author Jon Brisbin
+ */
+class PathTrie<V> {
+
+	private final Node<V> root = new Node<V>();
+
+	private int size;
+
+	/**
+	 * Add a value for the given template segments.
+	 *
+	 * @param segments The template segments, as returned by {@link UriTemplate#getSegments()}
+	 * @param value    The value to return for paths matching the template
+	 */
+	void add(String[] segments, V value) {
+		Node<V> node = root;
+		for (String segment : segments) {
+			node = node.child(segment, true);
+		}
+		if (null == node.values) {
+			node.values = new ArrayList<V>(1);
+		}
+		node.values.add(value);
+		size++;
+	}
+
+	/**
+	 * Remove a value previously added for the given template segments.
+	 *
+	 * @param segments The template segments
+	 * @param value    The value to remove
+	 * @return {@literal true} if the value was found and removed
+	 */
+	boolean remove(String[] segments, V value) {
+		if (remove(root, segments, 0, value)) {
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Collect the values of every template that matches the given path. A value may be collected more than once if its
+	 * template has several splats that can match the path in different ways.
+	 *
+	 * @param path The path to match
+	 * @param out  Where to collect the values
+	 */
+	void match(String path, Collection<V> out) {
+		match(root, UriTemplate.splitSegments(path), 0, out);
+	}
+
+	private static <V> void match(Node<V> node, String[] path, int i, Collection<V> out) {
+		if (i == path.length) {
+			if (null != node.values) {
+				out.addAll(node.values);
+			}
+			return;
+		}
+
+		String segment = path[i];
+		Node<V> next;
+		if (null != node.literals && null != (next = node.literals.get(segment))) {
+			match(next, path, i + 1, out);
+		}
+		if (null != node.variable && UriTemplate.isVariableValue(segment)) {
+			match(node.variable, path, i + 1, out);
+		}
+		if (null != node.splat) {
+			// a splat consumes at least one segment and possibly the rest of the path
+			for (int end = i + 1; end <= path.length; end++) {
+				match(node.splat, path, end, out);
+			}
+		}
+	}
+
+	private static <V> boolean remove(Node<V> node, String[] segments, int i, V value) {
+		if (i == segments.length) {
+			return null != node.values && node.values.remove(value);
+		}
+		Node<V> child = node.child(segments[i], false);
+		if (null == child || !remove(child, segments, i + 1, value)) {
+			return false;
+		}
+		if (child.isEmpty()) {
+			node.prune(segments[i]);
+		}
+		return true;
+	}
+
+	private static class Node<V> {
+		Map<String, Node<V>> literals;
+		Node<V>              variable;
+		Node<V>              splat;
+		List<V>              values;
+
+		Node<V> child(String segment, boolean create) {
+			if (UriTemplate.isSplat(segment)) {
+				if (null == splat && create) {
+					splat = new Node<V>();
+				}
+				return splat;
+			} else if (UriTemplate.isVariable(segment)) {
+				if (null == variable && create) {
+					variable = new Node<V>();
+				}
+				return variable;
+			}
+
+			Node<V> child = (null != literals ? literals.get(segment) : null);
+			if (null == child && create) {
+				if (null == literals) {
+					literals = new HashMap<String, Node<V>>();
+				}
+				child = new Node<V>();
+				literals.put(segment, child);
+			}
+			return child;
+		}
+
+		void prune(String segment) {
+			if (UriTemplate.isSplat(segment)) {
+				splat = null;
+			} else if (UriTemplate.isVariable(segment)) {
+				variable = null;
+			} else if (null != literals) {
+				literals.remove(segment);
+			}
+		}
+
+		boolean isEmpty() {
+			return (null == values || values.isEmpty())
+					&& (null == literals || literals.isEmpty())
+					&& null == variable
+					&& null == splat;
+		}
+	}
+
+}
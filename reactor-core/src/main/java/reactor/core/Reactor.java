@@ -25,15 +25,18 @@ import reactor.fn.Registry.LoadBalancingStrategy;
 import reactor.fn.SelectionStrategy;
 import reactor.fn.Selector;
 import reactor.fn.Supplier;
-import reactor.fn.dispatch.BlockingQueueDispatcher;
 import reactor.fn.dispatch.Dispatcher;
 import reactor.fn.dispatch.Task;
+import reactor.fn.dispatch.TaskBatch;
+import reactor.fn.timer.Timeout;
 import reactor.util.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static reactor.Fn.$;
-import static reactor.Fn.T;
 
 /**
  * A reactor is an event gateway that allows other components to register {@link Event} (@link Consumer}s with its
@@ -58,7 +61,7 @@ public class Reactor implements Observable, Linkable<Observable> {
 	private final Consumer<Throwable> errorHandler    = new Consumer<Throwable>() {
 		@Override
 		public void accept(Throwable t) {
-			Reactor.this.notify(T(t.getClass()), Fn.event(t));
+			Reactor.this.notify(t.getClass(), Fn.event(t));
 		}
 	};
 	private final Set<Observable>     linkedReactors  = new NonBlockingHashSet<Observable>();
@@ -81,8 +84,8 @@ public class Reactor implements Observable, Linkable<Observable> {
 	 * registered on the given {@literal Reactor} when being triggered on the new {@literal Reactor}.
 	 *
 	 * @param src        The {@literal Reactor} when which to get the {@link SelectionStrategy}, {@link Converter}.
-	 * @param dispatcher The {@link Dispatcher} to use. May be {@code null} in which case a new worker dispatcher is used
-	 *                   dispatcher is used
+	 * @param dispatcher The {@link Dispatcher} to use. May be {@code null} in which case one of the event loops of the
+	 *                   {@link Context#getDefault() default Context} is used
 	 */
 	public Reactor(Reactor src, Dispatcher dispatcher) {
 		this(dispatcher, src.consumerRegistry.getLoadBalancingStrategy(), src.consumerRegistry.getSelectionStrategy(), src.getConverter());
@@ -92,8 +95,8 @@ public class Reactor implements Observable, Linkable<Observable> {
 	 * Create a new {@literal Reactor} that uses the given {@link Dispatcher}. The default {@link LoadBalancingStrategy},
 	 * {@link SelectionStrategy}, and {@link Converter} will be used.
 	 *
-	 * @param dispatcher The {@link Dispatcher} to use. May be {@code null} in which case a new worker dispatcher is used
-	 *                   dispatcher is used
+	 * @param dispatcher The {@link Dispatcher} to use. May be {@code null} in which case one of the event loops of the
+	 *                   {@link Context#getDefault() default Context} is used
 	 */
 	public Reactor(Dispatcher dispatcher) {
 		this(dispatcher, null, null, null);
@@ -103,16 +106,31 @@ public class Reactor implements Observable, Linkable<Observable> {
 	 * Create a new {@literal Reactor} that uses the given {@link Dispatcher}, {@link SelectionStrategy}, {@link
 	 * LoadBalancingStrategy}, and {@link Converter}.
 	 *
-	 * @param dispatcher            The {@link Dispatcher} to use. May be {@code null} in which case a new worker
-	 *                              dispatcher is used.
+	 * @param dispatcher            The {@link Dispatcher} to use. May be {@code null} in which case one of the
+	 *                              event loops of the {@link Context#getDefault() default Context} is used.
 	 * @param loadBalancingStrategy The {@link LoadBalancingStrategy} to use when dispatching events to consumers. May be
 	 *                              {@code null} to use the default.
 	 * @param selectionStrategy     The custom {@link SelectionStrategy} to use. May be {@code null}.
 	 */
 	public Reactor(Dispatcher dispatcher, LoadBalancingStrategy loadBalancingStrategy, SelectionStrategy selectionStrategy, Converter converter) {
+		this(dispatcher, new CachingRegistry<Consumer<? extends Event<?>>>(loadBalancingStrategy, selectionStrategy), converter);
+	}
+
+	/**
+	 * Create a new {@literal Reactor} that uses the given {@link Dispatcher}, consumer {@link Registry}, and {@link
+	 * Converter}. The {@link LoadBalancingStrategy} and {@link SelectionStrategy} are those of the given {@link Registry}.
+	 *
+	 * @param dispatcher       The {@link Dispatcher} to use. May be {@code null} in which case one of the event loops of
+	 *                         the {@link Context#getDefault() default Context} is used.
+	 * @param consumerRegistry The {@link Registry} to maintain the {@link Consumer}s in, for example a {@link
+	 *                         CopyOnWriteRegistry}.
+	 * @param converter        The {@link Converter} to use. May be {@code null}.
+	 */
+	public Reactor(Dispatcher dispatcher, Registry<Consumer<? extends Event<?>>> consumerRegistry, Converter converter) {
+		Assert.notNull(consumerRegistry, "Consumer Registry cannot be null.");
 		this.dispatcher = dispatcher == null ? createDispatcher() : dispatcher;
 		this.converter = converter;
-		this.consumerRegistry = new CachingRegistry<Consumer<? extends Event<?>>>(loadBalancingStrategy, selectionStrategy);
+		this.consumerRegistry = consumerRegistry;
 
 		this.on(new Consumer<Event>() {
 			@Override
@@ -129,16 +147,15 @@ public class Reactor implements Observable, Linkable<Observable> {
 	}
 
 	/**
-	 * Create a new {@literal Reactor} with default configuration.
+	 * Create a new {@literal Reactor} with default configuration, dispatching on one of the event loops of the {@link
+	 * Context#getDefault() default Context}.
 	 */
 	public Reactor() {
 		this(null, null, null, null);
 	}
 
 	private static Dispatcher createDispatcher() {
-		Dispatcher dispatcher = new BlockingQueueDispatcher();
-		dispatcher.start();
-		return dispatcher;
+		return Context.getDefault().nextDispatcher();
 	}
 
 	/**
@@ -231,6 +248,84 @@ public class Reactor implements Observable, Linkable<Observable> {
 		return notify(key, ev, null);
 	}
 
+	@Override
+	public <T, A> Reactor notify(Object key, EventTranslator<T, A> translator, A arg) {
+		Assert.notNull(key, "Key cannot be null.");
+		Assert.notNull(translator, "EventTranslator cannot be null.");
+
+		Task<T> task = dispatcher.nextTask();
+		task.setKey(key);
+		task.setConverter(converter);
+		task.setConsumerRegistry(consumerRegistry);
+		task.setErrorConsumer(errorHandler);
+		task.setCompletionConsumer(null);
+		boolean translated = false;
+		try {
+			translator.translate(task.getRecyclableEvent(), arg);
+			translated = true;
+		} finally {
+			if (!translated) {
+				// no consumer gets an event the translator failed to fill in, so there is nothing for the task to dispatch to
+				task.setConsumerRegistry(null);
+				task.setErrorConsumer(null);
+			}
+			// a task that has been handed out has to be submitted, as a slot of a ring buffer can't be given back
+			task.submit();
+		}
+
+		if (!linkedReactors.isEmpty()) {
+			for (Observable r : linkedReactors) {
+				// each is given an event of its own, as this one may be emptied before they get to it
+				r.notify(key, translator, arg);
+			}
+		}
+
+		return this;
+	}
+
+	@Override
+	public <T, E extends Event<T>> Reactor notifyBatch(Object key, Iterable<E> events) {
+		Assert.notNull(key, "Key cannot be null.");
+		Assert.notNull(events, "Events cannot be null.");
+
+		List<E> evs;
+		if (events instanceof List) {
+			evs = (List<E>) events;
+		} else {
+			evs = new ArrayList<E>();
+			for (E ev : events) {
+				evs.add(ev);
+			}
+		}
+		for (E ev : evs) {
+			// check up front, a half-filled batch can't be given back to the dispatcher
+			Assert.notNull(ev, "Event cannot be null.");
+		}
+
+		int next = 0;
+		while (next < evs.size()) {
+			TaskBatch<T> batch = dispatcher.nextTasks(evs.size() - next);
+			for (int i = 0; i < batch.size(); i++) {
+				Task<T> task = batch.get(i);
+				task.setKey(key);
+				task.setEvent(evs.get(next++));
+				task.setConverter(converter);
+				task.setConsumerRegistry(consumerRegistry);
+				task.setErrorConsumer(errorHandler);
+				task.setCompletionConsumer(null);
+			}
+			batch.submit();
+		}
+
+		if (!linkedReactors.isEmpty()) {
+			for (Observable r : linkedReactors) {
+				r.notifyBatch(key, evs);
+			}
+		}
+
+		return this;
+	}
+
 	@Override
 	public <T, S extends Supplier<Event<T>>> Reactor notify(Object key, S supplier) {
 		return notify(key, supplier.get(), null);
@@ -251,6 +346,38 @@ public class Reactor implements Observable, Linkable<Observable> {
 		return notify(key, Fn.nullEvent(), null);
 	}
 
+	/**
+	 * The notification is made on the thread of the {@link Context#getTimer() default Context's timer} and dispatched
+	 * with this {@literal Reactor}'s {@link Dispatcher}.
+	 */
+	@Override
+	public <T, E extends Event<T>> Timeout schedule(final Object key, final E ev, long delay, TimeUnit unit) {
+		Assert.notNull(key, "Key cannot be null.");
+		Assert.notNull(ev, "Event cannot be null.");
+		return Context.getDefault().getTimer().schedule(new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				Reactor.this.notify(key, ev);
+			}
+		}, delay, unit);
+	}
+
+	/**
+	 * The notifications are made on the thread of the {@link Context#getTimer() default Context's timer} and dispatched
+	 * with this {@literal Reactor}'s {@link Dispatcher}.
+	 */
+	@Override
+	public Timeout notifyEvery(final Object key, long period, TimeUnit unit) {
+		Assert.notNull(key, "Key cannot be null.");
+		Assert.isTrue(period > 0, "Period must be greater than zero.");
+		return Context.getDefault().getTimer().schedule(new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				Reactor.this.notify(key, Fn.event(now));
+			}
+		}, period, period, unit);
+	}
+
 	@Override
 	public <T, E extends Event<T>> Reactor send(Object key, E ev) {
 		return notify(key, new ReplyToEvent<T>(ev, this));
@@ -446,7 +573,7 @@ public class Reactor implements Observable, Linkable<Observable> {
 
 				replyToObservable.notify(ev.getReplyTo(), replyEv);
 			} catch (Throwable x) {
-				replyToObservable.notify(T(x.getClass()), Fn.event(x));
+				replyToObservable.notify(x.getClass(), Fn.event(x));
 			}
 		}
 	}
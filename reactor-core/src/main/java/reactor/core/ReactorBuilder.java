@@ -2,6 +2,8 @@ package reactor.core;
 
 import reactor.convert.Converter;
 import reactor.convert.DelegatingConverter;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
 import reactor.fn.Registry;
 import reactor.fn.SelectionStrategy;
 import reactor.fn.Supplier;
@@ -23,7 +25,10 @@ public abstract class ReactorBuilder<BUILDER extends ReactorBuilder<BUILDER, TAR
 	protected Registry.LoadBalancingStrategy loadBalancingStrategy;
 	protected SelectionStrategy              selectionStrategy;
 
-	protected boolean share = false;
+	protected boolean share                     = false;
+	protected boolean copyOnWriteRegistry       = false;
+	protected int     registryCacheSize         = CachingRegistry.DEFAULT_CACHE_SIZE;
+	protected int     registryNegativeCacheSize = CachingRegistry.DEFAULT_NEGATIVE_CACHE_SIZE;
 
 	public BUILDER using(Reactor reactor) {
 		this.reactor = reactor;
@@ -33,20 +38,37 @@ public abstract class ReactorBuilder<BUILDER extends ReactorBuilder<BUILDER, TAR
 	protected Reactor configureReactor() {
 		final Reactor _reactor;
 		if (null == reactor) {
-			_reactor = new Reactor(dispatcher, loadBalancingStrategy, selectionStrategy, converter);
+			_reactor = new Reactor(dispatcher, createRegistry(loadBalancingStrategy, selectionStrategy), converter);
 		} else if (share) {
 			_reactor = reactor;
 		} else {
 			_reactor = new Reactor(
 					null == dispatcher ? reactor.getDispatcher() : dispatcher,
-					null == loadBalancingStrategy ? reactor.getConsumerRegistry().getLoadBalancingStrategy() : loadBalancingStrategy,
-					null == selectionStrategy ? reactor.getConsumerRegistry().getSelectionStrategy() : selectionStrategy,
+					createRegistry(
+							null == loadBalancingStrategy ? reactor.getConsumerRegistry().getLoadBalancingStrategy() : loadBalancingStrategy,
+							null == selectionStrategy ? reactor.getConsumerRegistry().getSelectionStrategy() : selectionStrategy
+					),
 					null == converter ? reactor.getConverter() : converter
 			);
 		}
 		return _reactor;
 	}
 
+	protected Registry<Consumer<? extends Event<?>>> createRegistry(Registry.LoadBalancingStrategy loadBalancingStrategy,
+	                                                                 SelectionStrategy selectionStrategy) {
+		if (copyOnWriteRegistry) {
+			return new CopyOnWriteRegistry<Consumer<? extends Event<?>>>(loadBalancingStrategy,
+			                                                             selectionStrategy,
+			                                                             registryCacheSize,
+			                                                             registryNegativeCacheSize);
+		} else {
+			return new CachingRegistry<Consumer<? extends Event<?>>>(loadBalancingStrategy,
+			                                                         selectionStrategy,
+			                                                         registryCacheSize,
+			                                                         registryNegativeCacheSize);
+		}
+	}
+
 	public BUILDER share() {
 		this.share = true;
 		return (BUILDER) this;
@@ -77,6 +99,21 @@ public abstract class ReactorBuilder<BUILDER extends ReactorBuilder<BUILDER, TAR
 		return (BUILDER) this;
 	}
 
+	public BUILDER copyOnWriteRegistry() {
+		this.copyOnWriteRegistry = true;
+		return (BUILDER) this;
+	}
+
+	public BUILDER registryCacheSize(int maxKeys) {
+		this.registryCacheSize = maxKeys;
+		return (BUILDER) this;
+	}
+
+	public BUILDER registryNegativeCacheSize(int maxKeys) {
+		this.registryNegativeCacheSize = maxKeys;
+		return (BUILDER) this;
+	}
+
 	public BUILDER tagFiltering(){
 		this.selectionStrategy = new TagAwareSelectionStrategy();
 		return (BUILDER) this;
@@ -112,16 +149,31 @@ public abstract class ReactorBuilder<BUILDER extends ReactorBuilder<BUILDER, TAR
 		return (BUILDER) this;
 	}
 
+	public BUILDER threadPoolExecutor(WaitStrategy waitStrategy) {
+		this.dispatcher = new ThreadPoolExecutorDispatcher(waitStrategy).start();
+		return (BUILDER) this;
+	}
+
 	public BUILDER eventLoop() {
 		this.dispatcher = new BlockingQueueDispatcher().start();
 		return (BUILDER) this;
 	}
 
+	public BUILDER eventLoop(WaitStrategy waitStrategy) {
+		this.dispatcher = new BlockingQueueDispatcher(waitStrategy).start();
+		return (BUILDER) this;
+	}
+
 	public BUILDER ringBuffer() {
 		this.dispatcher = new RingBufferDispatcher().start();
 		return (BUILDER) this;
 	}
 
+	public BUILDER virtualThreads() {
+		this.dispatcher = new VirtualThreadDispatcher().start();
+		return (BUILDER) this;
+	}
+
 	public BUILDER dispatcher(Dispatcher dispatcher) {
 		this.dispatcher = dispatcher;
 		return (BUILDER) this;
@@ -0,0 +1,717 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Combines many regular expressions into one automaton that finds every expression matching a string in a single scan
+ * of that string. The expressions are compiled into one NFA, which is turned into a DFA lazily: each DFA state is
+ * created the first time a scan reaches it and is then reused by later scans.
+ * <p/>
+ * Only the regular subset of {@link Pattern}'s syntax is supported: literals, <code>.</code>, character classes
+ * without nesting or intersections, the <code>\d \w \s</code> classes and their negations, groups, alternation, and
+ * greedy or reluctant quantifiers. {@link #add(Pattern, Object)} refuses anything else, such as back references,
+ * look-arounds, flags, or boundary matchers, and the caller is expected to fall back to {@link Pattern} for those.
+ * <p/>
+ * Strings are matched as a whole, like {@link java.util.regex.Matcher#matches()}. This class is not thread-safe.
+ *
+ * @author Jon Brisbin
+ */
+class RegexAutomaton<V> {
+
+	private static final int MAX_PATTERN_STATES = 1024;
+	private static final int MAX_DFA_STATES     = Integer.parseInt(System.getProperty("reactor.registry.regex.states", "4096"));
+	private static final int MAX_CHAR           = Character.MAX_VALUE;
+
+	private static final int CHARS  = 0;
+	private static final int SPLIT  = 1;
+	private static final int ACCEPT = 2;
+
+	private final List<Entry<V>> entries = new ArrayList<Entry<V>>();
+
+	private boolean dirty;
+
+	private int     stateCount;
+	private int[]   kinds;
+	private int[][] sets;
+	private int[]   out1;
+	private int[]   out2;
+	private int[]   starts;
+
+	private Map<StateSet, DState> dstates;
+	private DState                start;
+
+	/**
+	 * Add an expression to the automaton.
+	 *
+	 * @param pattern The expression to add
+	 * @param value   The value to collect when a string matches the expression
+	 * @return {@literal false} if the expression uses syntax that the automaton doesn't support
+	 */
+	boolean add(Pattern pattern, V value) {
+		Node node = parse(pattern);
+		if (null == node) {
+			return false;
+		}
+		entries.add(new Entry<V>(pattern, node, value));
+		dirty = true;
+		return true;
+	}
+
+	/**
+	 * Remove a value previously added to the automaton.
+	 *
+	 * @param value The value to remove
+	 * @return {@literal true} if the value was found and removed
+	 */
+	boolean remove(V value) {
+		for (Iterator<Entry<V>> iter = entries.iterator(); iter.hasNext(); ) {
+			if (iter.next().value == value) {
+				iter.remove();
+				dirty = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Collect the values of every expression that matches the whole of the given string, in the order they were added.
+	 *
+	 * @param s   The string to match
+	 * @param out Where to collect the values
+	 */
+	void match(String s, Collection<V> out) {
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		int len = s.length();
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				// Pattern matches code points rather than chars, which the automaton doesn't model
+				for (Entry<V> entry : entries) {
+					if (entry.pattern.matcher(s).matches()) {
+						out.add(entry.value);
+					}
+				}
+				return;
+			}
+		}
+
+		if (dirty) {
+			compile();
+		}
+
+		DState d = start;
+		for (int i = 0; i < len && d.states.length > 0; i++) {
+			d = step(d, s.charAt(i));
+		}
+		for (int i : d.accepts) {
+			out.add(entries.get(i).value);
+		}
+	}
+
+	private void compile() {
+		stateCount = 0;
+		int capacity = 16;
+		for (Entry<V> entry : entries) {
+			capacity += entry.node.size + 1;
+		}
+		kinds = new int[capacity];
+		sets = new int[capacity][];
+		out1 = new int[capacity];
+		out2 = new int[capacity];
+
+		starts = new int[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			int accept = newState(ACCEPT, null, i, -1);
+			starts[i] = compile(entries.get(i).node, accept);
+		}
+
+		dstates = new HashMap<StateSet, DState>();
+		start = intern(closure(starts));
+		dirty = false;
+	}
+
+	private int compile(Node node, int next) {
+		switch (node.type) {
+			case Node.SET:
+				return newState(CHARS, node.ranges, next, -1);
+			case Node.CONCAT:
+				for (int i = node.children.size() - 1; i >= 0; i--) {
+					next = compile(node.children.get(i), next);
+				}
+				return next;
+			case Node.ALT: {
+				int s = compile(node.children.get(node.children.size() - 1), next);
+				for (int i = node.children.size() - 2; i >= 0; i--) {
+					s = newState(SPLIT, null, compile(node.children.get(i), next), s);
+				}
+				return s;
+			}
+			case Node.REPEAT: {
+				int s = next;
+				if (node.max < 0) {
+					int loop = newState(SPLIT, null, -1, next);
+					int body = compile(node.children.get(0), loop);
+					out1[loop] = body;
+					s = loop;
+				} else {
+					for (int i = node.min; i < node.max; i++) {
+						s = newState(SPLIT, null, compile(node.children.get(0), s), s);
+					}
+				}
+				for (int i = 0; i < node.min; i++) {
+					s = compile(node.children.get(0), s);
+				}
+				return s;
+			}
+			default:
+				return next;
+		}
+	}
+
+	private int newState(int kind, int[] set, int o1, int o2) {
+		if (stateCount == kinds.length) {
+			int capacity = kinds.length * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			sets = Arrays.copyOf(sets, capacity);
+			out1 = Arrays.copyOf(out1, capacity);
+			out2 = Arrays.copyOf(out2, capacity);
+		}
+		int s = stateCount++;
+		kinds[s] = kind;
+		sets[s] = set;
+		out1[s] = o1;
+		out2[s] = o2;
+		return s;
+	}
+
+	private int[] closure(int[] from) {
+		BitSet seen = new BitSet(stateCount);
+		BitSet keep = new BitSet(stateCount);
+		int[] stack = new int[stateCount];
+		int top = 0;
+		for (int s : from) {
+			if (!seen.get(s)) {
+				seen.set(s);
+				stack[top++] = s;
+			}
+		}
+		while (top > 0) {
+			int s = stack[--top];
+			if (kinds[s] == SPLIT) {
+				if (!seen.get(out1[s])) {
+					seen.set(out1[s]);
+					stack[top++] = out1[s];
+				}
+				if (!seen.get(out2[s])) {
+					seen.set(out2[s]);
+					stack[top++] = out2[s];
+				}
+			} else {
+				keep.set(s);
+			}
+		}
+		int[] states = new int[keep.cardinality()];
+		for (int i = 0, s = keep.nextSetBit(0); s >= 0; s = keep.nextSetBit(s + 1)) {
+			states[i++] = s;
+		}
+		return states;
+	}
+
+	private DState step(DState d, char c) {
+		DState next = (c < d.ascii.length ? d.ascii[c] : (null != d.other ? d.other.get(c) : null));
+		if (null != next) {
+			return next;
+		}
+
+		int[] targets = new int[d.states.length];
+		int count = 0;
+		for (int s : d.states) {
+			if (kinds[s] == CHARS && contains(sets[s], c)) {
+				targets[count++] = out1[s];
+			}
+		}
+		if (dstates.size() >= MAX_DFA_STATES) {
+			// start over rather than let a pathological mix of expressions and keys grow without bound
+			dstates.clear();
+			start = intern(start.states);
+		}
+		next = intern(closure(Arrays.copyOf(targets, count)));
+
+		if (c < d.ascii.length) {
+			d.ascii[c] = next;
+		} else {
+			if (null == d.other) {
+				d.other = new HashMap<Character, DState>();
+			}
+			d.other.put(c, next);
+		}
+		return next;
+	}
+
+	private DState intern(int[] states) {
+		StateSet key = new StateSet(states);
+		DState d = dstates.get(key);
+		if (null == d) {
+			int accepting = 0;
+			for (int s : states) {
+				if (kinds[s] == ACCEPT) {
+					accepting++;
+				}
+			}
+			int[] accepts = new int[accepting];
+			for (int i = 0, j = 0; i < states.length; i++) {
+				if (kinds[states[i]] == ACCEPT) {
+					accepts[j++] = out1[states[i]];
+				}
+			}
+			Arrays.sort(accepts);
+			d = new DState(states, accepts);
+			dstates.put(key, d);
+		}
+		return d;
+	}
+
+	private static boolean contains(int[] ranges, char c) {
+		int lo = 0;
+		int hi = ranges.length / 2 - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (c < ranges[mid * 2]) {
+				hi = mid - 1;
+			} else if (c > ranges[mid * 2 + 1]) {
+				lo = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static Node parse(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return null;
+		}
+		try {
+			Parser parser = new Parser(pattern.pattern());
+			Node node = parser.parseAlternation();
+			if (parser.pos != parser.pattern.length() || node.size > MAX_PATTERN_STATES) {
+				return null;
+			}
+			return node;
+		} catch (UnsupportedSyntaxException e) {
+			return null;
+		}
+	}
+
+	private static final class Parser {
+		private final String pattern;
+		private int pos;
+
+		private Parser(String pattern) {
+			this.pattern = pattern;
+		}
+
+		Node parseAlternation() {
+			List<Node> alternatives = new ArrayList<Node>();
+			alternatives.add(parseConcatenation());
+			while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+				pos++;
+				alternatives.add(parseConcatenation());
+			}
+			return alternatives.size() == 1 ? alternatives.get(0) : Node.composite(Node.ALT, alternatives);
+		}
+
+		private Node parseConcatenation() {
+			List<Node> nodes = new ArrayList<Node>();
+			while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+				nodes.add(parseQuantifier(parseAtom()));
+			}
+			return nodes.size() == 1 ? nodes.get(0) : Node.composite(Node.CONCAT, nodes);
+		}
+
+		private Node parseAtom() {
+			char c = pattern.charAt(pos++);
+			switch (c) {
+				case '(': {
+					if (pattern.startsWith("?:", pos)) {
+						pos += 2;
+					} else if (pattern.startsWith("?", pos)) {
+						throw new UnsupportedSyntaxException();
+					}
+					Node node = parseAlternation();
+					if (pos >= pattern.length() || pattern.charAt(pos) != ')') {
+						throw new UnsupportedSyntaxException();
+					}
+					pos++;
+					return node;
+				}
+				case '[':
+					return Node.set(parseClass());
+				case '.':
+					return Node.set(complement(ranges('\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029')));
+				case '\\':
+					return Node.set(parseEscape());
+				case '^':
+					// anchors are no-ops when the whole string has to match, as long as they are at the ends
+					if (pos == 1) {
+						return Node.EMPTY;
+					}
+					throw new UnsupportedSyntaxException();
+				case '$':
+					if (pos == pattern.length()) {
+						return Node.EMPTY;
+					}
+					throw new UnsupportedSyntaxException();
+				case '*':
+				case '+':
+				case '?':
+				case '{':
+					throw new UnsupportedSyntaxException();
+				default:
+					return Node.set(literal(c));
+			}
+		}
+
+		private Node parseQuantifier(Node atom) {
+			if (pos >= pattern.length()) {
+				return atom;
+			}
+			int min;
+			int max;
+			switch (pattern.charAt(pos)) {
+				case '*':
+					min = 0;
+					max = -1;
+					pos++;
+					break;
+				case '+':
+					min = 1;
+					max = -1;
+					pos++;
+					break;
+				case '?':
+					min = 0;
+					max = 1;
+					pos++;
+					break;
+				case '{': {
+					pos++;
+					min = parseNumber();
+					max = min;
+					if (pos < pattern.length() && pattern.charAt(pos) == ',') {
+						pos++;
+						max = (pos < pattern.length() && pattern.charAt(pos) == '}' ? -1 : parseNumber());
+					}
+					if (pos >= pattern.length() || pattern.charAt(pos) != '}' || (max >= 0 && max < min)) {
+						throw new UnsupportedSyntaxException();
+					}
+					pos++;
+					break;
+				}
+				default:
+					return atom;
+			}
+
+			if (pos < pattern.length()) {
+				char c = pattern.charAt(pos);
+				if (c == '?') {
+					// a reluctant quantifier matches the same strings as a greedy one
+					pos++;
+				} else if (c == '+' || c == '*' || c == '{') {
+					throw new UnsupportedSyntaxException();
+				}
+			}
+			return Node.repeat(atom, min, max);
+		}
+
+		private int parseNumber() {
+			int start = pos;
+			while (pos < pattern.length() && Character.isDigit(pattern.charAt(pos)) && pos - start < 4) {
+				pos++;
+			}
+			if (start == pos) {
+				throw new UnsupportedSyntaxException();
+			}
+			return Integer.parseInt(pattern.substring(start, pos));
+		}
+
+		private int[] parseClass() {
+			boolean negate = false;
+			if (pos < pattern.length() && pattern.charAt(pos) == '^') {
+				negate = true;
+				pos++;
+			}
+			if (pos < pattern.length() && pattern.charAt(pos) == ']') {
+				throw new UnsupportedSyntaxException();
+			}
+
+			List<int[]> members = new ArrayList<int[]>();
+			while (true) {
+				if (pos >= pattern.length()) {
+					throw new UnsupportedSyntaxException();
+				}
+				char c = pattern.charAt(pos++);
+				if (c == ']') {
+					break;
+				} else if (c == '[' || (c == '&' && pattern.startsWith("&", pos))) {
+					throw new UnsupportedSyntaxException();
+				}
+
+				int[] lo;
+				if (c == '\\') {
+					lo = parseEscape();
+				} else {
+					lo = literal(c);
+				}
+
+				if (pos + 1 < pattern.length() && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+					if (lo.length != 2 || lo[0] != lo[1]) {
+						throw new UnsupportedSyntaxException();
+					}
+					pos++;
+					char h = pattern.charAt(pos++);
+					int[] hi;
+					if (h == '\\') {
+						hi = parseEscape();
+					} else if (h == '[') {
+						throw new UnsupportedSyntaxException();
+					} else {
+						hi = literal(h);
+					}
+					if (hi.length != 2 || hi[0] != hi[1] || hi[0] < lo[0]) {
+						throw new UnsupportedSyntaxException();
+					}
+					members.add(new int[]{lo[0], hi[0]});
+				} else {
+					members.add(lo);
+				}
+			}
+
+			int[] set = union(members);
+			return negate ? complement(set) : set;
+		}
+
+		private int[] parseEscape() {
+			if (pos >= pattern.length()) {
+				throw new UnsupportedSyntaxException();
+			}
+			char c = pattern.charAt(pos++);
+			switch (c) {
+				case 'd':
+					return ranges('0', '9');
+				case 'D':
+					return complement(ranges('0', '9'));
+				case 'w':
+					return WORD;
+				case 'W':
+					return complement(WORD);
+				case 's':
+					return SPACE;
+				case 'S':
+					return complement(SPACE);
+				case 't':
+					return literal('\t');
+				case 'n':
+					return literal('\n');
+				case 'r':
+					return literal('\r');
+				case 'f':
+					return literal('\f');
+				case 'e':
+					return literal('\u001B');
+				case 'a':
+					return literal('\u0007');
+				default:
+					if (Character.isLetterOrDigit(c)) {
+						// back references, boundaries, quoting, unicode properties and the like
+						throw new UnsupportedSyntaxException();
+					}
+					return literal(c);
+			}
+		}
+	}
+
+	private static final int[] WORD  = union(Arrays.asList(ranges('0', '9'), ranges('A', 'Z'), ranges('_', '_'), ranges('a', 'z')));
+	private static final int[] SPACE = union(Arrays.asList(ranges('\t', '\r'), ranges(' ', ' ')));
+
+	private static int[] literal(char c) {
+		if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+			throw new UnsupportedSyntaxException();
+		}
+		return new int[]{c, c};
+	}
+
+	private static int[] ranges(int... bounds) {
+		return bounds;
+	}
+
+	private static int[] union(List<int[]> members) {
+		List<int[]> pairs = new ArrayList<int[]>();
+		for (int[] member : members) {
+			for (int i = 0; i < member.length; i += 2) {
+				pairs.add(new int[]{member[i], member[i + 1]});
+			}
+		}
+		Collections.sort(pairs, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return a[0] - b[0];
+			}
+		});
+
+		int[] merged = new int[pairs.size() * 2];
+		int count = 0;
+		for (int[] pair : pairs) {
+			if (count > 0 && pair[0] <= merged[count - 1] + 1) {
+				merged[count - 1] = Math.max(merged[count - 1], pair[1]);
+			} else {
+				merged[count++] = pair[0];
+				merged[count++] = pair[1];
+			}
+		}
+		return Arrays.copyOf(merged, count);
+	}
+
+	private static int[] complement(int[] set) {
+		int[] result = new int[set.length + 2];
+		int count = 0;
+		int next = 0;
+		for (int i = 0; i < set.length; i += 2) {
+			if (set[i] > next) {
+				result[count++] = next;
+				result[count++] = set[i] - 1;
+			}
+			next = set[i + 1] + 1;
+		}
+		if (next <= MAX_CHAR) {
+			result[count++] = next;
+			result[count++] = MAX_CHAR;
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static final class Node {
+		static final int EMPTY_TYPE = 0;
+		static final int SET        = 1;
+		static final int CONCAT     = 2;
+		static final int ALT        = 3;
+		static final int REPEAT     = 4;
+
+		static final Node EMPTY = new Node(EMPTY_TYPE, null, null, 0, 0, 0);
+
+		final int        type;
+		final int[]      ranges;
+		final List<Node> children;
+		final int        min;
+		final int        max;
+		final int        size;
+
+		private Node(int type, int[] ranges, List<Node> children, int min, int max, int size) {
+			this.type = type;
+			this.ranges = ranges;
+			this.children = children;
+			this.min = min;
+			this.max = max;
+			this.size = size;
+		}
+
+		static Node set(int[] ranges) {
+			return new Node(SET, ranges, null, 0, 0, 1);
+		}
+
+		static Node composite(int type, List<Node> children) {
+			int size = 0;
+			for (Node child : children) {
+				size += child.size + 1;
+			}
+			return new Node(type, null, children, 0, 0, size);
+		}
+
+		static Node repeat(Node child, int min, int max) {
+			// the number of NFA states the repetition expands to
+			long size = (long) (child.size + 1) * (max < 0 ? min + 1 : max) + 1;
+			if (size > MAX_PATTERN_STATES) {
+				throw new UnsupportedSyntaxException();
+			}
+			return new Node(REPEAT, null, Collections.singletonList(child), min, max, (int) size);
+		}
+	}
+
+	private static final class Entry<V> {
+		final Pattern pattern;
+		final Node    node;
+		final V       value;
+
+		private Entry(Pattern pattern, Node node, V value) {
+			this.pattern = pattern;
+			this.node = node;
+			this.value = value;
+		}
+	}
+
+	private static final class DState {
+		final int[]    states;
+		final int[]    accepts;
+		final DState[] ascii = new DState[128];
+		Map<Character, DState> other;
+
+		private DState(int[] states, int[] accepts) {
+			this.states = states;
+			this.accepts = accepts;
+		}
+	}
+
+	private static final class StateSet {
+		private final int[] states;
+		private final int   hash;
+
+		private StateSet(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+		}
+	}
+
+	private static final class UnsupportedSyntaxException extends RuntimeException {
+		private static final long serialVersionUID = 5682952120585017683L;
+
+		private UnsupportedSyntaxException() {
+			super(null, null);
+		}
+	}
+
+}
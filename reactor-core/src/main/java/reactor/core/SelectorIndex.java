@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import reactor.fn.Registration;
+import reactor.fn.Selector;
+import reactor.fn.selector.BaseSelector;
+import reactor.fn.selector.ClassSelector;
+import reactor.fn.selector.RegexSelector;
+import reactor.fn.selector.UriTemplateSelector;
+import reactor.fn.support.UriTemplate;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Sorts {@link Registration}s by the kind of their {@link Selector} so that the candidates for a key can be found
+ * without testing every registration. Plain {@link BaseSelector}s are hashed on their object, {@link ClassSelector}s
+ * are hashed on their type and looked up by walking the key's superclasses and interfaces (and, for an array type, the
+ * arrays of its component type's), {@link UriTemplateSelector}s whose templates can be matched segment by segment go
+ * into a {@link PathTrie}, {@link RegexSelector}s go into a {@link RegexAutomaton} that tests all of them in one scan
+ * of the key, and any other kind of {@link Selector} goes to a list that is always scanned.
+ * <p/>
+ * Compiling regex selectors into an automaton can be turned off by setting the {@code reactor.registry.regex.compile}
+ * system property to {@literal false}. Patterns the automaton doesn't support are always scanned. This class is not
+ * thread-safe.
+ *
+ * @author Jon Brisbin
+ */
+class SelectorIndex<T> {
+
+	private static final boolean COMPILE_REGEX = Boolean.parseBoolean(System.getProperty("reactor.registry.regex.compile", "true"));
+
+	private final Map<Object, List<Indexed<T>>>    objectIndex = new HashMap<Object, List<Indexed<T>>>();
+	private final Map<Class<?>, List<Indexed<T>>>  typeIndex   = new HashMap<Class<?>, List<Indexed<T>>>();
+	private final PathTrie<Indexed<T>>             pathIndex   = new PathTrie<Indexed<T>>();
+	private final RegexAutomaton<Indexed<T>>       regexIndex  = new RegexAutomaton<Indexed<T>>();
+	private final List<Indexed<T>>                 unindexed   = new ArrayList<Indexed<T>>();
+	private final Map<Registration<?>, Indexed<T>> entries     = new IdentityHashMap<Registration<?>, Indexed<T>>();
+
+	private long nextSequence;
+
+	void add(Registration<? extends T> reg) {
+		Indexed<T> indexed = new Indexed<T>(reg, nextSequence++);
+		entries.put(reg, indexed);
+
+		String[] segments = pathSegments(reg.getSelector());
+		if (null != segments) {
+			pathIndex.add(segments, indexed);
+		} else if (isRegex(reg.getSelector()) && regexIndex.add((Pattern) reg.getSelector().getObject(), indexed)) {
+			indexed.compiled = true;
+		} else {
+			listFor(reg.getSelector(), true).add(indexed);
+		}
+	}
+
+	void remove(Registration<?> reg) {
+		Indexed<T> indexed = entries.remove(reg);
+		if (null == indexed) {
+			return;
+		}
+		Selector sel = reg.getSelector();
+		String[] segments = pathSegments(sel);
+		if (null != segments) {
+			pathIndex.remove(segments, indexed);
+			return;
+		} else if (indexed.compiled) {
+			regexIndex.remove(indexed);
+			return;
+		}
+		List<Indexed<T>> list = listFor(sel, false);
+		if (null == list) {
+			return;
+		}
+		list.remove(indexed);
+		if (list.isEmpty()) {
+			if (isObjectIndexed(sel)) {
+				objectIndex.remove(sel.getObject());
+			} else if (isTypeIndexed(sel)) {
+				typeIndex.remove(sel.getObject());
+			}
+		}
+	}
+
+	/**
+	 * Find the registrations whose selectors match the given key.
+	 *
+	 * @param key The key to find registrations for
+	 * @return The matching registrations, in registration order
+	 */
+	List<Registration<? extends T>> select(Object key) {
+		List<List<Indexed<T>>> sources = new ArrayList<List<Indexed<T>>>(4);
+
+		List<Indexed<T>> l = objectIndex.get(key);
+		if (null != l) {
+			sources.add(l);
+		}
+		if (key instanceof Class && !typeIndex.isEmpty()) {
+			for (Class<?> type : typeHierarchy((Class<?>) key)) {
+				if (null != (l = typeIndex.get(type))) {
+					sources.add(l);
+				}
+			}
+		}
+		boolean pathMatched = false;
+		if (key instanceof String && !pathIndex.isEmpty()) {
+			l = new ArrayList<Indexed<T>>();
+			pathIndex.match((String) key, l);
+			if (!l.isEmpty()) {
+				sources.add(l);
+				pathMatched = true;
+			}
+		}
+		if (null != key && !regexIndex.isEmpty()) {
+			l = new ArrayList<Indexed<T>>();
+			regexIndex.match(key.toString(), l);
+			if (!l.isEmpty()) {
+				sources.add(l);
+			}
+		}
+		if (!unindexed.isEmpty()) {
+			sources.add(unindexed);
+		}
+
+		if (sources.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<Indexed<T>> merged;
+		if (sources.size() == 1 && !pathMatched) {
+			merged = sources.get(0);
+		} else {
+			// path matches come back in trie order and possibly more than once, so they always need merging
+			merged = new ArrayList<Indexed<T>>();
+			for (List<Indexed<T>> source : sources) {
+				merged.addAll(source);
+			}
+			Collections.sort(merged);
+		}
+
+		List<Registration<? extends T>> regs = new ArrayList<Registration<? extends T>>(merged.size());
+		Indexed<T> last = null;
+		for (Indexed<T> i : merged) {
+			// whatever the automaton returns has already matched
+			if (i != last && (i.compiled || i.registration.getSelector().matches(key))) {
+				regs.add(i.registration);
+			}
+			last = i;
+		}
+		return regs;
+	}
+
+	private List<Indexed<T>> listFor(Selector sel, boolean create) {
+		Map<Object, List<Indexed<T>>> index;
+		if (isObjectIndexed(sel)) {
+			index = objectIndex;
+		} else if (isTypeIndexed(sel)) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			Map<Object, List<Indexed<T>>> m = (Map) typeIndex;
+			index = m;
+		} else {
+			return unindexed;
+		}
+
+		List<Indexed<T>> list = index.get(sel.getObject());
+		if (null == list && create) {
+			list = new ArrayList<Indexed<T>>(1);
+			index.put(sel.getObject(), list);
+		}
+		return list;
+	}
+
+	private static boolean isObjectIndexed(Selector sel) {
+		// subclasses of BaseSelector override matches(), so only the exact type can be hashed on its object
+		return sel.getClass() == BaseSelector.class && null != sel.getObject();
+	}
+
+	private static boolean isTypeIndexed(Selector sel) {
+		return sel.getClass() == ClassSelector.class;
+	}
+
+	private static boolean isRegex(Selector sel) {
+		return COMPILE_REGEX && sel.getClass() == RegexSelector.class;
+	}
+
+	private static String[] pathSegments(Selector sel) {
+		if (sel.getClass() != UriTemplateSelector.class) {
+			return null;
+		}
+		return ((UriTemplate) sel.getObject()).getSegments();
+	}
+
+	private static List<Class<?>> typeHierarchy(Class<?> type) {
+		List<Class<?>> types = new ArrayList<Class<?>>();
+		Set<Class<?>> seen = new HashSet<Class<?>>();
+		Deque<Class<?>> toVisit = new ArrayDeque<Class<?>>();
+		toVisit.add(type);
+		while (!toVisit.isEmpty()) {
+			Class<?> c = toVisit.poll();
+			if (!seen.add(c)) {
+				continue;
+			}
+			types.add(c);
+			if (null != c.getSuperclass()) {
+				toVisit.add(c.getSuperclass());
+			}
+			Collections.addAll(toVisit, c.getInterfaces());
+		}
+		if (type.isInterface()) {
+			// Object.class.isAssignableFrom() holds for interfaces too, but they don't extend it
+			types.add(Object.class);
+		}
+		if (type.isArray() && !type.getComponentType().isPrimitive()) {
+			// arrays are covariant, so String[] is also an Object[], a CharSequence[] and so on
+			for (Class<?> c : typeHierarchy(type.getComponentType())) {
+				Class<?> array = Array.newInstance(c, 0).getClass();
+				if (seen.add(array)) {
+					types.add(array);
+				}
+			}
+		}
+		return types;
+	}
+
+	private static final class Indexed<T> implements Comparable<Indexed<T>> {
+		final Registration<? extends T> registration;
+		final long                      sequence;
+		boolean compiled;
+
+		private Indexed(Registration<? extends T> registration, long sequence) {
+			this.registration = registration;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Indexed<T> o) {
+			return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import reactor.fn.dispatch.BlockingQueueDispatcher;
 import reactor.fn.dispatch.RingBufferDispatcher;
 import reactor.fn.dispatch.SynchronousDispatcher;
 import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+import reactor.fn.dispatch.VirtualThreadDispatcher;
 import reactor.util.Assert;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
 
@@ -241,10 +242,10 @@ public class DynamicReactorFactory<T extends DynamicReactor> {
 			if (dispatcherType != null) {
 				switch (dispatcherType.value()) {
 					case WORKER:
-						dispatcher = new BlockingQueueDispatcher();
+						dispatcher = new BlockingQueueDispatcher(dispatcherType.waitStrategy());
 						break;
 					case THREAD_POOL:
-						dispatcher = new ThreadPoolExecutorDispatcher();
+						dispatcher = new ThreadPoolExecutorDispatcher(dispatcherType.waitStrategy());
 						break;
 					case ROOT:
 						dispatcher = new RingBufferDispatcher();
@@ -252,6 +253,9 @@ public class DynamicReactorFactory<T extends DynamicReactor> {
 					case SYNC:
 						dispatcher = new SynchronousDispatcher();
 						break;
+					case VIRTUAL:
+						dispatcher = new VirtualThreadDispatcher();
+						break;
 				}
 				dispatcher.start();
 			}
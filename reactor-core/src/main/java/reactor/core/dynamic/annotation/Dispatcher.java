@@ -16,6 +16,8 @@
 
 package reactor.core.dynamic.annotation;
 
+import reactor.fn.dispatch.StandardWaitStrategy;
+
 import java.lang.annotation.*;
 
 /**
@@ -30,4 +32,12 @@ public @interface Dispatcher {
 
 	DispatcherType value() default DispatcherType.WORKER;
 
+	/**
+	 * How the threads of a {@link DispatcherType#WORKER WORKER} or {@link DispatcherType#THREAD_POOL THREAD_POOL}
+	 * dispatcher wait for tasks. Ignored by the other types.
+	 *
+	 * @return The wait strategy
+	 */
+	StandardWaitStrategy waitStrategy() default StandardWaitStrategy.BLOCKING;
+
 }
@@ -24,6 +24,7 @@ public enum DispatcherType {
 	THREAD_POOL,
 	WORKER,
 	ROOT,
-	SYNC
+	SYNC,
+	VIRTUAL
 
 }
@@ -17,16 +17,28 @@
 package reactor.fn;
 
 import com.eaio.uuid.UUID;
+import com.eaio.uuid.UUIDGen;
 import reactor.util.Assert;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Wrapper for an object that needs to be processed by {@link Consumer}s.
+ * <p/>
+ * An event's id is only created when it is first asked for, as most events never are. If the {@code
+ * reactor.event.sequenceIds} system property is {@literal true}, each event is instead given a sequence id when it is
+ * created, taken from a counter shared by all events, and its id is made from that sequence id. Sequence ids are
+ * cheaper to hand out than time-based ids and follow the order events were created in, but are only unique within the
+ * JVM.
  *
  * @author Jon Brisbin
  * @author Stephane Maldini
@@ -34,29 +46,71 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class Event<T> {
 
-	private final UUID id = new UUID();
+	private static final boolean    SEQUENCE_IDS = Boolean.parseBoolean(System.getProperty("reactor.event.sequenceIds", "false"));
+	private static final AtomicLong SEQUENCE     = new AtomicLong();
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Event, UUID> ID_UPDATER = AtomicReferenceFieldUpdater.newUpdater(Event.class, UUID.class, "id");
+
+	private long sequenceId;
+	private volatile UUID id;
 	private Headers headers;
 	private Object  replyTo;
 	private T       data;
 
 	public Event(Headers headers, T data) {
+		this.sequenceId = (SEQUENCE_IDS ? SEQUENCE.incrementAndGet() : 0);
 		this.headers = headers;
 		this.data = data;
 	}
 
 	public Event(T data) {
+		this.sequenceId = (SEQUENCE_IDS ? SEQUENCE.incrementAndGet() : 0);
 		this.data = data;
 	}
 
 	/**
-	 * Get the globally-unique id of this event.
+	 * Get the unique id of this event, creating it if this is the first time it's been asked for.
 	 *
 	 * @return Unique {@link UUID} of this event.
 	 */
 	public UUID getId() {
+		UUID id = this.id;
+		if (null == id) {
+			id = (sequenceId > 0 ? new UUID(sequenceId, UUIDGen.getClockSeqAndNode()) : new UUID());
+			if (!ID_UPDATER.compareAndSet(this, null, id)) {
+				// another thread got there first
+				id = this.id;
+			}
+		}
 		return id;
 	}
 
+	/**
+	 * Clear this event of its data, headers, reply-to key and id, so that it can carry another notification. Only the
+	 * events that dispatchers hand out again and again are recycled, which is why this isn't public.
+	 */
+	protected void recycle() {
+		if (SEQUENCE_IDS) {
+			sequenceId = SEQUENCE.incrementAndGet();
+		}
+		id = null;
+		replyTo = null;
+		data = null;
+		if (null != headers) {
+			headers.clear();
+		}
+	}
+
+	/**
+	 * Get the sequence id given to this event when it was created, if sequence ids are turned on with the {@code
+	 * reactor.event.sequenceIds} system property. Events created later have higher sequence ids.
+	 *
+	 * @return The sequence id, or {@literal 0} if sequence ids are turned off
+	 */
+	public long getSequenceId() {
+		return sequenceId;
+	}
+
 	/**
 	 * Get the {@link Headers} attached to this event.
 	 *
@@ -69,6 +123,16 @@ public class Event<T> {
 		return headers;
 	}
 
+	/**
+	 * Determine whether {@link Headers} are attached to this event, without creating them as {@link #getHeaders()} does.
+	 * They are attached once they have been given to the event or asked for, even if none have been set since.
+	 *
+	 * @return {@literal true} if the event has headers, {@literal false} otherwise.
+	 */
+	public boolean hasHeaders() {
+		return null != headers;
+	}
+
 	/**
 	 * Get the key to send replies to.
 	 *
@@ -111,36 +175,49 @@ public class Event<T> {
 	}
 
 	/**
-	 * Headers are backed by a {@code Map&lt;String, String&gt;} and provide a little extra sugar for creating read-only
-	 * versions and the like.
+	 * Headers are kept, with their names in lower case, in a flat array of names and values that only grows when more
+	 * than four headers are set. Names that are already lower case, like the {@link #ORIGIN} constant, are used as they
+	 * are; looking them up compares by identity first.
+	 * <p/>
+	 * A {@link #copy() copy} or {@link #readOnly() read-only version} shares the array with the headers it was made
+	 * from, until either of them is changed. Headers can be read from any thread; changes are serialized with each other.
 	 */
 	public static class Headers implements Serializable, Iterable<Map.Entry<String, String>> {
-		public static final  String ORIGIN           = "x-reactor-origin";
-		private static final long   serialVersionUID = 4984692586458514948L;
-		private final Map<String, String> headers;
+		public static final  String   ORIGIN           = "x-reactor-origin";
+		private static final long     serialVersionUID = 6415791327973929198L;
+		private static final String[] EMPTY            = new String[0];
+		private static final int      INITIAL_HEADERS  = 4;
 
-		private Headers(boolean sealed, Map<String, String> headers) {
-			if (sealed) {
-				this.headers = Collections.unmodifiableMap(headers);
-			} else {
-				this.headers = headers;
-			}
+		private final boolean sealed;
+		// names and values, one after the other, of which the first size are in use
+		private volatile String[] entries;
+		private volatile int      size;
+		// whether entries is also used by another Headers and must be copied before it's changed, guarded by this
+		private transient boolean shared;
+
+		private Headers(boolean sealed, String[] entries, int size) {
+			this.sealed = sealed;
+			this.entries = entries;
+			this.size = size;
+			this.shared = true;
 		}
 
 		/**
-		 * Create headers using the existing {@link Map}.
+		 * Create headers holding the entries of the given {@link Map}.
 		 *
-		 * @param headers The map to use as the headers.
+		 * @param headers The map to copy the headers from.
 		 */
 		public Headers(Map<String, String> headers) {
-			this(false, headers);
+			this();
+			setAll(headers);
 		}
 
 		/**
-		 * Create headers using a new, empty map.
+		 * Create empty headers.
 		 */
 		public Headers() {
-			this(false, new ConcurrentHashMap<String, String>());
+			this.sealed = false;
+			this.entries = EMPTY;
 		}
 
 		/**
@@ -153,19 +230,25 @@ public class Event<T> {
 			if (null == headers || headers.isEmpty()) {
 				return this;
 			}
-			this.headers.putAll(headers);
+			synchronized (this) {
+				for (Map.Entry<String, String> entry : headers.entrySet()) {
+					put(lowerCase(entry.getKey()), entry.getValue());
+				}
+			}
 			return this;
 		}
 
 		/**
-		 * Set the header value.
+		 * Set the header value. Setting a header to {@literal null} removes it.
 		 *
 		 * @param name  The name of the header.
 		 * @param value The header's value.
 		 * @return {@literal this}
 		 */
 		public Headers set(String name, String value) {
-			headers.put(name.toLowerCase(), value);
+			synchronized (this) {
+				put(lowerCase(name), value);
+			}
 			return this;
 		}
 
@@ -188,7 +271,9 @@ public class Event<T> {
 		 * @return {@literal this}
 		 */
 		public Headers setOrigin(String id) {
-			headers.put(ORIGIN, id);
+			synchronized (this) {
+				put(ORIGIN, id);
+			}
 			return this;
 		}
 
@@ -198,7 +283,7 @@ public class Event<T> {
 		 * @return The unique id of the component in which this event originated.
 		 */
 		public String getOrigin() {
-			return headers.get(ORIGIN);
+			return find(ORIGIN);
 		}
 
 		/**
@@ -208,7 +293,7 @@ public class Event<T> {
 		 * @return The value of the header, or {@literal null} if none exists.
 		 */
 		public String get(String name) {
-			return headers.get(name.toLowerCase());
+			return find(lowerCase(name));
 		}
 
 		/**
@@ -218,30 +303,192 @@ public class Event<T> {
 		 * @return {@literal true} if a value exists, {@literal false} otherwise.
 		 */
 		public boolean contains(String name) {
-			return headers.containsKey(name.toLowerCase());
+			return null != find(lowerCase(name));
+		}
+
+		/**
+		 * Remove all the headers.
+		 *
+		 * @return {@literal this}
+		 */
+		public synchronized Headers clear() {
+			if (sealed) {
+				throw new UnsupportedOperationException("Headers are read-only.");
+			}
+			if (shared) {
+				entries = EMPTY;
+				shared = false;
+			} else {
+				// readers that have already read the size may see nulls, which they take as the end of the headers
+				Arrays.fill(entries, 0, size, null);
+			}
+			size = 0;
+			return this;
+		}
+
+		/**
+		 * Get the number of headers.
+		 *
+		 * @return The number of headers.
+		 */
+		public int size() {
+			return size / 2;
 		}
 
 		/**
-		 * Get these headers as a {@link Map}.
+		 * Get a snapshot of these headers as a {@link Map}, which won't change when they do.
 		 *
 		 * @return The headers as a map.
 		 */
 		public Map<String, String> asMap() {
-			return Collections.unmodifiableMap(headers);
+			int n = size;
+			String[] entries = this.entries;
+			Map<String, String> map = new LinkedHashMap<String, String>(n);
+			for (int i = 0; i < n && null != entries[i]; i += 2) {
+				map.put(entries[i], entries[i + 1]);
+			}
+			return Collections.unmodifiableMap(map);
+		}
+
+		/**
+		 * Get a copy of these headers that can be changed without changing these, and the other way round. The copy
+		 * shares its entries with these headers until either of them is changed.
+		 *
+		 * @return A copy of the headers.
+		 */
+		public synchronized Headers copy() {
+			shared = true;
+			return new Headers(false, entries, size);
 		}
 
 		/**
-		 * Get the headers as a read-only version. No other values can be added.
+		 * Get the headers as a read-only version. No other values can be added, and values set on these headers from now
+		 * on are not seen by it.
 		 *
 		 * @return A read-only version of the headers.
 		 */
-		public Headers readOnly() {
-			return new Headers(true, headers);
+		public synchronized Headers readOnly() {
+			if (sealed) {
+				return this;
+			}
+			shared = true;
+			return new Headers(true, entries, size);
 		}
 
 		@Override
 		public Iterator<Map.Entry<String, String>> iterator() {
-			return headers.entrySet().iterator();
+			final int n = size;
+			final String[] entries = this.entries;
+			return new Iterator<Map.Entry<String, String>>() {
+				int i = 0;
+
+				@Override
+				public boolean hasNext() {
+					return i < n && null != entries[i];
+				}
+
+				@Override
+				public Map.Entry<String, String> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					Map.Entry<String, String> entry = new AbstractMap.SimpleImmutableEntry<String, String>(entries[i], entries[i + 1]);
+					i += 2;
+					return entry;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return asMap().toString();
+		}
+
+		private String find(String name) {
+			// size is read before entries, so that the entries it counts are in the array that is read
+			int n = size;
+			String[] entries = this.entries;
+			for (int i = 0; i < n; i += 2) {
+				String s = entries[i];
+				if (null == s) {
+					// a header was removed since size was read
+					break;
+				}
+				if (s == name || s.equals(name)) {
+					return entries[i + 1];
+				}
+			}
+			return null;
+		}
+
+		/*
+		 * Must be called while synchronized on this. A header is appended by writing its name and value to the free slots
+		 * before size is bumped to take them in, so readers never see a name without its value.
+		 */
+		private void put(String name, String value) {
+			if (sealed) {
+				throw new UnsupportedOperationException("Headers are read-only.");
+			}
+			int n = size;
+			String[] entries = this.entries;
+			for (int i = 0; i < n; i += 2) {
+				String s = entries[i];
+				if (s == name || s.equals(name)) {
+					if (null == value) {
+						remove(i);
+					} else {
+						writable()[i + 1] = value;
+					}
+					return;
+				}
+			}
+			if (null == value) {
+				return;
+			}
+			if (shared || n == entries.length) {
+				entries = Arrays.copyOf(entries, (n == entries.length ? Math.max(INITIAL_HEADERS * 2, n * 2) : entries.length));
+				entries[n] = name;
+				entries[n + 1] = value;
+				this.entries = entries;
+				shared = false;
+			} else {
+				entries[n] = name;
+				entries[n + 1] = value;
+			}
+			size = n + 2;
+		}
+
+		private void remove(int i) {
+			// a reader may be going through the current array, so it is never shuffled in place
+			int n = size;
+			String[] entries = new String[this.entries.length];
+			System.arraycopy(this.entries, 0, entries, 0, i);
+			System.arraycopy(this.entries, i + 2, entries, i, n - i - 2);
+			this.entries = entries;
+			shared = false;
+			size = n - 2;
+		}
+
+		private String[] writable() {
+			if (shared) {
+				entries = entries.clone();
+				shared = false;
+			}
+			return entries;
+		}
+
+		private static String lowerCase(String name) {
+			for (int i = 0; i < name.length(); i++) {
+				if (Character.isUpperCase(name.charAt(i))) {
+					return name.toLowerCase();
+				}
+			}
+			return name;
 		}
 	}
 
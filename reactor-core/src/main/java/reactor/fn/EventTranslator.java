@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn;
+
+/**
+ * Implementations of this class write what is to be notified into an {@link Event} that is being reused, rather than
+ * creating a new {@link Event} for each notification.
+ *
+ * @param <T> The type of the data in the {@link Event}
+ * @param <A> The type of the argument the data is taken from
+ * @author Jon Brisbin
+ * @see Observable#notify(Object, EventTranslator, Object)
+ */
+public interface EventTranslator<T, A> {
+
+	/**
+	 * Fill in the given {@link Event}, which is empty, from the given argument.
+	 *
+	 * @param ev  The {@link Event} to fill in
+	 * @param arg The argument that was notified with
+	 */
+	void translate(Event<T> ev, A arg);
+
+}
@@ -16,6 +16,10 @@
 
 package reactor.fn;
 
+import reactor.fn.timer.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
 /**
  * Basic unit of event handling in Reactor.
  *
@@ -85,6 +89,32 @@ public interface Observable {
 	 */
 	<T, E extends Event<T>> Observable notify(Object key, E ev);
 
+	/**
+	 * Notify this component of an {@link Event} that the given {@link EventTranslator} fills in from the given argument.
+	 * The {@link Event} is one that the {@link reactor.fn.dispatch.Dispatcher} reuses, so that notifying creates no
+	 * garbage. Consumers must not hold on to it once they have returned. If the {@literal translator} throws an
+	 * exception, no {@link Consumer} is notified and the exception is passed on to the caller.
+	 *
+	 * @param key        The key to be matched by {@link Selector}s.
+	 * @param translator The {@link EventTranslator} that fills in the {@link Event}.
+	 * @param arg        The argument to pass to the {@literal translator}.
+	 * @param <T>        The type of the data in the {@link Event}.
+	 * @param <A>        The type of the argument.
+	 * @return {@literal this}
+	 */
+	<T, A> Observable notify(Object key, EventTranslator<T, A> translator, A arg);
+
+	/**
+	 * Notify this component that several {@link Event}s are ready to be processed. The events are dispatched in order, as
+	 * if {@link #notify(Object, Event)} had been called for each of them, but are handed to the dispatcher in batches.
+	 *
+	 * @param key    The key to be matched by {@link Selector}s.
+	 * @param events The {@literal Event}s.
+	 * @param <T>    The type of the data in the {@link Event}s.
+	 * @return {@literal this}
+	 */
+	<T, E extends Event<T>> Observable notifyBatch(Object key, Iterable<E> events);
+
 	/**
 	 * Notify this component that the given {@link Supplier} can provide an event that's ready to be processed.
 	 *
@@ -178,4 +208,28 @@ public interface Observable {
 	 */
 	Observable notify(Object key);
 
+	/**
+	 * Notify this component of the given {@link Event} once the given delay has passed.
+	 *
+	 * @param key   The key to be matched by {@link Selector Selectors}.
+	 * @param ev    The {@literal Event}.
+	 * @param delay How long to wait before notifying.
+	 * @param unit  The unit of the delay.
+	 * @param <T>   The type of the data in the {@link Event}.
+	 * @return A {@link Timeout} that can be used to cancel the notification.
+	 */
+	<T, E extends Event<T>> Timeout schedule(Object key, E ev, long delay, TimeUnit unit);
+
+	/**
+	 * Notify this component, every {@literal period} until cancelled, that the consumers registered with a {@link
+	 * Selector} that matches the {@code key} should be triggered. Each notification carries the time, in milliseconds, at
+	 * which it was made.
+	 *
+	 * @param key    The key to be matched by {@link Selector Selectors}.
+	 * @param period The time between notifications, the first of which is made one period from now.
+	 * @param unit   The unit of the period.
+	 * @return A {@link Timeout} that can be used to cancel the notifications.
+	 */
+	Timeout notifyEvery(Object key, long period, TimeUnit unit);
+
 }
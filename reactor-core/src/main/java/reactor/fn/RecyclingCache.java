@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Cache} that never blocks: {@link #allocate()} creates a new object when none is pooled and {@link
+ * #deallocate(Object)} lets an object go when the pool is full.
+ * <p/>
+ * Each thread keeps a small magazine of objects of its own, so most allocations and deallocations touch no shared
+ * state at all. When a thread's magazine runs empty it refills it with half a magazine from a shared, lock-free depot,
+ * and when the magazine fills up it hands half of it back. This means objects flow from the threads that release them
+ * to the threads that allocate them, as happens with the tasks of a {@link reactor.fn.dispatch.Dispatcher}, in batches
+ * rather than one at a time. The size of the magazines is set by the {@code reactor.cache.magazine.size} system
+ * property, which defaults to 32.
+ *
+ * @author Jon Brisbin
+ */
+public class RecyclingCache<T> implements Cache<T> {
+
+	private static final int DEFAULT_MAGAZINE_SIZE = Integer.parseInt(System.getProperty("reactor.cache.magazine.size", "32"));
+
+	private final AtomicLong hits      = new AtomicLong();
+	private final AtomicLong misses    = new AtomicLong();
+	private final AtomicLong overflows = new AtomicLong();
+
+	private final Supplier<T>           supplier;
+	private final Depot<T>              depot;
+	private final int                   magazineSize;
+	private final ThreadLocal<Magazine> magazines;
+
+	/**
+	 * Create a cache that pools up to {@code capacity} objects and is pre-filled with that many objects from the given
+	 * {@link Supplier}.
+	 *
+	 * @param supplier The supplier of new objects
+	 * @param capacity The number of objects to pool, not counting those in the threads' magazines
+	 */
+	public RecyclingCache(Supplier<T> supplier, int capacity) {
+		this(supplier, capacity, DEFAULT_MAGAZINE_SIZE);
+	}
+
+	/**
+	 * Create a cache that pools up to {@code capacity} objects and is pre-filled with that many objects from the given
+	 * {@link Supplier}.
+	 *
+	 * @param supplier     The supplier of new objects
+	 * @param capacity     The number of objects to pool, not counting those in the threads' magazines
+	 * @param magazineSize The number of objects each thread keeps to itself
+	 */
+	public RecyclingCache(Supplier<T> supplier, int capacity, int magazineSize) {
+		this.supplier = supplier;
+		this.depot = new Depot<T>(Math.max(1, capacity));
+		this.magazineSize = Math.max(2, magazineSize);
+		this.magazines = new ThreadLocal<Magazine>() {
+			@Override
+			protected Magazine initialValue() {
+				return new Magazine(RecyclingCache.this.magazineSize);
+			}
+		};
+
+		for (int i = 0; i < capacity; i++) {
+			depot.offer(supplier.get());
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T allocate() {
+		Magazine m = magazines.get();
+		if (m.size == 0) {
+			m.refill();
+			if (m.size == 0) {
+				misses.incrementAndGet();
+				return supplier.get();
+			}
+		}
+		m.hits++;
+		T obj = (T) m.objects[--m.size];
+		m.objects[m.size] = null;
+		return obj;
+	}
+
+	@Override
+	public void deallocate(T obj) {
+		Magazine m = magazines.get();
+		if (m.size == m.objects.length) {
+			m.spill();
+		}
+		m.objects[m.size++] = obj;
+	}
+
+	/**
+	 * The number of allocations that were served from the pool. Each thread adds its own count whenever it refills or
+	 * spills its magazine, so the total can lag behind by up to a magazine per thread.
+	 *
+	 * @return The number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * The number of allocations that found the pool empty and had to create a new object.
+	 *
+	 * @return The number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * The number of deallocated objects that were let go because the pool was full.
+	 *
+	 * @return The number of overflows
+	 */
+	public long getOverflows() {
+		return overflows.get();
+	}
+
+	private class Magazine {
+		final Object[] objects;
+		int  size;
+		long hits;
+
+		Magazine(int size) {
+			this.objects = new Object[size];
+		}
+
+		void refill() {
+			flushHits();
+			int want = objects.length / 2;
+			T obj;
+			while (size < want && null != (obj = depot.poll())) {
+				objects[size++] = obj;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void spill() {
+			flushHits();
+			int keep = objects.length / 2;
+			int dropped = 0;
+			while (size > keep) {
+				T obj = (T) objects[--size];
+				objects[size] = null;
+				if (!depot.offer(obj)) {
+					dropped++;
+				}
+			}
+			if (dropped > 0) {
+				overflows.addAndGet(dropped);
+			}
+		}
+
+		void flushHits() {
+			if (hits > 0) {
+				RecyclingCache.this.hits.addAndGet(hits);
+				hits = 0;
+			}
+		}
+	}
+
+	/**
+	 * A bounded, lock-free queue that any number of threads can offer to and poll from. Each slot carries a sequence
+	 * number that says whether it is waiting to be filled or to be emptied on the current lap of the ring.
+	 */
+	private static final class Depot<T> {
+		private final AtomicReferenceArray<T> slots;
+		private final AtomicLongArray         sequences;
+		private final int                     mask;
+		private final AtomicLong              head = new AtomicLong();
+		private final AtomicLong              tail = new AtomicLong();
+
+		Depot(int capacity) {
+			int size = 1;
+			while (size < capacity) {
+				size <<= 1;
+			}
+			this.slots = new AtomicReferenceArray<T>(size);
+			this.sequences = new AtomicLongArray(size);
+			this.mask = size - 1;
+			for (int i = 0; i < size; i++) {
+				sequences.set(i, i);
+			}
+		}
+
+		boolean offer(T obj) {
+			while (true) {
+				long pos = tail.get();
+				int idx = (int) (pos & mask);
+				long dif = sequences.get(idx) - pos;
+				if (dif == 0) {
+					if (tail.compareAndSet(pos, pos + 1)) {
+						slots.lazySet(idx, obj);
+						sequences.lazySet(idx, pos + 1);
+						return true;
+					}
+				} else if (dif < 0) {
+					return false;
+				}
+			}
+		}
+
+		T poll() {
+			while (true) {
+				long pos = head.get();
+				int idx = (int) (pos & mask);
+				long dif = sequences.get(idx) - (pos + 1);
+				if (dif == 0) {
+					if (head.compareAndSet(pos, pos + 1)) {
+						T obj = slots.get(idx);
+						slots.lazySet(idx, null);
+						sequences.lazySet(idx, pos + mask + 1);
+						return obj;
+					}
+				} else if (dif < 0) {
+					return null;
+				}
+			}
+		}
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package reactor.fn;
 
+import reactor.fn.support.ArgumentAdapter;
+
 /**
  * Implementations of this interface provide the ability to manage a {@link Selector} to {@link Consumer} registration.
  *
@@ -88,4 +90,12 @@ public interface Registration<T> {
 	 */
 	Registration<T> resume();
 
+	/**
+	 * Get the {@link ArgumentAdapter} worked out when the object was registered, if it is a {@link Consumer}, so that
+	 * what to pass it needn't be worked out again for every {@link Event}.
+	 *
+	 * @return The {@link ArgumentAdapter}, or {@literal null} if the registered object isn't a {@link Consumer}
+	 */
+	ArgumentAdapter getArgumentAdapter();
+
 }
@@ -21,12 +21,17 @@ import org.slf4j.LoggerFactory;
 import reactor.fn.Cache;
 import reactor.fn.ConsumerInvoker;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
-import reactor.fn.LoadingCache;
+import reactor.fn.RecyclingCache;
 import reactor.fn.Supplier;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
 import reactor.support.QueueFactory;
+import reactor.util.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -46,9 +51,16 @@ public class BlockingQueueDispatcher implements Dispatcher {
 	private final ThreadGroup     threadGroup = new ThreadGroup("reactor-dispatcher");
 	private final ConsumerInvoker invoker     = new ConverterAwareConsumerInvoker();
 
-	private final Cache<Task> readyTasks;
-	private final BlockingQueue<Task> taskQueue = QueueFactory.createQueue();
-	private final Thread taskExecutor;
+	private final int                 backlog;
+	private final WaitStrategy        waitStrategy;
+	private final OverflowPolicy      overflowPolicy;
+	private final Cache<Task>         readyTasks;
+	private final BlockingQueue<Task> taskQueue;
+	private final Thread              taskExecutor;
+
+	private volatile boolean accepting = true;
+	// set once shutdown has taken out what was left, for tasks that got past accepting and are queued too late
+	private volatile boolean closed;
 
 	/**
 	 * Creates a new {@literal BlockingQueueDispatcher} named 'blocking-queue' that will use the default backlog, as
@@ -60,21 +72,68 @@ public class BlockingQueueDispatcher implements Dispatcher {
 	}
 
 	/**
-	 * Creates a new {@literal BlockingQueueDispatcher} with the given {@literal name} and {@literal backlog}.
+	 * Creates a new {@literal BlockingQueueDispatcher} named 'blocking-queue' that will use the default backlog and the
+	 * given {@literal waitStrategy}.
+	 *
+	 * @param waitStrategy How the dispatcher's thread waits for tasks
+	 */
+	public BlockingQueueDispatcher(WaitStrategy waitStrategy) {
+		this("blocking-queue", DEFAULT_BACKLOG, waitStrategy);
+	}
+
+	/**
+	 * Creates a new {@literal BlockingQueueDispatcher} with the given {@literal name} and {@literal backlog} that blocks
+	 * while it waits for tasks.
 	 *
 	 * @param name    The name
 	 * @param backlog The backlog size
 	 */
 	public BlockingQueueDispatcher(String name, int backlog) {
-		this.readyTasks = new LoadingCache<Task>(
+		this(name, backlog, StandardWaitStrategy.BLOCKING);
+	}
+
+	/**
+	 * Creates a new {@literal BlockingQueueDispatcher} with the given {@literal name}, {@literal backlog} and {@literal
+	 * waitStrategy}.
+	 *
+	 * @param name         The name
+	 * @param backlog      The backlog size
+	 * @param waitStrategy How the dispatcher's thread waits for tasks
+	 */
+	public BlockingQueueDispatcher(String name, int backlog, WaitStrategy waitStrategy) {
+		this(name, backlog, waitStrategy, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Creates a new {@literal BlockingQueueDispatcher} whose queue holds no more than {@literal capacity} tasks. When the
+	 * queue is full, the {@literal overflowPolicy} decides what happens to the next task that is submitted.
+	 *
+	 * @param name           The name
+	 * @param backlog        The backlog size
+	 * @param waitStrategy   How the dispatcher's thread waits for tasks
+	 * @param capacity       The number of tasks the queue can hold, {@link Integer#MAX_VALUE} meaning no limit
+	 * @param overflowPolicy What to do with a task when the queue is full
+	 */
+	public BlockingQueueDispatcher(String name,
+																 int backlog,
+																 WaitStrategy waitStrategy,
+																 int capacity,
+																 OverflowPolicy overflowPolicy) {
+		Assert.notNull(waitStrategy, "WaitStrategy cannot be null.");
+		Assert.notNull(overflowPolicy, "OverflowPolicy cannot be null.");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero.");
+		this.backlog = backlog;
+		this.waitStrategy = waitStrategy;
+		this.overflowPolicy = overflowPolicy;
+		this.taskQueue = (capacity == Integer.MAX_VALUE ? QueueFactory.<Task>createQueue() : new LinkedBlockingQueue<Task>(capacity));
+		this.readyTasks = new RecyclingCache<Task>(
 				new Supplier<Task>() {
 					@Override
 					public Task get() {
 						return new BlockingQueueTask();
 					}
 				},
-				backlog,
-				200l
+				backlog
 		);
 		String threadName = name + "-dispatcher-" + INSTANCE_COUNT.incrementAndGet();
 
@@ -86,16 +145,116 @@ public class BlockingQueueDispatcher implements Dispatcher {
 	@Override
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	public <T> Task<T> nextTask() {
-		Task t = readyTasks.allocate();
-		return (null != t ? t : new BlockingQueueTask());
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		// tasks beyond what the pool holds would only be created fresh and then let go
+		int max = Math.min(size, backlog);
+		List<Task<T>> tasks = new ArrayList<Task<T>>(max);
+		for (int i = 0; i < max; i++) {
+			tasks.add(this.<T>nextTask());
+		}
+		return new TaskBatch<T>(tasks) {
+			@Override
+			public void submit() {
+				if (!accepting) {
+					throw new RejectedExecutionException("Dispatcher has been shut down.");
+				}
+				if (taskQueue.remainingCapacity() == Integer.MAX_VALUE) {
+					taskQueue.addAll(getTasks());
+					boolean rejected = false;
+					for (Task<T> t : getTasks()) {
+						rejected |= takeBackIfClosed(t);
+					}
+					if (rejected) {
+						throw new RejectedExecutionException("Dispatcher has been shut down.");
+					}
+				} else {
+					// a bounded queue may not have room for them all, so each goes through the overflow policy on its own
+					for (Task<T> t : getTasks()) {
+						t.submit();
+					}
+				}
+			}
+		};
+	}
+
+	@Override
+	public long remainingCapacity() {
+		int remaining = taskQueue.remainingCapacity();
+		return (remaining == Integer.MAX_VALUE ? Long.MAX_VALUE : remaining);
 	}
 
 	private class BlockingQueueTask<T> extends Task<T> {
 
 		@Override
 		public void submit() {
-			taskQueue.add(this);
+			if (!accepting) {
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+			if (!taskQueue.offer(this) && !overflowPolicy.offer(taskQueue, this, readyTasks)) {
+				try {
+					overflowPolicy.reject(this, invoker);
+				} finally {
+					reset();
+					readyTasks.deallocate(this);
+				}
+				return;
+			}
+			if (takeBackIfClosed(this)) {
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+		}
+	}
+
+	/**
+	 * A task that was queued after shutdown took out what was left would never be executed, nor counted as abandoned, so
+	 * it is taken back out to be rejected. If shutdown got to it first, it has been counted.
+	 */
+	private boolean takeBackIfClosed(Task t) {
+		if (closed && taskQueue.remove(t)) {
+			t.reset();
+			readyTasks.deallocate(t);
+			return true;
 		}
+		return false;
+	}
+
+	/**
+	 * The backlog is executed in order, by the dispatcher's own thread.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		accepting = false;
+		int queued = taskQueue.size();
+
+		boolean drained = false;
+		DrainMarker marker = new DrainMarker();
+		try {
+			drained = taskQueue.offer(marker, timeout, unit) && marker.await(deadline - System.nanoTime());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// take out what is left before interrupting the thread, which would otherwise run through it. Even once the marker
+		// has been executed, there may be tasks that got past accepting in time but were queued behind it.
+		closed = true;
+		long abandoned = 0;
+		List<Task> left = new ArrayList<Task>();
+		taskQueue.drainTo(left);
+		for (Task t : left) {
+			if (t != marker) {
+				abandoned++;
+				t.reset();
+				readyTasks.deallocate(t);
+			}
+		}
+		taskExecutor.interrupt();
+		// if the marker was executed, so was everything queued when the shutdown began
+		return new ShutdownReport(drained ? queued : Math.max(0, queued - abandoned), abandoned, drained && abandoned == 0);
 	}
 
 	@Override
@@ -125,13 +284,11 @@ public class BlockingQueueDispatcher implements Dispatcher {
 		@SuppressWarnings("rawtypes")
 		@Override
 		public void run() {
-			Task t = null;
 			while (true) {
+				Task t = null;
 				try {
-					t = taskQueue.poll(200, TimeUnit.MILLISECONDS);
-					if (null != t) {
-						t.execute(invoker);
-					}
+					t = waitStrategy.waitFor(taskQueue);
+					t.execute(invoker);
 				} catch (InterruptedException e) {
 					Thread.currentThread().interrupt();
 					break;
@@ -141,7 +298,7 @@ public class BlockingQueueDispatcher implements Dispatcher {
 						log.error(e.getMessage(), e);
 					}
 				} finally {
-					if (null != t) {
+					if (null != t && !(t instanceof DrainMarker)) {
 						t.reset();
 						readyTasks.deallocate(t);
 					}
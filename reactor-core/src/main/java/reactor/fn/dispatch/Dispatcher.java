@@ -18,6 +18,8 @@ package reactor.fn.dispatch;
 
 import reactor.fn.Lifecycle;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Implementations of this interface provide a {@link Task} holder which the called can fill in with the details of the
  * task execution it desires to have scheduled. Calling {@link reactor.fn.dispatch.Task#submit()} will cause the task to
@@ -34,4 +36,35 @@ public interface Dispatcher extends Lifecycle<Dispatcher> {
 	 * @return A {@link Task} object, probably when a pool, used to hold the various parts of a dispatch event.
 	 */
 	<T> Task<T> nextTask();
+
+	/**
+	 * Return to the caller a {@link TaskBatch} of up to {@code size} {@link Task}s that are submitted together. A batch
+	 * may hold fewer tasks than were asked for, but always holds at least one, so callers should keep asking until all
+	 * their events have been placed.
+	 *
+	 * @param size The maximum number of tasks to claim.
+	 * @return A {@link TaskBatch} holding between one and {@code size} tasks.
+	 */
+	<T> TaskBatch<T> nextTasks(int size);
+
+	/**
+	 * Return the number of tasks that can be submitted before this dispatcher's {@link OverflowPolicy} kicks in, so that
+	 * publishers can shed load while there is still room. This is only a snapshot, as other threads may be submitting
+	 * tasks at the same time.
+	 *
+	 * @return The number of tasks there is room for, or {@link Long#MAX_VALUE} if there is no limit.
+	 */
+	long remainingCapacity();
+
+	/**
+	 * Stop accepting tasks and wait for those already queued to be executed, for no longer than the given timeout, before
+	 * stopping. Dispatchers that don't need to keep tasks in order execute the backlog with all their threads. Tasks
+	 * submitted once the shutdown has begun are rejected with a {@link java.util.concurrent.RejectedExecutionException}
+	 * and tasks that are still queued when the timeout runs out are discarded.
+	 *
+	 * @param timeout How long to wait for the backlog to be executed
+	 * @param unit    The unit of the timeout
+	 * @return A {@link ShutdownReport} of how many tasks were executed and how many abandoned
+	 */
+	ShutdownReport shutdown(long timeout, TimeUnit unit);
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import reactor.fn.Event;
+
+/**
+ * Passed to the error {@link reactor.fn.Consumer} of a {@link Task} that was rejected because its {@link Dispatcher}
+ * had no room for it, either straight away or, with an {@link OverflowPolicy#block(long,
+ * java.util.concurrent.TimeUnit) OverflowPolicy.block}, once the policy's timeout ran out.
+ *
+ * @author Jon Brisbin
+ */
+public class DispatcherOverflowException extends RuntimeException {
+
+	private static final long serialVersionUID = -3851201764102939722L;
+
+	private final transient Object   key;
+	private final transient Event<?> event;
+
+	public DispatcherOverflowException(String message, Object key, Event<?> event) {
+		super(message);
+		this.key = key;
+		this.event = event;
+	}
+
+	/**
+	 * Get the key the rejected {@link Task} was notified with.
+	 *
+	 * @return The key
+	 */
+	public Object getKey() {
+		return key;
+	}
+
+	/**
+	 * Get the {@link Event} of the rejected {@link Task}.
+	 *
+	 * @return The event
+	 */
+	public Event<?> getEvent() {
+		return event;
+	}
+
+}
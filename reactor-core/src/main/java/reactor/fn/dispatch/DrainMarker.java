@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import reactor.fn.ConsumerInvoker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queued behind every other task by a dispatcher that is shutting down and executes its tasks in order, so that once
+ * the marker has been executed, so has everything that was queued before it. It must never be recycled.
+ *
+ * @author Jon Brisbin
+ */
+final class DrainMarker extends Task<Object> {
+
+	private final CountDownLatch executed = new CountDownLatch(1);
+
+	@Override
+	public void submit() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	protected void execute(ConsumerInvoker invoker) {
+		executed.countDown();
+	}
+
+	/**
+	 * Wait for the marker to be executed.
+	 *
+	 * @param nanos How long to wait
+	 * @return {@literal true} if it was executed in time
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean await(long nanos) throws InterruptedException {
+		return executed.await(nanos, TimeUnit.NANOSECONDS);
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import reactor.fn.Event;
+import reactor.fn.Tuple2;
+
+import java.io.IOException;
+
+/**
+ * Turns the key and {@link Event} of a {@link Task} into bytes and back again, so that a {@link SpillingDispatcher} can
+ * keep them on disk while it has no room for them in memory.
+ *
+ * @author Jon Brisbin
+ */
+public interface EventSerializer {
+
+	/**
+	 * Serialize a key and the {@link Event} that was notified with it.
+	 *
+	 * @param key   The key
+	 * @param event The event
+	 * @return The bytes to write
+	 * @throws IOException if the key or the event can't be serialized
+	 */
+	byte[] serialize(Object key, Event<?> event) throws IOException;
+
+	/**
+	 * Read back a key and {@link Event} written by {@link #serialize(Object, Event)}.
+	 *
+	 * @param bytes The bytes that were written
+	 * @return The key and the event
+	 * @throws IOException if the bytes can't be read
+	 */
+	Tuple2<Object, Event<?>> deserialize(byte[] bytes) throws IOException;
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import jsr166y.ForkJoinPool;
+import jsr166y.ForkJoinTask;
+import jsr166y.ForkJoinWorkerThread;
+import jsr166y.RecursiveAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Cache;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.RecyclingCache;
+import reactor.fn.Supplier;
+import reactor.fn.support.ConverterAwareConsumerInvoker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Dispatcher} that executes {@link Task Tasks} on a work-stealing {@link ForkJoinPool}. A task submitted from
+ * one of the pool's own threads, by a consumer that notifies another {@link reactor.core.Reactor} for example, is pushed
+ * onto that thread's own deque rather than onto a queue shared by the whole pool, and idle threads steal work from the
+ * deques of busy ones. This keeps the chains of notifications that {@link reactor.core.Composable Composables} produce
+ * off the shared queue. Tasks submitted from other threads go to the pool's submission queue.
+ * <p/>
+ * The pool runs in async mode, so each thread executes the tasks it pushes in the order it pushed them.
+ *
+ * @author Jon Brisbin
+ */
+@SuppressWarnings("rawtypes")
+public class ForkJoinDispatcher implements Dispatcher {
+
+	private static final int           DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static final int           DEFAULT_BACKLOG     = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+	private static final AtomicInteger INSTANCE_COUNT      = new AtomicInteger();
+
+	private final ConsumerInvoker invoker = new ConverterAwareConsumerInvoker();
+	private final int             backlog;
+	private final Cache<Task>     readyTasks;
+	private final ForkJoinPool    pool;
+
+	/**
+	 * Creates a new {@literal ForkJoinDispatcher} named 'fork-join' with as many threads as there are processors and the
+	 * backlog configured by the {@code reactor.dispatcher.backlog} system property, or 256 if it isn't set.
+	 */
+	public ForkJoinDispatcher() {
+		this("fork-join", DEFAULT_PARALLELISM, DEFAULT_BACKLOG);
+	}
+
+	/**
+	 * Creates a new {@literal ForkJoinDispatcher}.
+	 *
+	 * @param name        The name, used as a prefix for the names of its threads
+	 * @param parallelism The number of threads
+	 * @param backlog     The number of tasks to pool
+	 */
+	public ForkJoinDispatcher(String name, int parallelism, int backlog) {
+		this.backlog = backlog;
+		this.readyTasks = new RecyclingCache<Task>(
+				new Supplier<Task>() {
+					@Override
+					public Task get() {
+						return new ForkJoinDispatcherTask();
+					}
+				},
+				backlog
+		);
+
+		final String prefix = name + "-dispatcher-" + INSTANCE_COUNT.incrementAndGet() + "-";
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.pool = new ForkJoinPool(
+				parallelism,
+				new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+					@Override
+					public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+						ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+						t.setName(prefix + threadCount.incrementAndGet());
+						return t;
+					}
+				},
+				null,
+				true
+		);
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked"})
+	public <T> Task<T> nextTask() {
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	/**
+	 * The pool's queues grow as needed, so there is no limit to the number of tasks that can be submitted.
+	 */
+	@Override
+	public long remainingCapacity() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public ForkJoinDispatcher destroy() {
+		pool.shutdownNow();
+		return this;
+	}
+
+	@Override
+	public ForkJoinDispatcher stop() {
+		pool.shutdown();
+		return this;
+	}
+
+	/**
+	 * The backlog is executed by all the threads of the pool, each stealing from the others as usual.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long queued = queued();
+		pool.shutdown();
+
+		boolean terminated = false;
+		try {
+			terminated = pool.awaitTermination(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		long abandoned = 0;
+		if (!terminated) {
+			abandoned = queued();
+			pool.shutdownNow();
+		}
+		return new ShutdownReport(Math.max(0, queued - abandoned), abandoned, terminated);
+	}
+
+	private long queued() {
+		return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount() + pool.getActiveThreadCount();
+	}
+
+	@Override
+	public ForkJoinDispatcher start() {
+		return this;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return !pool.isShutdown();
+	}
+
+	private class ForkJoinDispatcherTask<T> extends Task<T> {
+		@Override
+		public void submit() {
+			// this task is recycled before the pool is done with its ForkJoinTask, so each submission needs a new one
+			Execution e = new Execution(this);
+			if (ForkJoinTask.getPool() == pool) {
+				e.fork();
+			} else {
+				pool.execute(e);
+			}
+		}
+	}
+
+	private class Execution extends RecursiveAction {
+		private static final long serialVersionUID = -4035581367128543194L;
+
+		private final Task task;
+
+		private Execution(Task task) {
+			this.task = task;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				task.execute(invoker);
+			} catch (Throwable x) {
+				Logger log = LoggerFactory.getLogger(ForkJoinDispatcher.class);
+				if (log.isErrorEnabled()) {
+					log.error(x.getMessage(), x);
+				}
+			} finally {
+				task.reset();
+				readyTasks.deallocate(task);
+			}
+		}
+	}
+
+}
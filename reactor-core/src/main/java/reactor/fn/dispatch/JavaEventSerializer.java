@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import reactor.fn.Event;
+import reactor.fn.Tuple;
+import reactor.fn.Tuple2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * An {@link EventSerializer} that uses Java serialization, so the key, the data and the reply-to key of each {@link
+ * Event} have to be {@link java.io.Serializable}. The event's headers are kept but its id is not: an event that is read
+ * back has a new id.
+ *
+ * @author Jon Brisbin
+ */
+public class JavaEventSerializer implements EventSerializer {
+
+	@Override
+	public byte[] serialize(Object key, Event<?> event) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		try {
+			out.writeObject(key);
+			out.writeObject(event.getHeaders());
+			out.writeObject(event.getReplyTo());
+			out.writeObject(event.getData());
+		} finally {
+			out.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public Tuple2<Object, Event<?>> deserialize(byte[] bytes) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			Object key = in.readObject();
+			Event.Headers headers = (Event.Headers) in.readObject();
+			Object replyTo = in.readObject();
+			Event ev = new Event(headers, in.readObject());
+			if (null != replyTo) {
+				ev.setReplyTo(replyTo);
+			}
+			return Tuple.<Object, Event<?>>of(key, ev);
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer. Each slot carries a sequence number that tells
+ * producers when the slot is free and the consumer when it has been filled, so producers only contend with each other
+ * on the tail counter and never with the consumer.
+ *
+ * @author Jon Brisbin
+ */
+final class MpscRing<E> {
+
+	private final Object[]        buffer;
+	private final AtomicLongArray sequences;
+	private final int             mask;
+	private final AtomicLong      tail = new AtomicLong();
+	// only ever moved by the consumer, but read by size()
+	private final AtomicLong      head = new AtomicLong();
+
+	MpscRing(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Add an element to the tail of the ring. May be called from any thread.
+	 *
+	 * @param e The element to add
+	 * @return {@literal false} if the ring is full
+	 */
+	boolean offer(E e) {
+		long pos;
+		int idx;
+		while (true) {
+			pos = tail.get();
+			idx = (int) (pos & mask);
+			long dif = sequences.get(idx) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+			} else if (dif < 0) {
+				return false;
+			}
+		}
+		buffer[idx] = e;
+		sequences.lazySet(idx, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Remove the element at the head of the ring. Must only be called from the consumer thread.
+	 *
+	 * @return The element, or {@literal null} if the ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	E poll() {
+		long pos = head.get();
+		int idx = (int) (pos & mask);
+		if (sequences.get(idx) != pos + 1) {
+			return null;
+		}
+		E e = (E) buffer[idx];
+		buffer[idx] = null;
+		sequences.lazySet(idx, pos + mask + 1);
+		head.lazySet(pos + 1);
+		return e;
+	}
+
+	/**
+	 * Whether the ring has no elements to poll. Must only be called from the consumer thread.
+	 *
+	 * @return {@literal true} if the ring is empty
+	 */
+	boolean isEmpty() {
+		long pos = head.get();
+		return sequences.get((int) (pos & mask)) != pos + 1;
+	}
+
+	/**
+	 * The number of elements in the ring, counting those still being added. May be called from any thread, but is only a
+	 * snapshot.
+	 *
+	 * @return The number of elements
+	 */
+	int size() {
+		long h = head.get();
+		return (int) Math.max(0, Math.min(tail.get() - h, buffer.length));
+	}
+
+	/**
+	 * The number of elements the ring can hold, which is the requested capacity rounded up to a power of two.
+	 *
+	 * @return The capacity
+	 */
+	int capacity() {
+		return buffer.length;
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Cache;
+import reactor.fn.Consumer;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.Event;
+import reactor.util.Assert;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link Dispatcher} does with a {@link Task} when it has no room left to queue it:
+ * <ul>
+ * <li>{@link #BLOCK} waits for room, for as long as it takes or, with {@link #block(long, TimeUnit)}, for no longer
+ * than a timeout after which the task is rejected as with {@link #SIGNAL_ERROR}</li>
+ * <li>{@link #DROP_NEWEST} drops the task that didn't fit</li>
+ * <li>{@link #DROP_OLDEST} drops the task that has been queued the longest to make room, if the dispatcher's queue
+ * allows it</li>
+ * <li>{@link #CALLER_RUNS} executes the task on the thread that submitted it</li>
+ * <li>{@link #SIGNAL_ERROR} drops the task and passes a {@link DispatcherOverflowException} to the task's error
+ * {@link Consumer}, which for a {@link reactor.core.Reactor} notifies the exception's type. If that notification
+ * doesn't fit either, it is executed on the thread that submitted the task.</li>
+ * </ul>
+ * Publishers that would rather shed load before any of these kicks in can check {@link Dispatcher#remainingCapacity()}.
+ *
+ * @author Jon Brisbin
+ */
+public final class OverflowPolicy {
+
+	public enum Action {
+		BLOCK, DROP_NEWEST, DROP_OLDEST, CALLER_RUNS, SIGNAL_ERROR
+	}
+
+	public static final OverflowPolicy BLOCK        = new OverflowPolicy(Action.BLOCK, Long.MAX_VALUE);
+	public static final OverflowPolicy DROP_NEWEST  = new OverflowPolicy(Action.DROP_NEWEST, 0);
+	public static final OverflowPolicy DROP_OLDEST  = new OverflowPolicy(Action.DROP_OLDEST, 0);
+	public static final OverflowPolicy CALLER_RUNS  = new OverflowPolicy(Action.CALLER_RUNS, 0);
+	public static final OverflowPolicy SIGNAL_ERROR = new OverflowPolicy(Action.SIGNAL_ERROR, 0);
+
+	// a Reactor signals errors by notifying them through the same dispatcher, which may well overflow again
+	private static final ThreadLocal<Boolean> SIGNALLING = new ThreadLocal<Boolean>();
+
+	private final Action action;
+	private final long   timeoutNanos;
+
+	private OverflowPolicy(Action action, long timeoutNanos) {
+		this.action = action;
+		this.timeoutNanos = timeoutNanos;
+	}
+
+	/**
+	 * Create a policy that waits for room for no longer than the given timeout, after which the task is rejected with a
+	 * {@link DispatcherOverflowException}.
+	 *
+	 * @param timeout How long to wait
+	 * @param unit    The unit of the timeout
+	 * @return The policy
+	 */
+	public static OverflowPolicy block(long timeout, TimeUnit unit) {
+		Assert.isTrue(timeout >= 0, "Timeout cannot be negative.");
+		return new OverflowPolicy(Action.BLOCK, unit.toNanos(timeout));
+	}
+
+	public Action getAction() {
+		return action;
+	}
+
+	/**
+	 * Get how long a {@link Action#BLOCK BLOCK} policy waits for room, {@link Long#MAX_VALUE} meaning forever.
+	 *
+	 * @return The timeout, in nanoseconds
+	 */
+	public long getTimeoutNanos() {
+		return timeoutNanos;
+	}
+
+	@Override
+	public String toString() {
+		return (action == Action.BLOCK && timeoutNanos != Long.MAX_VALUE ? action + "(" + timeoutNanos + "ns)" : action.toString());
+	}
+
+	/**
+	 * Try again to queue a task that {@link BlockingQueue#offer(Object)} refused, waiting for room or dropping the oldest
+	 * task as this policy says.
+	 *
+	 * @param queue The queue that is full
+	 * @param task  The task to queue, which must be of the queue's element type
+	 * @param tasks Where to return the tasks that are dropped from the head of the queue
+	 * @return {@literal false} if the task still didn't fit, and so should be passed to {@link #reject}
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	boolean offer(BlockingQueue queue, Task task, Cache tasks) {
+		switch (action) {
+			case BLOCK:
+				try {
+					return queue.offer(task, timeoutNanos, TimeUnit.NANOSECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			case DROP_OLDEST:
+				while (!queue.offer(task)) {
+					Task oldest = (Task) queue.poll();
+					if (null != oldest) {
+						oldest.reset();
+						tasks.deallocate(oldest);
+					}
+				}
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Deal with a task that there is no room for: drop it, execute it on the calling thread or pass a {@link
+	 * DispatcherOverflowException} to its error {@link Consumer}. The task is not recycled.
+	 *
+	 * @param task    The task
+	 * @param invoker The invoker to execute the task with if this policy is {@link #CALLER_RUNS}
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void reject(Task task, ConsumerInvoker invoker) {
+		switch (action) {
+			case DROP_NEWEST:
+			case DROP_OLDEST:
+				break;
+			case CALLER_RUNS:
+				task.execute(invoker);
+				break;
+			default:
+				if (null != SIGNALLING.get()) {
+					// this is the notification of an earlier overflow, for which there is no more room than there was for the
+					// task that overflowed, so it is delivered on this thread rather than lost
+					task.execute(invoker);
+					break;
+				}
+				Event<?> ev = task.getEvent();
+				if (ev instanceof RecyclableEvent) {
+					// the task's own event is cleared, and maybe reused, before an error consumer gets round to reading it
+					ev = ((RecyclableEvent<?>) ev).detach();
+				}
+				DispatcherOverflowException ex = new DispatcherOverflowException(
+						"No room to dispatch an event for key " + task.getKey() + " (" + this + ")",
+						task.getKey(),
+						ev
+				);
+				Consumer<Throwable> errorConsumer = task.getErrorConsumer();
+				if (null != errorConsumer) {
+					SIGNALLING.set(Boolean.TRUE);
+					try {
+						errorConsumer.accept(ex);
+					} finally {
+						SIGNALLING.remove();
+					}
+				} else {
+					Logger log = LoggerFactory.getLogger(OverflowPolicy.class);
+					if (log.isErrorEnabled()) {
+						log.error(ex.getMessage(), ex);
+					}
+				}
+		}
+	}
+
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Cache;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.Selector;
+import reactor.fn.RecyclingCache;
+import reactor.fn.Supplier;
+import reactor.fn.support.ConverterAwareConsumerInvoker;
+import reactor.util.Assert;
+
+import javax.annotation.Nullable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Dispatcher} that hashes the key of each {@link Task} onto one of a fixed number of lanes, each of which is
+ * drained by its own thread. Tasks with the same key always land in the same lane, so they are executed in the order
+ * they were submitted, while tasks with different keys are spread over all the lanes.
+ * <p/>
+ * Each lane queues its tasks in a lock-free ring that many threads can submit to. A {@link Selector} can be given to
+ * pick out the keys that don't need to be kept in order: their tasks are handed out to the lanes in turn and a lane
+ * that runs out of work of its own steals them from the others.
+ *
+ * @author Jon Brisbin
+ */
+@SuppressWarnings("rawtypes")
+public class PartitionedDispatcher implements Dispatcher {
+
+	private static final int           DEFAULT_LANES   = Integer.parseInt(System.getProperty("reactor.dispatcher.lanes", String.valueOf(Runtime.getRuntime().availableProcessors())));
+	private static final int           DEFAULT_BACKLOG = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+	private static final long          IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final int           IDLE_SPINS      = 100;
+	private static final AtomicInteger INSTANCE_COUNT  = new AtomicInteger();
+
+	private final ConsumerInvoker invoker      = new ConverterAwareConsumerInvoker();
+	private final AtomicInteger   nextUnkeyed  = new AtomicInteger();
+	private final int             backlog;
+	private final Cache<Task>     readyTasks;
+	private final Lane[]          lanes;
+	private final CountDownLatch  exited;
+	private final Selector        unorderedKeys;
+	private final OverflowPolicy  overflowPolicy;
+
+	private volatile boolean alive;
+	private volatile boolean accepting = true;
+
+	/**
+	 * Creates a new {@literal PartitionedDispatcher} named 'partitioned'. The number of lanes is determined by the {@code
+	 * reactor.dispatcher.lanes} system property, which defaults to the number of available processors, and the backlog
+	 * of each lane by the {@code reactor.dispatcher.backlog} system property, which defaults to 256. Every key is kept in
+	 * order.
+	 */
+	public PartitionedDispatcher() {
+		this("partitioned", DEFAULT_LANES, DEFAULT_BACKLOG, null);
+	}
+
+	/**
+	 * Creates a new {@literal PartitionedDispatcher} that keeps every key in order.
+	 *
+	 * @param name    The name
+	 * @param lanes   The number of lanes, and so of threads
+	 * @param backlog The number of tasks each lane can hold
+	 */
+	public PartitionedDispatcher(String name, int lanes, int backlog) {
+		this(name, lanes, backlog, null);
+	}
+
+	/**
+	 * Creates a new {@literal PartitionedDispatcher}.
+	 *
+	 * @param name          The name
+	 * @param lanes         The number of lanes, and so of threads
+	 * @param backlog       The number of tasks each lane can hold
+	 * @param unorderedKeys Matches the keys whose tasks can be executed in any order, by any lane. May be {@literal
+	 *                      null}, in which case every key is kept in order.
+	 */
+	public PartitionedDispatcher(String name, int lanes, int backlog, @Nullable Selector unorderedKeys) {
+		this(name, lanes, backlog, unorderedKeys, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Creates a new {@literal PartitionedDispatcher} whose {@literal overflowPolicy} decides what happens to a task that
+	 * is submitted to a lane whose ring is full. A lane that submits to itself never waits or rejects: it keeps what
+	 * doesn't fit to one side. The rings only take tasks at their tail, so {@link OverflowPolicy#DROP_OLDEST} is not
+	 * supported.
+	 *
+	 * @param name           The name
+	 * @param lanes          The number of lanes, and so of threads
+	 * @param backlog        The number of tasks each lane can hold
+	 * @param unorderedKeys  Matches the keys whose tasks can be executed in any order, by any lane. May be {@literal
+	 *                       null}, in which case every key is kept in order.
+	 * @param overflowPolicy What to do with a task when its lane is full
+	 */
+	public PartitionedDispatcher(String name,
+															 int lanes,
+															 int backlog,
+															 @Nullable Selector unorderedKeys,
+															 OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "OverflowPolicy cannot be null.");
+		Assert.isTrue(overflowPolicy.getAction() != OverflowPolicy.Action.DROP_OLDEST,
+									"A PartitionedDispatcher cannot drop the oldest task.");
+		this.backlog = backlog;
+		this.unorderedKeys = unorderedKeys;
+		this.overflowPolicy = overflowPolicy;
+		this.readyTasks = new RecyclingCache<Task>(
+				new Supplier<Task>() {
+					@Override
+					public Task get() {
+						return new PartitionedTask();
+					}
+				},
+				backlog
+		);
+
+		int instance = INSTANCE_COUNT.incrementAndGet();
+		this.lanes = new Lane[Math.max(1, lanes)];
+		for (int i = 0; i < this.lanes.length; i++) {
+			this.lanes[i] = new Lane(name + "-dispatcher-" + instance + "-lane-" + i, backlog);
+		}
+		this.exited = new CountDownLatch(this.lanes.length);
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked"})
+	public <T> Task<T> nextTask() {
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	/**
+	 * The room left in the rings of all the lanes. Tasks whose keys are unordered are queued without limit and so aren't
+	 * counted.
+	 */
+	@Override
+	public long remainingCapacity() {
+		long remaining = 0;
+		for (Lane lane : lanes) {
+			remaining += lane.ordered.capacity() - lane.ordered.size();
+		}
+		return remaining;
+	}
+
+	/**
+	 * Every lane executes what is left of its own backlog, and those whose keys are unordered are shared out between
+	 * them as usual.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		accepting = false;
+		long queued = queued();
+		for (Lane lane : lanes) {
+			LockSupport.unpark(lane.thread);
+		}
+
+		boolean drained = false;
+		try {
+			drained = exited.await(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		stop();
+
+		// the tasks left are let go along with the lanes, only the threads that own them may take them out
+		long abandoned = (drained ? 0 : queued());
+		return new ShutdownReport(Math.max(0, queued - abandoned), abandoned, drained);
+	}
+
+	private long queued() {
+		long queued = 0;
+		for (Lane lane : lanes) {
+			queued += lane.ordered.size() + lane.overflow.size() + lane.unordered.size();
+		}
+		return queued;
+	}
+
+	@Override
+	public PartitionedDispatcher destroy() {
+		return stop();
+	}
+
+	@Override
+	public PartitionedDispatcher stop() {
+		alive = false;
+		for (Lane lane : lanes) {
+			LockSupport.unpark(lane.thread);
+		}
+		return this;
+	}
+
+	@Override
+	public PartitionedDispatcher start() {
+		alive = true;
+		for (Lane lane : lanes) {
+			lane.thread.start();
+		}
+		return this;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return alive;
+	}
+
+	private void dispatch(Task t) {
+		if (!accepting) {
+			throw new RejectedExecutionException("Dispatcher has been shut down.");
+		}
+		Object key = t.getKey();
+		if (null != unorderedKeys && unorderedKeys.matches(key)) {
+			Lane lane = lanes[(nextUnkeyed.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+			lane.unordered.add(t);
+			if (!lane.wake()) {
+				// the lane is busy, so let one that isn't steal the task
+				for (Lane l : lanes) {
+					if (l.wake()) {
+						break;
+					}
+				}
+			}
+			return;
+		}
+
+		int h = (null != key ? key.hashCode() : 0);
+		h ^= (h >>> 16);
+		lanes[(h & Integer.MAX_VALUE) % lanes.length].add(t);
+	}
+
+	private class PartitionedTask<T> extends Task<T> {
+		@Override
+		public void submit() {
+			dispatch(this);
+		}
+	}
+
+	private class Lane implements Runnable {
+		final MpscRing<Task>             ordered;
+		final ConcurrentLinkedQueue<Task> unordered = new ConcurrentLinkedQueue<Task>();
+		// tasks this lane submitted to itself while its ring was full, only ever added to and taken from by the lane's own
+		// thread, but concurrent so that shutdown can count them
+		final Queue<Task>                overflow  = new ConcurrentLinkedQueue<Task>();
+		final Thread                     thread;
+		volatile boolean sleeping;
+
+		Lane(String name, int backlog) {
+			this.ordered = new MpscRing<Task>(backlog);
+			this.thread = new Thread(this, name);
+			this.thread.setDaemon(true);
+		}
+
+		void add(Task t) {
+			if (Thread.currentThread() == thread) {
+				// waiting for room would deadlock, and the overflow has to be kept behind anything already in it
+				if (!overflow.isEmpty() || !ordered.offer(t)) {
+					overflow.add(t);
+				}
+				return;
+			}
+			if (!ordered.offer(t)) {
+				long timeout = (overflowPolicy.getAction() == OverflowPolicy.Action.BLOCK ? overflowPolicy.getTimeoutNanos() : 0);
+				long deadline = System.nanoTime() + timeout;
+				while (!ordered.offer(t)) {
+					if (!alive) {
+						// the lane will never make room for it
+						t.reset();
+						readyTasks.deallocate(t);
+						throw new RejectedExecutionException("Dispatcher has been shut down.");
+					}
+					if (timeout != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+						try {
+							overflowPolicy.reject(t, invoker);
+						} finally {
+							t.reset();
+							readyTasks.deallocate(t);
+						}
+						return;
+					}
+					Thread.yield();
+				}
+			}
+			wake();
+		}
+
+		boolean wake() {
+			if (sleeping) {
+				LockSupport.unpark(thread);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void run() {
+			try {
+				drain();
+			} finally {
+				exited.countDown();
+			}
+		}
+
+		private void drain() {
+			int idle = 0;
+			while (alive) {
+				Task t = next();
+				if (null == t) {
+					if (!accepting) {
+						// shutting down, and nothing is left that this lane could take
+						return;
+					}
+					if (++idle < IDLE_SPINS) {
+						Thread.yield();
+						continue;
+					}
+					sleeping = true;
+					if (!hasWork()) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					}
+					sleeping = false;
+					idle = 0;
+					continue;
+				}
+				idle = 0;
+
+				try {
+					t.execute(invoker);
+				} catch (Throwable x) {
+					Logger log = LoggerFactory.getLogger(PartitionedDispatcher.class);
+					if (log.isErrorEnabled()) {
+						log.error(x.getMessage(), x);
+					}
+				} finally {
+					t.reset();
+					readyTasks.deallocate(t);
+				}
+			}
+		}
+
+		private Task next() {
+			Task t = ordered.poll();
+			if (null == t) {
+				t = overflow.poll();
+			}
+			if (null == t) {
+				t = unordered.poll();
+			}
+			if (null == t && null != unorderedKeys) {
+				for (Lane other : lanes) {
+					if (other != this && null != (t = other.unordered.poll())) {
+						break;
+					}
+				}
+			}
+			return t;
+		}
+
+		private boolean hasWork() {
+			if (!ordered.isEmpty() || !overflow.isEmpty() || !unordered.isEmpty()) {
+				return true;
+			}
+			if (null != unorderedKeys) {
+				for (Lane other : lanes) {
+					if (!other.unordered.isEmpty()) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+}
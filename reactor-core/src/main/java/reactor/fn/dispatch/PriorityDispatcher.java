@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Cache;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.Event;
+import reactor.fn.RecyclingCache;
+import reactor.fn.Selector;
+import reactor.fn.Supplier;
+import reactor.fn.Taggable;
+import reactor.fn.support.ConverterAwareConsumerInvoker;
+import reactor.util.Assert;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single-threaded {@link Dispatcher} that queues tasks in several lanes, so that urgent tasks, such as control
+ * events, don't have to wait behind everything else that has been queued. Lane 0 is the most urgent.
+ * <p/>
+ * The dispatcher's thread takes tasks from the lanes by weighted round-robin: up to as many tasks in a row from each
+ * lane as its weight, before moving on to the next lane that has any. A lane with a higher weight gets a larger share,
+ * but no lane is ever starved.
+ * <p/>
+ * Which lane a task goes in is decided, in this order, by:
+ * <ul>
+ * <li>the header of its {@link Event} named with {@link #assignByHeader(String)}, whose value is the lane's index</li>
+ * <li>the tags of its key, if the key is {@link Taggable}, that have been {@link #assign(String, int) assigned} to a
+ * lane</li>
+ * <li>the first {@link Selector} {@link #assign(Selector, int) assigned} to a lane that matches its key</li>
+ * <li>and otherwise the default lane, which is the last, least urgent, one unless set otherwise</li>
+ * </ul>
+ *
+ * @author Jon Brisbin
+ */
+@SuppressWarnings("rawtypes")
+public class PriorityDispatcher implements Dispatcher {
+
+	private static final int           DEFAULT_BACKLOG = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+	private static final AtomicInteger INSTANCE_COUNT  = new AtomicInteger();
+
+	private final ConsumerInvoker      invoker   = new ConverterAwareConsumerInvoker();
+	// one permit for each task in any of the lanes
+	private final Semaphore            available = new Semaphore(0);
+	private final Map<String, Integer> tagLanes  = new ConcurrentHashMap<String, Integer>();
+	private final List<SelectorLane>   selectorLanes = new CopyOnWriteArrayList<SelectorLane>();
+
+	private final int         backlog;
+	private final Lane[]      lanes;
+	private final Cache<Task> readyTasks;
+	private final Thread      taskExecutor;
+
+	private volatile int    defaultLane;
+	private volatile String priorityHeader;
+	private volatile boolean accepting = true;
+	// set once shutdown has taken out what was left, for tasks that got past accepting and are queued too late
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new {@literal PriorityDispatcher} named 'priority' with three lanes weighted 8, 4 and 1, that uses the
+	 * default backlog.
+	 */
+	public PriorityDispatcher() {
+		this("priority", DEFAULT_BACKLOG, 8, 4, 1);
+	}
+
+	/**
+	 * Creates a new {@literal PriorityDispatcher} with one lane for each of the given weights, the first being the most
+	 * urgent.
+	 *
+	 * @param name    The name
+	 * @param backlog The backlog size
+	 * @param weights The number of tasks to take from each lane in a row, before moving on to the next
+	 */
+	public PriorityDispatcher(String name, int backlog, int... weights) {
+		Assert.isTrue(weights.length > 0, "There must be at least one lane.");
+		this.backlog = backlog;
+		this.lanes = new Lane[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			Assert.isTrue(weights[i] > 0, "Lane weights must be greater than zero.");
+			lanes[i] = new Lane(weights[i]);
+		}
+		this.defaultLane = weights.length - 1;
+		this.readyTasks = new RecyclingCache<Task>(
+				new Supplier<Task>() {
+					@Override
+					public Task get() {
+						return new PriorityTask();
+					}
+				},
+				backlog
+		);
+
+		this.taskExecutor = new Thread(new TaskExecutingRunnable(), name + "-dispatcher-" + INSTANCE_COUNT.incrementAndGet());
+		this.taskExecutor.setDaemon(true);
+	}
+
+	/**
+	 * Put the tasks whose keys match the given {@link Selector} in the given lane. {@link Taggable} keys are matched by
+	 * the object they tag.
+	 *
+	 * @param keys The selector to match the keys with
+	 * @param lane The index of the lane
+	 * @return {@literal this}
+	 */
+	public PriorityDispatcher assign(Selector keys, int lane) {
+		Assert.notNull(keys, "Selector cannot be null.");
+		selectorLanes.add(new SelectorLane(keys, checkLane(lane)));
+		return this;
+	}
+
+	/**
+	 * Put the tasks whose {@link Taggable} keys have the given tag in the given lane.
+	 *
+	 * @param tag  The tag
+	 * @param lane The index of the lane
+	 * @return {@literal this}
+	 */
+	public PriorityDispatcher assign(String tag, int lane) {
+		Assert.notNull(tag, "Tag cannot be null.");
+		tagLanes.put(tag, checkLane(lane));
+		return this;
+	}
+
+	/**
+	 * Put the tasks whose {@link Event}s have the given header in the lane that the header's value is the index of.
+	 *
+	 * @param name The name of the header
+	 * @return {@literal this}
+	 */
+	public PriorityDispatcher assignByHeader(String name) {
+		this.priorityHeader = name;
+		return this;
+	}
+
+	/**
+	 * Set the lane that tasks go in when nothing else says which lane they belong in.
+	 *
+	 * @param lane The index of the lane
+	 * @return {@literal this}
+	 */
+	public PriorityDispatcher setDefaultLane(int lane) {
+		this.defaultLane = checkLane(lane);
+		return this;
+	}
+
+	/**
+	 * Get the number of lanes.
+	 *
+	 * @return The number of lanes
+	 */
+	public int getLanes() {
+		return lanes.length;
+	}
+
+	/**
+	 * Get the number of tasks waiting in the given lane.
+	 *
+	 * @param lane The index of the lane
+	 * @return The number of tasks queued
+	 */
+	public int getQueueDepth(int lane) {
+		return lanes[checkLane(lane)].depth.get();
+	}
+
+	/**
+	 * Get the number of tasks that have been taken from the given lane to be executed.
+	 *
+	 * @param lane The index of the lane
+	 * @return The number of tasks dispatched
+	 */
+	public long getDispatchedCount(int lane) {
+		return lanes[checkLane(lane)].dispatched.get();
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked"})
+	public <T> Task<T> nextTask() {
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	@Override
+	public long remainingCapacity() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public PriorityDispatcher destroy() {
+		return stop();
+	}
+
+	@Override
+	public PriorityDispatcher stop() {
+		taskExecutor.interrupt();
+		return this;
+	}
+
+	/**
+	 * The backlog is executed by the dispatcher's own thread, taking from the lanes by weighted round-robin as usual.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		accepting = false;
+		long queued = queued();
+
+		boolean drained = false;
+		DrainMarker marker = new DrainMarker();
+		try {
+			// once every lane has been emptied, only the task being executed is left for the marker to go behind
+			while (queued() > 0 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			if (queued() == 0) {
+				lanes[0].depth.incrementAndGet();
+				lanes[0].tasks.add(marker);
+				available.release();
+				drained = marker.await(deadline - System.nanoTime());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// take out what is left before interrupting the thread, which would otherwise run through it. Even once the marker
+		// has been executed, there may be tasks that got past accepting in time but were queued behind it.
+		closed = true;
+		long abandoned = 0;
+		for (Lane lane : lanes) {
+			Task t;
+			while (null != (t = lane.tasks.poll())) {
+				lane.depth.decrementAndGet();
+				available.tryAcquire();
+				if (t != marker) {
+					abandoned++;
+					t.reset();
+					readyTasks.deallocate(t);
+				}
+			}
+		}
+		taskExecutor.interrupt();
+		// if the marker was executed, so was everything queued when the shutdown began
+		return new ShutdownReport(drained ? queued : Math.max(0, queued - abandoned), abandoned, drained && abandoned == 0);
+	}
+
+	private long queued() {
+		long queued = 0;
+		for (Lane lane : lanes) {
+			queued += lane.depth.get();
+		}
+		return queued;
+	}
+
+	@Override
+	public PriorityDispatcher start() {
+		taskExecutor.start();
+		return this;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return taskExecutor.isAlive();
+	}
+
+	private int checkLane(int lane) {
+		Assert.isTrue(lane >= 0 && lane < lanes.length, "There is no lane " + lane + ".");
+		return lane;
+	}
+
+	private int laneOf(Task t) {
+		String header = priorityHeader;
+		if (null != header && null != t.getEvent() && t.getEvent().hasHeaders()) {
+			String value = t.getEvent().getHeaders().get(header);
+			if (null != value) {
+				try {
+					int lane = Integer.parseInt(value);
+					if (lane >= 0 && lane < lanes.length) {
+						return lane;
+					}
+				} catch (NumberFormatException ignored) {
+				}
+			}
+		}
+
+		Object key = t.getKey();
+		if (key instanceof Taggable) {
+			if (!tagLanes.isEmpty()) {
+				for (String tag : ((Taggable<?>) key).getTags()) {
+					Integer lane = tagLanes.get(tag);
+					if (null != lane) {
+						return lane;
+					}
+				}
+			}
+			key = ((Taggable<?>) key).getTagged();
+		}
+		for (SelectorLane sl : selectorLanes) {
+			if (sl.selector.matches(key)) {
+				return sl.lane;
+			}
+		}
+		return defaultLane;
+	}
+
+	private class PriorityTask<T> extends Task<T> {
+		@Override
+		public void submit() {
+			if (!accepting) {
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+			Lane lane = lanes[laneOf(this)];
+			lane.depth.incrementAndGet();
+			lane.tasks.add(this);
+			available.release();
+			// shutdown has already taken out what was left, so this one would never be executed nor counted
+			if (closed && lane.tasks.remove(this)) {
+				lane.depth.decrementAndGet();
+				available.tryAcquire();
+				reset();
+				readyTasks.deallocate(this);
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+		}
+	}
+
+	private static class Lane {
+		final ConcurrentLinkedQueue<Task> tasks      = new ConcurrentLinkedQueue<Task>();
+		final AtomicInteger               depth      = new AtomicInteger();
+		final AtomicLong                  dispatched = new AtomicLong();
+		final int                         weight;
+
+		Lane(int weight) {
+			this.weight = weight;
+		}
+	}
+
+	private static class SelectorLane {
+		final Selector selector;
+		final int      lane;
+
+		SelectorLane(Selector selector, int lane) {
+			this.selector = selector;
+			this.lane = lane;
+		}
+	}
+
+	private class TaskExecutingRunnable implements Runnable {
+		// the lane being taken from and how many more tasks it may have in a row, only touched by this thread
+		private int current;
+		private int credit = lanes[0].weight;
+
+		@Override
+		public void run() {
+			while (true) {
+				Task t = null;
+				try {
+					available.acquire();
+					if (null == (t = next())) {
+						continue;
+					}
+					t.execute(invoker);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (Exception e) {
+					Logger log = LoggerFactory.getLogger(PriorityDispatcher.class);
+					if (log.isErrorEnabled()) {
+						log.error(e.getMessage(), e);
+					}
+				} finally {
+					if (null != t && !(t instanceof DrainMarker)) {
+						t.reset();
+						readyTasks.deallocate(t);
+					}
+				}
+			}
+		}
+
+		private Task next() {
+			// there is a permit for every queued task, so one of the lanes has one, unless shutdown took it out first
+			for (int misses = 0; misses <= lanes.length; misses++) {
+				if (credit > 0) {
+					Lane lane = lanes[current];
+					Task t = lane.tasks.poll();
+					if (null != t) {
+						credit--;
+						lane.depth.decrementAndGet();
+						lane.dispatched.incrementAndGet();
+						return t;
+					}
+				}
+				current = (current + 1) % lanes.length;
+				credit = lanes[current].weight;
+			}
+			return null;
+		}
+	}
+
+}
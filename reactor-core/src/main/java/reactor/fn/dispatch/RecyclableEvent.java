@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import reactor.fn.Event;
+
+/**
+ * The {@link Event} that belongs to a {@link Task}, reused for each notification the task carries.
+ *
+ * @author Jon Brisbin
+ */
+final class RecyclableEvent<T> extends Event<T> {
+
+	RecyclableEvent() {
+		super((T) null);
+	}
+
+	void clear() {
+		recycle();
+	}
+
+	/**
+	 * Get a copy of this event that stays as it is when this one is cleared and reused.
+	 *
+	 * @return A copy of the event
+	 */
+	Event<T> detach() {
+		Event<T> ev = new Event<T>(getHeaders().copy(), getData());
+		if (null != getReplyTo()) {
+			ev.setReplyTo(getReplyTo());
+		}
+		return ev;
+	}
+
+}
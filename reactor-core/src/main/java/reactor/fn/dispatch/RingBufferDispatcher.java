@@ -16,7 +16,13 @@
 
 package reactor.fn.dispatch;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,29 +31,41 @@ import reactor.fn.Consumer;
 import reactor.fn.ConsumerInvoker;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
 import reactor.support.NamedDaemonThreadFactory;
+import reactor.util.Assert;
 
 import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
 /**
  * Implementation of a {@link Dispatcher} that uses a <a href="http://github.com/lmax-exchange/disruptor">Disruptor
  * RingBuffer</a> to queue tasks to execute.
+ * <p/>
+ * With a pool of more than one thread the threads share the ring buffer and each task is executed exactly once, by
+ * whichever thread claims it first, so tasks may complete out of order. If tasks that share a key must be executed in
+ * the order they were submitted, the dispatcher can instead be created to be {@literal orderedByKey}: every thread then
+ * sees every task but only executes those whose key hashes to it.
  *
  * @author Jon Brisbin
  * @author Stephane Maldini
  */
 public class RingBufferDispatcher implements Dispatcher {
 
-	private static final int DEFAULT_RING_BUFFER_THREADS = Integer.parseInt(System.getProperty("reactor.dispatcher.ringbuffer.threads", "1"));
-    private static final int DEFAULT_RING_BUFFER_BACKLOG = Integer.parseInt(System.getProperty("reactor.dispatcher.ringbuffer.backlog", "512"));
+	private static final int     DEFAULT_RING_BUFFER_THREADS = Integer.parseInt(System.getProperty("reactor.dispatcher.ringbuffer.threads", "1"));
+	private static final int     DEFAULT_RING_BUFFER_BACKLOG = Integer.parseInt(System.getProperty("reactor.dispatcher.ringbuffer.backlog", "512"));
+	private static final boolean DEFAULT_ORDERED_BY_KEY      = Boolean.parseBoolean(System.getProperty("reactor.dispatcher.ringbuffer.ordered", "false"));
 
+	private final    ExecutorService            executor;
 	private final    Disruptor<RingBufferTask>  disruptor;
+	private final    OverflowPolicy             overflowPolicy;
+	private volatile boolean                    accepting = true;
 	private volatile ConsumerInvoker            invoker;
 	private volatile RingBuffer<RingBufferTask> ringBuffer;
 
@@ -55,15 +73,18 @@ public class RingBufferDispatcher implements Dispatcher {
 	 * Creates a new {@literal RingBufferDispatcher} in its default configuration. The dispatcher will be named "ring-buffer". The number of
 	 * threads used is determined by the {@code reactor.dispatcher.ringbuffer.threads} system property. If the property is not set, one thread
 	 * will be used. The size of the backlog is determined by the {@code reactor dispatcher.ringbuffer.backlog} system property. If the
-	 * property is not set, a backlog of 512 will be used. The dispatcher's {@link RingBuffer} will configured to be used with
-	 * {@link ProducerType#MULTI multiple producers} and will use a {@link BlockingWaitStrategy blocking wait strategy}.
+	 * property is not set, a backlog of 512 will be used. Whether tasks with the same key are kept in order across threads
+	 * is determined by the {@code reactor.dispatcher.ringbuffer.ordered} system property, which defaults to {@literal
+	 * false}. The dispatcher's {@link RingBuffer} will configured to be used with {@link ProducerType#MULTI multiple
+	 * producers} and will use a {@link BlockingWaitStrategy blocking wait strategy}.
 	 */
 	public RingBufferDispatcher() {
-		this("ring-buffer", DEFAULT_RING_BUFFER_THREADS, DEFAULT_RING_BUFFER_BACKLOG, ProducerType.MULTI, new BlockingWaitStrategy());
+		this("ring-buffer", DEFAULT_RING_BUFFER_THREADS, DEFAULT_RING_BUFFER_BACKLOG, ProducerType.MULTI, new BlockingWaitStrategy(), DEFAULT_ORDERED_BY_KEY);
 	}
 
 	/**
-	 * Creates a new {@literal RingBufferDispatcher} with the given configuration.
+	 * Creates a new {@literal RingBufferDispatcher} with the given configuration. If the pool has more than one thread,
+	 * each task is executed by one of them and tasks may complete out of order.
 	 *
 	 * @param name The name of the dispatcher
 	 * @param poolSize The size of the thread pool used to remove items when the buffer
@@ -71,12 +92,62 @@ public class RingBufferDispatcher implements Dispatcher {
 	 * @param producerType The producer type to configure the ring buffer with
 	 * @param waitStrategy The wait strategy to configure the ring buffer with
 	 */
-	@SuppressWarnings({"unchecked"})
 	public RingBufferDispatcher(String name,
 															int poolSize,
 															int backlog,
 															ProducerType producerType,
 															WaitStrategy waitStrategy) {
+		this(name, poolSize, backlog, producerType, waitStrategy, false);
+	}
+
+	/**
+	 * Creates a new {@literal RingBufferDispatcher} with the given configuration.
+	 *
+	 * @param name The name of the dispatcher
+	 * @param poolSize The size of the thread pool used to remove items when the buffer
+	 * @param backlog The backlog size to configuration the ring buffer with
+	 * @param producerType The producer type to configure the ring buffer with
+	 * @param waitStrategy The wait strategy to configure the ring buffer with
+	 * @param orderedByKey Whether tasks with the same key must be executed in the order they were submitted. When
+	 *                     {@literal true} each key is always handled by the same thread.
+	 */
+	public RingBufferDispatcher(String name,
+															int poolSize,
+															int backlog,
+															ProducerType producerType,
+															WaitStrategy waitStrategy,
+															boolean orderedByKey) {
+		this(name, poolSize, backlog, producerType, waitStrategy, orderedByKey, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Creates a new {@literal RingBufferDispatcher} with the given configuration. When the ring buffer is full, the
+	 * {@literal overflowPolicy} decides what happens to the next task. Tasks are claimed from the ring buffer before they
+	 * are filled in, so a task that is rejected is only rejected when it is {@link Task#submit() submitted}. Slots that
+	 * have been claimed can't be taken back, so {@link OverflowPolicy#DROP_OLDEST} is not supported.
+	 *
+	 * @param name           The name of the dispatcher
+	 * @param poolSize       The size of the thread pool used to remove items when the buffer
+	 * @param backlog        The backlog size to configuration the ring buffer with
+	 * @param producerType   The producer type to configure the ring buffer with
+	 * @param waitStrategy   The wait strategy to configure the ring buffer with
+	 * @param orderedByKey   Whether tasks with the same key must be executed in the order they were submitted. When
+	 *                       {@literal true} each key is always handled by the same thread.
+	 * @param overflowPolicy What to do with a task when the ring buffer is full
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public RingBufferDispatcher(String name,
+															int poolSize,
+															int backlog,
+															ProducerType producerType,
+															WaitStrategy waitStrategy,
+															boolean orderedByKey,
+															OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "OverflowPolicy cannot be null.");
+		Assert.isTrue(overflowPolicy.getAction() != OverflowPolicy.Action.DROP_OLDEST,
+									"A RingBufferDispatcher cannot drop the oldest task.");
+		this.overflowPolicy = overflowPolicy;
+		this.executor = Executors.newFixedThreadPool(poolSize, new NamedDaemonThreadFactory(name + "-dispatcher"));
 		disruptor = new Disruptor<RingBufferTask>(
 				new EventFactory<RingBufferTask>() {
 					@Override
@@ -85,12 +156,12 @@ public class RingBufferDispatcher implements Dispatcher {
 					}
 				},
 				backlog,
-				Executors.newFixedThreadPool(poolSize, new NamedDaemonThreadFactory(name + "-dispatcher")),
+				executor,
 				producerType,
 				waitStrategy
 		);
 
-		disruptor.handleEventsWith(new RingBufferTaskHandler());
+		// the exception handler is only applied to the handlers that are added after it
 		disruptor.handleExceptionsWith(
 				new ExceptionHandler() {
 
@@ -123,18 +194,118 @@ public class RingBufferDispatcher implements Dispatcher {
 					}
 				}
 		);
+
+		if (poolSize < 2) {
+			disruptor.handleEventsWith(new RingBufferTaskHandler());
+		} else if (orderedByKey) {
+			EventHandler<RingBufferTask>[] handlers = new EventHandler[poolSize];
+			for (int i = 0; i < poolSize; i++) {
+				handlers[i] = new KeyPartitionedTaskHandler(i, poolSize);
+			}
+			disruptor.handleEventsWith(handlers);
+		} else {
+			WorkHandler<RingBufferTask>[] handlers = new WorkHandler[poolSize];
+			for (int i = 0; i < poolSize; i++) {
+				handlers[i] = new RingBufferTaskHandler();
+			}
+			disruptor.handleEventsWithWorkerPool(handlers);
+		}
+
 		invoker = new ConverterAwareConsumerInvoker();
 	}
 
 	@Override
 	@SuppressWarnings({"unchecked"})
 	public <T> Task<T> nextTask() {
-		long l = ringBuffer.next();
+		checkAccepting();
+		long l;
+		if (overflowPolicy.getTimeoutNanos() == Long.MAX_VALUE) {
+			l = ringBuffer.next();
+		} else if ((l = tryNext()) < 0) {
+			return new OverflowTask<T>();
+		}
 		RingBufferTask t = ringBuffer.get(l);
 		t.setSequenceId(l);
 		return (Task<T>) t;
 	}
 
+	private long tryNext() {
+		long deadline = System.nanoTime() + overflowPolicy.getTimeoutNanos();
+		while (true) {
+			try {
+				return ringBuffer.tryNext();
+			} catch (InsufficientCapacityException e) {
+				if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+					return -1;
+				}
+				LockSupport.parkNanos(1);
+			}
+		}
+	}
+
+	/**
+	 * Claims a range of up to {@code size} consecutive slots of the ring buffer, which is made visible to the consumer
+	 * with a single publish. A batch never claims more than a quarter of the buffer, so that the consumer can work on one
+	 * batch while the next is being filled.
+	 */
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public <T> TaskBatch<T> nextTasks(int size) {
+		checkAccepting();
+		int n = Math.max(1, Math.min(size, ringBuffer.getBufferSize() / 4));
+		final long hi;
+		if (overflowPolicy.getTimeoutNanos() == Long.MAX_VALUE) {
+			hi = ringBuffer.next(n);
+		} else {
+			try {
+				hi = ringBuffer.tryNext(n);
+			} catch (InsufficientCapacityException e) {
+				// claim what room there is one task at a time and let the overflow policy deal with the rest
+				return new SequentialTaskBatch<T>(this, n);
+			}
+		}
+		final long lo = hi - n + 1;
+
+		List tasks = new ArrayList(n);
+		for (long l = lo; l <= hi; l++) {
+			tasks.add(ringBuffer.get(l).setSequenceId(l));
+		}
+
+		return new TaskBatch<T>((List<Task<T>>) tasks) {
+			@Override
+			public void submit() {
+				ringBuffer.publish(lo, hi);
+			}
+		};
+	}
+
+	@Override
+	public long remainingCapacity() {
+		return ringBuffer.remainingCapacity();
+	}
+
+	/**
+	 * The backlog is executed by the dispatcher's threads as usual, so by all of them unless the dispatcher is ordered by
+	 * key. Slots that were claimed before the shutdown began but haven't been submitted hold it up.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		accepting = false;
+		long queued = ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
+
+		boolean drained = true;
+		try {
+			disruptor.shutdown(timeout, unit);
+		} catch (com.lmax.disruptor.TimeoutException e) {
+			drained = false;
+			disruptor.halt();
+		}
+		executor.shutdown();
+
+		long abandoned = (drained ? 0 : ringBuffer.getBufferSize() - ringBuffer.remainingCapacity());
+		return new ShutdownReport(Math.max(0, queued - abandoned), abandoned, drained);
+	}
+
 	@Override
 	public RingBufferDispatcher destroy() {
 		disruptor.shutdown();
@@ -158,6 +329,12 @@ public class RingBufferDispatcher implements Dispatcher {
 		return ringBuffer.remainingCapacity() > 0;
 	}
 
+	private void checkAccepting() {
+		if (!accepting) {
+			throw new RejectedExecutionException("Dispatcher has been shut down.");
+		}
+	}
+
 	private class RingBufferTask extends Task<Object> {
 		private long sequenceId;
 
@@ -172,10 +349,55 @@ public class RingBufferDispatcher implements Dispatcher {
 		}
 	}
 
-	private class RingBufferTaskHandler implements EventHandler<RingBufferTask> {
+	/**
+	 * Handed out in place of a slot of the ring buffer when there is no room: it is never queued, it only goes through the
+	 * overflow policy when it is submitted.
+	 */
+	private class OverflowTask<T> extends Task<T> {
+		@Override
+		public void submit() {
+			overflowPolicy.reject(this, invoker);
+		}
+	}
+
+	private class RingBufferTaskHandler implements EventHandler<RingBufferTask>, WorkHandler<RingBufferTask> {
 		@Override
 		public void onEvent(RingBufferTask t, long sequence, boolean endOfBatch) throws Exception {
-			t.execute(invoker);
+			onEvent(t);
+		}
+
+		@Override
+		public void onEvent(RingBufferTask t) throws Exception {
+			try {
+				t.execute(invoker);
+			} finally {
+				// the slot keeps its event, emptied, for whichever task is published in it next
+				t.recycleEvent();
+			}
+		}
+	}
+
+	private class KeyPartitionedTaskHandler implements EventHandler<RingBufferTask> {
+		private final int partition;
+		private final int partitions;
+
+		private KeyPartitionedTaskHandler(int partition, int partitions) {
+			this.partition = partition;
+			this.partitions = partitions;
+		}
+
+		@Override
+		public void onEvent(RingBufferTask t, long sequence, boolean endOfBatch) throws Exception {
+			Object key = t.getKey();
+			int h = (null != key ? key.hashCode() : 0);
+			h ^= (h >>> 16);
+			if ((h & Integer.MAX_VALUE) % partitions == partition) {
+				try {
+					t.execute(invoker);
+				} finally {
+					t.recycleEvent();
+				}
+			}
 		}
 	}
 
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link TaskBatch} for {@link Dispatcher}s that have no cheaper way to queue several tasks at once: it claims each
+ * {@link Task} with {@link Dispatcher#nextTask()} and submits them one after the other.
+ *
+ * @author Jon Brisbin
+ */
+public class SequentialTaskBatch<T> extends TaskBatch<T> {
+
+	public SequentialTaskBatch(Dispatcher dispatcher, int size) {
+		super(SequentialTaskBatch.<T>claim(dispatcher, size));
+	}
+
+	@Override
+	public void submit() {
+		for (Task<T> t : getTasks()) {
+			t.submit();
+		}
+	}
+
+	private static <T> List<Task<T>> claim(Dispatcher dispatcher, int size) {
+		List<Task<T>> tasks = new ArrayList<Task<T>>(size);
+		for (int i = 0; i < size; i++) {
+			tasks.add(dispatcher.<T>nextTask());
+		}
+		return tasks;
+	}
+
+}
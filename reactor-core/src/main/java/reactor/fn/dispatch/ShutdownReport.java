@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+/**
+ * What became of the tasks that were queued when a {@link Dispatcher} was {@link Dispatcher#shutdown(long,
+ * java.util.concurrent.TimeUnit) shut down}: how many were executed before the timeout ran out and how many were
+ * abandoned.
+ *
+ * @author Jon Brisbin
+ */
+public class ShutdownReport {
+
+	private final long    completed;
+	private final long    abandoned;
+	private final boolean terminated;
+
+	public ShutdownReport(long completed, long abandoned, boolean terminated) {
+		this.completed = completed;
+		this.abandoned = abandoned;
+		this.terminated = terminated;
+	}
+
+	/**
+	 * Get the number of tasks that were waiting to be executed when the shutdown began and have been executed since.
+	 *
+	 * @return The number of tasks completed
+	 */
+	public long getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Get the number of tasks that were still waiting, or still being executed, when the timeout ran out. Waiting tasks
+	 * are discarded; tasks that are being executed are left to finish, if they ever do.
+	 *
+	 * @return The number of tasks abandoned
+	 */
+	public long getAbandoned() {
+		return abandoned;
+	}
+
+	/**
+	 * Whether every task was executed before the timeout ran out.
+	 *
+	 * @return {@literal true} if the dispatcher drained its backlog in time, {@literal false} otherwise
+	 */
+	public boolean isTerminated() {
+		return terminated;
+	}
+
+	@Override
+	public String toString() {
+		return "ShutdownReport{" +
+				"completed=" + completed +
+				", abandoned=" + abandoned +
+				", terminated=" + terminated +
+				'}';
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/**
+ * A queue of records kept in a series of memory-mapped segment files. Records are appended to the newest segment and,
+ * when it has no room left, to a new one; they are read back from the oldest segment, which is deleted once it has
+ * been read to the end. Each record is written as its length followed by its bytes.
+ * <p/>
+ * Not thread-safe: callers have to make sure only one thread at a time uses it.
+ *
+ * @author Jon Brisbin
+ */
+final class SpillFile {
+
+	private final File   directory;
+	private final String prefix;
+	private final int    segmentSize;
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+
+	private long nextSegment;
+	private long diskUsage;
+
+	SpillFile(File directory, String prefix, int segmentSize) {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Append a record to the newest segment, starting a new segment if it doesn't fit.
+	 *
+	 * @param record The record
+	 * @throws IOException if a new segment can't be created
+	 */
+	void append(byte[] record) throws IOException {
+		Segment tail = segments.peekLast();
+		if (null == tail || tail.writer.remaining() < 4 + record.length) {
+			// a record that is larger than a segment gets a segment of its own
+			tail = createSegment(Math.max(segmentSize, 4 + record.length));
+			segments.add(tail);
+		}
+		tail.writer.putInt(record.length);
+		tail.writer.put(record);
+		tail.written++;
+	}
+
+	/**
+	 * Remove the oldest record.
+	 *
+	 * @return The record, or {@literal null} if there are none
+	 */
+	byte[] poll() {
+		Segment head = segments.peekFirst();
+		if (null == head || head.read == head.written) {
+			return null;
+		}
+
+		byte[] record = new byte[head.reader.getInt()];
+		head.reader.get(record);
+		head.read++;
+
+		if (head.read == head.written) {
+			if (head == segments.peekLast()) {
+				// everything has been read back, so start writing from the beginning again
+				head.writer.clear();
+				head.reader.clear();
+				head.read = 0;
+				head.written = 0;
+			} else {
+				deleteSegment(segments.poll());
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * Get the number of segment files.
+	 *
+	 * @return The number of segments
+	 */
+	int getSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Get the size of all the segment files together. A segment stops counting as soon as it has been deleted, but its
+	 * blocks stay in use until the mapping is released, which only happens once its buffer has been garbage collected.
+	 *
+	 * @return The number of bytes used on disk
+	 */
+	long getDiskUsage() {
+		return diskUsage;
+	}
+
+	/**
+	 * Delete every segment file, along with any records still in them.
+	 */
+	void close() {
+		Segment s;
+		while (null != (s = segments.poll())) {
+			deleteSegment(s);
+		}
+	}
+
+	private Segment createSegment(int size) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		File file = new File(directory, prefix + "-" + (nextSegment++) + ".spill");
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			diskUsage += size;
+			return new Segment(file, buffer, size);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void deleteSegment(Segment s) {
+		diskUsage -= s.size;
+		// the mapping itself is only released once the buffer has been collected
+		if (!s.file.delete()) {
+			s.file.deleteOnExit();
+		}
+	}
+
+	private static class Segment {
+		final File       file;
+		final int        size;
+		final ByteBuffer writer;
+		final ByteBuffer reader;
+		long written;
+		long read;
+
+		Segment(File file, MappedByteBuffer buffer, int size) {
+			this.file = file;
+			this.size = size;
+			this.writer = buffer;
+			this.reader = buffer.duplicate();
+		}
+	}
+
+}
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.convert.Converter;
+import reactor.fn.Cache;
+import reactor.fn.Consumer;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.Event;
+import reactor.fn.RecyclingCache;
+import reactor.fn.Registry;
+import reactor.fn.Supplier;
+import reactor.fn.Tuple2;
+import reactor.fn.support.ConverterAwareConsumerInvoker;
+import reactor.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single-threaded {@link Dispatcher} for events that must not be dropped but must not fill up the heap either. Tasks
+ * are queued in memory until the queue is full; after that the key and {@link Event} of each task are written, with
+ * an {@link EventSerializer}, to memory-mapped segment files, until the dispatcher's thread has caught up and read them
+ * all back. Tasks are executed in the order they were submitted, whether or not they were spilled to disk.
+ * <p/>
+ * Only the key and the event are written to disk. What else a task refers to, such as the {@link Registry} of the
+ * {@link reactor.core.Reactor} that submitted it, is kept in memory, but only once for each run of tasks that came from
+ * the same place. A task whose key or event can't be serialized is passed to its error {@link Consumer} instead.
+ * <p/>
+ * The segment files are created in the given directory, are {@code reactor.dispatcher.spill.segmentSize} bytes (16MB by
+ * default) unless a single event needs more, and are deleted once they have been read back or the dispatcher is
+ * stopped. Events that are still on disk when the dispatcher is stopped are lost.
+ *
+ * @author Jon Brisbin
+ */
+@SuppressWarnings("rawtypes")
+public class SpillingDispatcher implements Dispatcher {
+
+	private static final int           DEFAULT_BACKLOG      = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+	private static final int           DEFAULT_SEGMENT_SIZE = Integer.parseInt(System.getProperty("reactor.dispatcher.spill.segmentSize", String.valueOf(16 * 1024 * 1024)));
+	private static final AtomicInteger INSTANCE_COUNT       = new AtomicInteger();
+
+	private final ConsumerInvoker invoker  = new ConverterAwareConsumerInvoker();
+	private final AtomicLong      spilled  = new AtomicLong();
+	private final AtomicLong      drained  = new AtomicLong();
+	// guards the spill file and the origins of the tasks in it
+	private final Object          spillLock = new Object();
+	private final ArrayDeque<Origin> origins = new ArrayDeque<Origin>();
+
+	private final int                 backlog;
+	private final EventSerializer     serializer;
+	private final Cache<Task>         readyTasks;
+	private final BlockingQueue<Task> taskQueue;
+	private final SpillFile           spillFile;
+	private final Thread              taskExecutor;
+
+	// the number of tasks on disk, only changed while holding the spill lock
+	private volatile long onDisk;
+	private volatile boolean accepting = true;
+	// set once shutdown has taken out what was left, for tasks that got past accepting and are queued too late
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new {@literal SpillingDispatcher} named 'spilling' that uses {@link JavaEventSerializer Java
+	 * serialization} and the default backlog, and queues as many tasks in memory as its backlog.
+	 *
+	 * @param directory The directory to keep the segment files in
+	 */
+	public SpillingDispatcher(File directory) {
+		this("spilling", DEFAULT_BACKLOG, DEFAULT_BACKLOG, directory, DEFAULT_SEGMENT_SIZE, new JavaEventSerializer());
+	}
+
+	/**
+	 * Creates a new {@literal SpillingDispatcher}.
+	 *
+	 * @param name        The name
+	 * @param backlog     The backlog size
+	 * @param capacity    The number of tasks to queue in memory before spilling to disk
+	 * @param directory   The directory to keep the segment files in
+	 * @param segmentSize The size of each segment file, in bytes
+	 * @param serializer  Writes the keys and events of the tasks that are spilled, and reads them back
+	 */
+	public SpillingDispatcher(String name,
+														int backlog,
+														int capacity,
+														File directory,
+														int segmentSize,
+														EventSerializer serializer) {
+		Assert.notNull(directory, "Directory cannot be null.");
+		Assert.notNull(serializer, "EventSerializer cannot be null.");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero.");
+		Assert.isTrue(segmentSize > 4, "Segment size must be greater than 4 bytes.");
+		this.backlog = backlog;
+		this.serializer = serializer;
+		this.taskQueue = new ArrayBlockingQueue<Task>(capacity);
+		this.readyTasks = new RecyclingCache<Task>(
+				new Supplier<Task>() {
+					@Override
+					public Task get() {
+						return new SpillingTask();
+					}
+				},
+				backlog
+		);
+
+		String threadName = name + "-dispatcher-" + INSTANCE_COUNT.incrementAndGet();
+		this.spillFile = new SpillFile(directory, threadName, segmentSize);
+		this.taskExecutor = new Thread(new TaskExecutingRunnable(), threadName);
+		this.taskExecutor.setDaemon(true);
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked"})
+	public <T> Task<T> nextTask() {
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	/**
+	 * The room left in memory. Tasks beyond that are spilled to disk rather than refused.
+	 */
+	@Override
+	public long remainingCapacity() {
+		return taskQueue.remainingCapacity();
+	}
+
+	/**
+	 * Get the number of tasks that have been written to disk.
+	 *
+	 * @return The number of tasks spilled
+	 */
+	public long getSpilledCount() {
+		return spilled.get();
+	}
+
+	/**
+	 * Get the number of tasks that have been read back from disk.
+	 *
+	 * @return The number of tasks drained
+	 */
+	public long getDrainedCount() {
+		return drained.get();
+	}
+
+	/**
+	 * Get the number of tasks that are on disk waiting to be read back.
+	 *
+	 * @return The number of tasks on disk
+	 */
+	public long getSpillBacklog() {
+		return onDisk;
+	}
+
+	/**
+	 * Get the size of the segment files. Deleted segments are no longer counted, although the disk blocks they mapped are
+	 * only freed once their buffers have been garbage collected.
+	 *
+	 * @return The number of bytes used on disk
+	 */
+	public long getDiskUsage() {
+		synchronized (spillLock) {
+			return spillFile.getDiskUsage();
+		}
+	}
+
+	/**
+	 * Get the number of segment files.
+	 *
+	 * @return The number of segments
+	 */
+	public int getSegments() {
+		synchronized (spillLock) {
+			return spillFile.getSegments();
+		}
+	}
+
+	@Override
+	public SpillingDispatcher destroy() {
+		return stop();
+	}
+
+	@Override
+	public SpillingDispatcher stop() {
+		// nothing would read back what was spilled from now on, nor delete the segments it went in
+		accepting = false;
+		taskExecutor.interrupt();
+		synchronized (spillLock) {
+			// and a task that got past accepting as it was being set must not be spilled into a new segment
+			closed = true;
+			spillFile.close();
+			origins.clear();
+			onDisk = 0;
+		}
+		return this;
+	}
+
+	/**
+	 * The backlog is executed in order, by the dispatcher's own thread, reading back from disk whatever was spilled.
+	 * Whatever is still on disk when the timeout runs out is lost when the segment files are deleted.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		accepting = false;
+		long queued = taskQueue.size() + onDisk;
+
+		boolean done = false;
+		DrainMarker marker = new DrainMarker();
+		try {
+			// the marker goes in memory, so it has to wait until there is nothing left on disk to go in front of it
+			while (onDisk > 0 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			done = onDisk == 0
+					&& taskQueue.offer(marker, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+					&& marker.await(deadline - System.nanoTime());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// take out what is left before interrupting the thread, which would otherwise run through it. Even once the marker
+		// has been executed, there may be tasks that got past accepting in time but were queued or spilled behind it.
+		closed = true;
+		long abandoned = 0;
+		List<Task> left = new ArrayList<Task>();
+		taskQueue.drainTo(left);
+		for (Task t : left) {
+			if (t != marker) {
+				abandoned++;
+				t.reset();
+				readyTasks.deallocate(t);
+			}
+		}
+		synchronized (spillLock) {
+			abandoned += onDisk;
+			onDisk = 0;
+		}
+		// deletes the segment files
+		stop();
+		// if the marker was executed, so was everything queued when the shutdown began
+		return new ShutdownReport(done ? queued : Math.max(0, queued - abandoned), abandoned, done && abandoned == 0);
+	}
+
+	@Override
+	public SpillingDispatcher start() {
+		taskExecutor.start();
+		return this;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return taskExecutor.isAlive();
+	}
+
+	private void dispatch(Task t) {
+		if (!accepting) {
+			throw new RejectedExecutionException("Dispatcher has been shut down.");
+		}
+		// as long as anything is on disk, new tasks have to go there too to stay behind it
+		if (onDisk == 0 && taskQueue.offer(t)) {
+			takeBackIfClosed(t);
+			return;
+		}
+
+		byte[] bytes;
+		try {
+			bytes = serializer.serialize(t.getKey(), t.getEvent());
+		} catch (Throwable x) {
+			fail(t, x);
+			t.reset();
+			readyTasks.deallocate(t);
+			return;
+		}
+
+		synchronized (spillLock) {
+			if (closed) {
+				t.reset();
+				readyTasks.deallocate(t);
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+			if (onDisk == 0 && taskQueue.offer(t)) {
+				takeBackIfClosed(t);
+				return;
+			}
+			try {
+				spillFile.append(bytes);
+			} catch (Throwable x) {
+				fail(t, x);
+				t.reset();
+				readyTasks.deallocate(t);
+				return;
+			}
+			Origin last = origins.peekLast();
+			if (null == last || !last.isOrigin(t)) {
+				origins.add(new Origin(t));
+			} else {
+				last.count++;
+			}
+			onDisk++;
+		}
+		spilled.incrementAndGet();
+		t.reset();
+		readyTasks.deallocate(t);
+	}
+
+	/**
+	 * A task that was queued after shutdown took out what was left would never be executed, nor counted as abandoned, so
+	 * it is taken back out and rejected. If shutdown got to it first, it has been counted.
+	 */
+	private void takeBackIfClosed(Task t) {
+		if (closed && taskQueue.remove(t)) {
+			t.reset();
+			readyTasks.deallocate(t);
+			throw new RejectedExecutionException("Dispatcher has been shut down.");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Task drain() {
+		while (true) {
+			byte[] bytes;
+			Origin origin;
+			synchronized (spillLock) {
+				if (onDisk == 0) {
+					return null;
+				}
+				bytes = spillFile.poll();
+				origin = origins.peekFirst();
+				if (--origin.count == 0) {
+					origins.poll();
+				}
+				onDisk--;
+			}
+			drained.incrementAndGet();
+
+			Task t = readyTasks.allocate();
+			t.setConsumerRegistry(origin.consumerRegistry);
+			t.setConverter(origin.converter);
+			t.setErrorConsumer(origin.errorConsumer);
+			t.setCompletionConsumer(origin.completionConsumer);
+			try {
+				Tuple2<Object, Event<?>> keyAndEvent = serializer.deserialize(bytes);
+				t.setKey(keyAndEvent.getT1());
+				t.setEvent(keyAndEvent.getT2());
+				return t;
+			} catch (Throwable x) {
+				fail(t, x);
+				t.reset();
+				readyTasks.deallocate(t);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void fail(Task t, Throwable x) {
+		Logger log = LoggerFactory.getLogger(SpillingDispatcher.class);
+		if (log.isErrorEnabled()) {
+			log.error(x.getMessage(), x);
+		}
+		Consumer<Throwable> errorConsumer = t.getErrorConsumer();
+		if (null != errorConsumer) {
+			errorConsumer.accept(x);
+		}
+	}
+
+	private class SpillingTask<T> extends Task<T> {
+		@Override
+		public void submit() {
+			dispatch(this);
+		}
+	}
+
+	/**
+	 * What a spilled task referred to besides its key and event, shared by a run of tasks that all referred to the same.
+	 */
+	private static class Origin {
+		final Registry<Consumer<? extends Event<?>>> consumerRegistry;
+		final Converter                              converter;
+		final Consumer<Throwable>                    errorConsumer;
+		final Consumer                               completionConsumer;
+		int count = 1;
+
+		@SuppressWarnings("unchecked")
+		Origin(Task t) {
+			this.consumerRegistry = t.getConsumerRegistry();
+			this.converter = t.getConverter();
+			this.errorConsumer = t.getErrorConsumer();
+			this.completionConsumer = t.getCompletionConsumer();
+		}
+
+		boolean isOrigin(Task t) {
+			return consumerRegistry == t.getConsumerRegistry()
+					&& converter == t.getConverter()
+					&& errorConsumer == t.getErrorConsumer()
+					&& completionConsumer == t.getCompletionConsumer();
+		}
+	}
+
+	private class TaskExecutingRunnable implements Runnable {
+		@Override
+		public void run() {
+			while (true) {
+				Task t = null;
+				try {
+					t = taskQueue.poll();
+					if (null == t) {
+						t = drain();
+					}
+					if (null == t) {
+						t = taskQueue.take();
+					}
+					t.execute(invoker);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (Exception e) {
+					Logger log = LoggerFactory.getLogger(SpillingDispatcher.class);
+					if (log.isErrorEnabled()) {
+						log.error(e.getMessage(), e);
+					}
+				} finally {
+					if (null != t && !(t instanceof DrainMarker)) {
+						t.reset();
+						readyTasks.deallocate(t);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@link WaitStrategy WaitStrategies} that come with Reactor, from the one that uses the least CPU to the one that
+ * picks up new tasks the fastest.
+ *
+ * @author Jon Brisbin
+ */
+public enum StandardWaitStrategy implements WaitStrategy {
+
+	/**
+	 * Block until a task arrives. The waiting thread uses no CPU at all and is woken by the queue itself, at the cost of
+	 * a context switch whenever a task arrives at an idle queue.
+	 */
+	BLOCKING {
+		@Override
+		public <E> E waitFor(BlockingQueue<E> queue) throws InterruptedException {
+			E e = null;
+			while (null == e) {
+				e = queue.poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			}
+			return e;
+		}
+	},
+
+	/**
+	 * Spin for a while, then yield for a while, then park for the shortest time the OS allows between polls. Uses little
+	 * CPU when idle but can take up to a timer tick to notice a new task.
+	 */
+	PARKING {
+		@Override
+		public <E> E waitFor(BlockingQueue<E> queue) throws InterruptedException {
+			E e;
+			int tries = 0;
+			while (null == (e = queue.poll())) {
+				checkInterrupted();
+				if (tries < SPIN_TRIES) {
+					tries++;
+				} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+					tries++;
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(1);
+				}
+			}
+			return e;
+		}
+	},
+
+	/**
+	 * Spin for a while, then yield between polls. Picks up new tasks quickly while leaving the CPU to other threads
+	 * that need it, but keeps a core busy when there are none.
+	 */
+	YIELDING {
+		@Override
+		public <E> E waitFor(BlockingQueue<E> queue) throws InterruptedException {
+			E e;
+			int tries = 0;
+			while (null == (e = queue.poll())) {
+				checkInterrupted();
+				if (tries < SPIN_TRIES) {
+					tries++;
+				} else {
+					Thread.yield();
+				}
+			}
+			return e;
+		}
+	},
+
+	/**
+	 * Poll in a tight loop. Has the lowest latency, but keeps a core busy at all times, so should only be used when
+	 * there are more cores than busy threads.
+	 */
+	BUSY_SPIN {
+		@Override
+		public <E> E waitFor(BlockingQueue<E> queue) throws InterruptedException {
+			E e;
+			while (null == (e = queue.poll())) {
+				checkInterrupted();
+			}
+			return e;
+		}
+	};
+
+	private static final int SPIN_TRIES  = 100;
+	private static final int YIELD_TRIES = 100;
+
+	private static void checkInterrupted() throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+}
@@ -19,6 +19,8 @@ package reactor.fn.dispatch;
 import reactor.fn.ConsumerInvoker;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Jon Brisbin
  * @author Stephane Maldini
@@ -33,6 +35,24 @@ public class SynchronousDispatcher implements Dispatcher {
 		return (Task<T>) new SyncTask();
 	}
 
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, size);
+	}
+
+	@Override
+	public long remainingCapacity() {
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Tasks are executed as soon as they are submitted, so there is never anything to wait for.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		return new ShutdownReport(0, 0, true);
+	}
+
 	@Override
 	public SynchronousDispatcher destroy() {
 		return this;
@@ -23,8 +23,12 @@ import reactor.convert.Converter;
 import reactor.fn.Consumer;
 import reactor.fn.ConsumerInvoker;
 import reactor.fn.Event;
+import reactor.fn.HeaderResolver;
 import reactor.fn.Registration;
 import reactor.fn.Registry;
+import reactor.fn.support.ArgumentAdapter;
+
+import java.util.Map;
 
 /**
  * Abstract class that a {@link Dispatcher} will implement that provides a caller with a holder for the components of an
@@ -41,6 +45,9 @@ public abstract class Task<T> {
 	private volatile Converter                              converter;
 	private volatile Consumer<Event<T>>                     completionConsumer;
 	private volatile Consumer<Throwable>                    errorConsumer;
+	private          RecyclableEvent<T>                     recyclableEvent;
+	// for passing the argument to the invoker without a new varargs array each time
+	private final    Object[]                               args = new Object[1];
 
 	public Object getKey() {
 		return key;
@@ -96,7 +103,34 @@ public abstract class Task<T> {
 		return this;
 	}
 
+	/**
+	 * Get the {@link Event} that belongs to this task, emptied of whatever it carried before, and make it the event this
+	 * task dispatches. Dispatchers reuse their tasks, and with them this event, so notifying with it creates no garbage.
+	 * Nothing may hold on to it once the consumers it is dispatched to have returned, as it is then emptied again.
+	 *
+	 * @return The task's own {@link Event}
+	 */
+	public Event<T> getRecyclableEvent() {
+		if (null == recyclableEvent) {
+			recyclableEvent = new RecyclableEvent<T>();
+		} else {
+			recyclableEvent.clear();
+		}
+		event = recyclableEvent;
+		return recyclableEvent;
+	}
+
+	/**
+	 * Empty the task's own {@link Event}, if that is the event it has just dispatched.
+	 */
+	void recycleEvent() {
+		if (null != recyclableEvent && event == recyclableEvent) {
+			recyclableEvent.clear();
+		}
+	}
+
 	public void reset() {
+		recycleEvent();
 		key = null;
 		consumerRegistry = null;
 		event = null;
@@ -111,15 +145,31 @@ public abstract class Task<T> {
 	public abstract void submit();
 
 	protected void execute(ConsumerInvoker invoker) {
+		if (null == getConsumerRegistry()) {
+			// a task that had to be submitted although there was nothing to dispatch
+			return;
+		}
 		try {			
 			for (Registration<? extends Consumer<? extends Event<?>>> reg : getConsumerRegistry().select(getKey())) {
 				if (reg.isCancelled() || reg.isPaused()) {
 					continue;
 				}
-				if (null != reg.getSelector().getHeaderResolver()) {
-					getEvent().getHeaders().setAll(reg.getSelector().getHeaderResolver().resolve(getKey()));
+				HeaderResolver headerResolver = reg.getSelector().getHeaderResolver();
+				if (null != headerResolver) {
+					Map<String, String> headers = headerResolver.resolve(getKey());
+					// only give the event headers of its own if there are any to set
+					if (null != headers && !headers.isEmpty()) {
+						getEvent().getHeaders().setAll(headers);
+					}
+				}
+				ArgumentAdapter adapter = reg.getArgumentAdapter();
+				Object arg = (null != adapter ? adapter.adapt(getEvent(), getConverter()) : getEvent());
+				args[0] = arg;
+				try {
+					invoker.invoke(reg.getObject(), getConverter(), Void.TYPE, args);
+				} finally {
+					args[0] = null;
 				}
-				invoker.invoke(reg.getObject(), getConverter(), Void.TYPE, getEvent());
 				if (reg.isCancelAfterUse()) {
 					reg.cancel();
 				}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import java.util.List;
+
+/**
+ * A group of {@link Task}s claimed from a {@link Dispatcher} in one go. The caller fills in each {@link Task} and then
+ * calls {@link #submit()} once to queue all of them, in order, instead of calling {@link Task#submit()} on each one.
+ *
+ * @author Jon Brisbin
+ */
+public abstract class TaskBatch<T> {
+
+	private final List<Task<T>> tasks;
+
+	protected TaskBatch(List<Task<T>> tasks) {
+		this.tasks = tasks;
+	}
+
+	/**
+	 * Get the number of {@link Task}s in this batch, which might be fewer than were asked for.
+	 *
+	 * @return The number of tasks.
+	 */
+	public int size() {
+		return tasks.size();
+	}
+
+	/**
+	 * Get the {@link Task} at the given position in this batch.
+	 *
+	 * @param index The position of the task
+	 * @return The {@link Task} to fill in.
+	 */
+	public Task<T> get(int index) {
+		return tasks.get(index);
+	}
+
+	protected List<Task<T>> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * Submit every {@link Task} in this batch for execution. Implementations might block on this method if there is no
+	 * room to queue the tasks.
+	 */
+	public abstract void submit();
+
+}
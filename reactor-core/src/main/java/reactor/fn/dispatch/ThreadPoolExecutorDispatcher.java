@@ -18,14 +18,17 @@ package reactor.fn.dispatch;
 
 import reactor.fn.Cache;
 import reactor.fn.ConsumerInvoker;
-import reactor.fn.LoadingCache;
+import reactor.fn.RecyclingCache;
 import reactor.fn.Supplier;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
 import reactor.support.NamedDaemonThreadFactory;
+import reactor.util.Assert;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import reactor.fn.ConsumerInvoker;
 import reactor.fn.support.ConverterAwareConsumerInvoker;
@@ -48,8 +51,10 @@ public final class ThreadPoolExecutorDispatcher implements Dispatcher {
 	private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 	private static final int DEFAULT_BACKLOG   = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "128"));
 
-	private final ExecutorService executor;
+	private final ThreadPoolExecutor executor;
 	private final ConsumerInvoker invoker = new ConverterAwareConsumerInvoker();
+	private final int                   backlog;
+	private final OverflowPolicy        overflowPolicy;
 	private final Cache<ThreadPoolTask> readyTasks;
 
 	/**
@@ -64,25 +69,75 @@ public final class ThreadPoolExecutorDispatcher implements Dispatcher {
 	}
 
 	/**
-	 * Creates a new {@literal ThreadPoolExecutorDispatcher} with the given {@literal poolSize} and {@literal backlog}.
+	 * Creates a new {@literal ThreadPoolExecutorDispatcher} that will use the default backlog and pool size and the given
+	 * {@literal waitStrategy}.
+	 *
+	 * @param waitStrategy how the pool's threads wait for tasks
+	 */
+	public ThreadPoolExecutorDispatcher(WaitStrategy waitStrategy) {
+		this(DEFAULT_POOL_SIZE, DEFAULT_BACKLOG, waitStrategy);
+	}
+
+	/**
+	 * Creates a new {@literal ThreadPoolExecutorDispatcher} with the given {@literal poolSize} and {@literal backlog}
+	 * whose threads block while they wait for tasks.
 	 *
 	 * @param poolSize the pool size
 	 * @param backlog  the backlog size
 	 */
 	public ThreadPoolExecutorDispatcher(int poolSize, int backlog) {
-		this.executor = Executors.newFixedThreadPool(
+		this(poolSize, backlog, StandardWaitStrategy.BLOCKING);
+	}
+
+	/**
+	 * Creates a new {@literal ThreadPoolExecutorDispatcher} with the given {@literal poolSize}, {@literal backlog} and
+	 * {@literal waitStrategy}.
+	 *
+	 * @param poolSize     the pool size
+	 * @param backlog      the backlog size
+	 * @param waitStrategy how the pool's threads wait for tasks
+	 */
+	public ThreadPoolExecutorDispatcher(int poolSize, int backlog, WaitStrategy waitStrategy) {
+		this(poolSize, backlog, waitStrategy, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Creates a new {@literal ThreadPoolExecutorDispatcher} whose queue holds no more than {@literal capacity} tasks. When
+	 * the queue is full, the {@literal overflowPolicy} decides what happens to the next task that is submitted.
+	 *
+	 * @param poolSize       the pool size
+	 * @param backlog        the backlog size
+	 * @param waitStrategy   how the pool's threads wait for tasks
+	 * @param capacity       the number of tasks the queue can hold, {@link Integer#MAX_VALUE} meaning no limit
+	 * @param overflowPolicy what to do with a task when the queue is full
+	 */
+	public ThreadPoolExecutorDispatcher(int poolSize,
+																			int backlog,
+																			WaitStrategy waitStrategy,
+																			int capacity,
+																			OverflowPolicy overflowPolicy) {
+		Assert.notNull(waitStrategy, "WaitStrategy cannot be null.");
+		Assert.notNull(overflowPolicy, "OverflowPolicy cannot be null.");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero.");
+		this.backlog = backlog;
+		this.overflowPolicy = overflowPolicy;
+		this.executor = new ThreadPoolExecutor(
 				poolSize,
-				new NamedDaemonThreadFactory("thread-pool-executor-dispatcher")
+				poolSize,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new WaitingQueue(waitStrategy, capacity),
+				new NamedDaemonThreadFactory("thread-pool-executor-dispatcher"),
+				new OverflowHandler()
 		);
-		this.readyTasks = new LoadingCache<ThreadPoolTask>(
+		this.readyTasks = new RecyclingCache<ThreadPoolTask>(
 				new Supplier<ThreadPoolTask>() {
 					@Override
 					public ThreadPoolTask get() {
 						return new ThreadPoolTask();
 					}
 				},
-				backlog,
-				200l
+				backlog
 		);
 	}
 
@@ -104,20 +159,101 @@ public final class ThreadPoolExecutorDispatcher implements Dispatcher {
 
 	@Override
 	public boolean isAlive() {
-		return executor.isShutdown();
+		return !executor.isShutdown();
+	}
+
+	/**
+	 * The backlog is executed by all the threads of the pool.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long queued = executor.getQueue().size() + executor.getActiveCount();
+		executor.shutdown();
+
+		boolean terminated = false;
+		try {
+			terminated = executor.awaitTermination(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		long abandoned = 0;
+		if (!terminated) {
+			for (Runnable r : executor.shutdownNow()) {
+				ThreadPoolTask t = (ThreadPoolTask) r;
+				abandoned++;
+				t.reset();
+				readyTasks.deallocate(t);
+			}
+			// those still running when the threads were interrupted
+			abandoned += executor.getActiveCount();
+		}
+		return new ShutdownReport(Math.max(0, queued - abandoned), abandoned, terminated);
 	}
 
 	@Override
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	public <T> Task<T> nextTask() {
 		Task t = readyTasks.allocate();
-		return (null != t ? t : new ThreadPoolTask());
+		return t;
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	@Override
+	public long remainingCapacity() {
+		int remaining = executor.getQueue().remainingCapacity();
+		return (remaining == Integer.MAX_VALUE ? Long.MAX_VALUE : remaining);
+	}
+
+	/**
+	 * The executor's idle threads wait in {@link #take()}, so that is where the {@link WaitStrategy} comes in.
+	 */
+	private static class WaitingQueue extends LinkedBlockingQueue<Runnable> {
+		private static final long serialVersionUID = 2762324556974744937L;
+
+		private final WaitStrategy waitStrategy;
+
+		private WaitingQueue(WaitStrategy waitStrategy, int capacity) {
+			super(capacity);
+			this.waitStrategy = waitStrategy;
+		}
+
+		@Override
+		public Runnable take() throws InterruptedException {
+			return waitStrategy.waitFor(this);
+		}
+	}
+
+	/**
+	 * Called by the executor when its queue is full, or when it has been shut down.
+	 */
+	private class OverflowHandler implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Dispatcher has been shut down.");
+			}
+			ThreadPoolTask t = (ThreadPoolTask) r;
+			if (!overflowPolicy.offer(executor.getQueue(), t, readyTasks)) {
+				try {
+					overflowPolicy.reject(t, invoker);
+				} finally {
+					t.reset();
+					readyTasks.deallocate(t);
+				}
+			}
+		}
 	}
 
 	private class ThreadPoolTask extends Task<Object> implements Runnable {
 		@Override
 		public void submit() {
-			executor.submit(this);
+			// execute rather than submit, so that the queue only ever holds tasks and never futures wrapping them
+			executor.execute(this);
 		}
 
 		@Override
@@ -125,6 +261,7 @@ public final class ThreadPoolExecutorDispatcher implements Dispatcher {
 			try {
 				execute(invoker);
 			} finally {
+				reset();
 				readyTasks.deallocate(this);
 			}
 		}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Cache;
+import reactor.fn.ConsumerInvoker;
+import reactor.fn.RecyclingCache;
+import reactor.fn.Supplier;
+import reactor.fn.support.ConverterAwareConsumerInvoker;
+import reactor.support.NamedDaemonThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Dispatcher} for consumers that block, on JDBC calls or file I/O for example. Each {@link Task} is run on a
+ * thread of its own, so a consumer that blocks holds up no other consumer. On a JVM that has virtual threads the tasks
+ * run on virtual threads, which makes tens of thousands of blocked consumers cheap. On older JVMs they run on a cached
+ * pool of daemon threads instead, and by default far fewer of them run at once.
+ * <p/>
+ * No more than {@code maxConcurrency} tasks run at once: once that many are running, {@link Task#submit()} waits for
+ * one of them to finish. If the dispatcher is ordered by key, tasks with the same key run one after the other in the
+ * order they were submitted. Keys are then hashed onto {@code maxConcurrency} chains, each of which runs at most one
+ * task at a time, so keys that share a chain also share its order.
+ *
+ * @author Jon Brisbin
+ */
+@SuppressWarnings("rawtypes")
+public class VirtualThreadDispatcher implements Dispatcher {
+
+	private static final boolean VIRTUAL_THREADS         = null != virtualThreadFactory("probe");
+	// each task holds a platform thread of its own when there are no virtual threads, so far fewer may run at once
+	private static final int     DEFAULT_MAX_CONCURRENCY = Integer.parseInt(System.getProperty("reactor.dispatcher.virtual.concurrency",
+			String.valueOf(VIRTUAL_THREADS ? 10000 : 4 * Runtime.getRuntime().availableProcessors())));
+	private static final int     DEFAULT_BACKLOG         = Integer.parseInt(System.getProperty("reactor.dispatcher.backlog", "256"));
+
+	private final ConsumerInvoker invoker = new ConverterAwareConsumerInvoker();
+	private final Cache<Task>     readyTasks;
+	private final int             backlog;
+	private final Executor        executor;
+	private final int             maxConcurrency;
+	private final Semaphore       permits;
+	private final Chain[]         chains;
+
+	private volatile boolean alive = true;
+
+	/**
+	 * Creates a new {@literal VirtualThreadDispatcher} named 'virtual' that runs up to as many tasks at once as the
+	 * {@code reactor.dispatcher.virtual.concurrency} system property says, in no particular order. If the property isn't
+	 * set, that is 10000 on virtual threads, or four times the number of processors on platform threads.
+	 */
+	public VirtualThreadDispatcher() {
+		this("virtual", DEFAULT_MAX_CONCURRENCY, DEFAULT_BACKLOG, false);
+	}
+
+	/**
+	 * Creates a new {@literal VirtualThreadDispatcher}.
+	 *
+	 * @param name           The name, used as a prefix for the names of its threads
+	 * @param maxConcurrency The maximum number of tasks to run at once, which on a JVM without virtual threads is also the
+	 *                       number of platform threads that may be started
+	 * @param backlog        The number of tasks to pool
+	 * @param orderedByKey   Whether tasks with the same key must run one after the other, in the order they were submitted
+	 */
+	public VirtualThreadDispatcher(String name, int maxConcurrency, int backlog, boolean orderedByKey) {
+		this.backlog = backlog;
+		this.readyTasks = new RecyclingCache<Task>(
+				new Supplier<Task>() {
+					@Override
+					public Task get() {
+						return new VirtualThreadTask();
+					}
+				},
+				backlog
+		);
+
+		maxConcurrency = Math.max(1, maxConcurrency);
+		this.maxConcurrency = maxConcurrency;
+		if (orderedByKey) {
+			// each chain runs one task at a time, which bounds the concurrency by itself
+			this.permits = null;
+			this.chains = new Chain[maxConcurrency];
+			for (int i = 0; i < maxConcurrency; i++) {
+				this.chains[i] = new Chain();
+			}
+		} else {
+			this.permits = new Semaphore(maxConcurrency);
+			this.chains = null;
+		}
+
+		final ThreadFactory virtualThreads = virtualThreadFactory(name + "-dispatcher-");
+		if (null != virtualThreads) {
+			// virtual threads are cheap enough to start one per task
+			this.executor = new Executor() {
+				@Override
+				public void execute(Runnable r) {
+					virtualThreads.newThread(r).start();
+				}
+			};
+		} else {
+			this.executor = new ThreadPoolExecutor(
+					0,
+					Integer.MAX_VALUE,
+					60L,
+					TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(),
+					new NamedDaemonThreadFactory(name + "-dispatcher")
+			);
+		}
+	}
+
+	/**
+	 * Whether this JVM has virtual threads for tasks to run on.
+	 *
+	 * @return {@literal true} if tasks run on virtual threads, {@literal false} if they run on platform threads
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL_THREADS;
+	}
+
+	/**
+	 * Get the maximum number of tasks that run at once.
+	 *
+	 * @return The maximum concurrency
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked"})
+	public <T> Task<T> nextTask() {
+		return readyTasks.allocate();
+	}
+
+	@Override
+	public <T> TaskBatch<T> nextTasks(int size) {
+		return new SequentialTaskBatch<T>(this, Math.min(size, backlog));
+	}
+
+	/**
+	 * The number of tasks that can be started before {@link Task#submit()} has to wait for a running one to finish. When
+	 * ordered by key, tasks queue up on their chains without limit.
+	 */
+	@Override
+	public long remainingCapacity() {
+		return (null != permits ? permits.availablePermits() : Long.MAX_VALUE);
+	}
+
+	@Override
+	public VirtualThreadDispatcher destroy() {
+		return stop();
+	}
+
+	@Override
+	public VirtualThreadDispatcher stop() {
+		alive = false;
+		if (executor instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) executor).shutdown();
+		}
+		return this;
+	}
+
+	/**
+	 * The tasks already running, or queued on a chain, all go on in parallel. Chains still only run one task at a time,
+	 * so the order of tasks with the same key is kept.
+	 */
+	@Override
+	public ShutdownReport shutdown(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		alive = false;
+
+		long queued;
+		boolean drained = false;
+		long abandoned = 0;
+		if (null != permits) {
+			queued = maxConcurrency - permits.availablePermits();
+			try {
+				// every task has finished once all the permits can be had
+				drained = permits.tryAcquire(maxConcurrency, timeout, unit);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (drained) {
+				permits.release(maxConcurrency);
+			} else {
+				// those still running have to be let go, there is nothing that would stop them
+				abandoned = maxConcurrency - permits.availablePermits();
+			}
+		} else {
+			queued = 0;
+			for (Chain c : chains) {
+				queued += c.tasks.size() + (c.running.get() ? 1 : 0);
+			}
+			while (!(drained = isIdle()) && System.nanoTime() < deadline) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			if (!drained) {
+				for (Chain c : chains) {
+					Task t;
+					while (null != (t = c.tasks.poll())) {
+						abandoned++;
+						t.reset();
+						readyTasks.deallocate(t);
+					}
+				}
+			}
+		}
+
+		if (executor instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) executor).shutdown();
+		}
+		return new ShutdownReport(Math.max(0, queued - abandoned), abandoned, drained);
+	}
+
+	private boolean isIdle() {
+		for (Chain c : chains) {
+			if (c.running.get() || !c.tasks.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public VirtualThreadDispatcher start() {
+		return this;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return alive;
+	}
+
+	private void run(Task t) {
+		try {
+			t.execute(invoker);
+		} catch (Throwable x) {
+			Logger log = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+			if (log.isErrorEnabled()) {
+				log.error(x.getMessage(), x);
+			}
+		} finally {
+			t.reset();
+			readyTasks.deallocate(t);
+		}
+	}
+
+	/**
+	 * Look up {@code Thread.ofVirtual()} by reflection, so that this class can be compiled for, and loaded by, JVMs that
+	 * don't have virtual threads.
+	 */
+	private static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Method name = builderType.getMethod("name", String.class, long.class);
+			builder = name.invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private class VirtualThreadTask<T> extends Task<T> implements Runnable {
+		@Override
+		public void submit() {
+			if (!alive) {
+				throw new RejectedExecutionException("Dispatcher has been stopped");
+			}
+
+			if (null != chains) {
+				Object key = getKey();
+				int h = (null != key ? key.hashCode() : 0);
+				h ^= (h >>> 16);
+				chains[(h & Integer.MAX_VALUE) % chains.length].add(this);
+				return;
+			}
+
+			permits.acquireUninterruptibly();
+			try {
+				executor.execute(this);
+			} catch (RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				VirtualThreadDispatcher.this.run(this);
+			} finally {
+				permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Runs the tasks queued on it one at a time, on a thread that is started when a task arrives at an idle chain and
+	 * finishes once the chain is empty again.
+	 */
+	private class Chain implements Runnable {
+		final Queue<Task>   tasks   = new ConcurrentLinkedQueue<Task>();
+		final AtomicBoolean running = new AtomicBoolean();
+
+		void add(Task t) {
+			tasks.add(t);
+			if (running.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RuntimeException e) {
+					running.set(false);
+					throw e;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Task t;
+				while (null != (t = tasks.poll())) {
+					VirtualThreadDispatcher.this.run(t);
+				}
+				running.set(false);
+				// a task may have been added after the last poll but before running was cleared
+				if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.dispatch;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decides how a thread that executes the tasks of a queue-based {@link Dispatcher} waits for the next task to arrive:
+ * by blocking, by parking, by yielding or by spinning. This trades the latency of picking up a new task against the
+ * CPU spent while there is none, just as a Disruptor {@link com.lmax.disruptor.WaitStrategy} does for a {@link
+ * RingBufferDispatcher}.
+ * <p/>
+ * Implementations must only use the {@code poll} methods of the queue, so that a queue can route its own {@link
+ * BlockingQueue#take()} through a {@literal WaitStrategy}.
+ *
+ * @author Jon Brisbin
+ * @see StandardWaitStrategy
+ */
+public interface WaitStrategy {
+
+	/**
+	 * Wait until the given queue has an element and remove it.
+	 *
+	 * @param queue The queue to take an element from
+	 * @param <E>   The type of the queue's elements
+	 * @return The element, never {@literal null}
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	<E> E waitFor(BlockingQueue<E> queue) throws InterruptedException;
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.support;
+
+import reactor.convert.Converter;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+
+/**
+ * Works out once, when a {@link Consumer} is registered, what it wants to be passed for each {@link Event}: the {@link
+ * Event} itself, or the data inside it, converted if need be. Adapting an argument then takes no reflection, and
+ * doesn't rely on catching the {@link ClassCastException} thrown by passing the wrong one.
+ *
+ * @author Jon Brisbin
+ */
+public final class ArgumentAdapter {
+
+	private static final ArgumentAdapter PASS_EVENT = new ArgumentAdapter(null);
+
+	// null when the consumer takes the event itself
+	private final Class<?> argType;
+
+	private ArgumentAdapter(Class<?> argType) {
+		this.argType = argType;
+	}
+
+	/**
+	 * Get the {@literal ArgumentAdapter} for the given {@link Consumer}, from the type of the argument its {@code accept}
+	 * method declares.
+	 *
+	 * @param consumer The {@link Consumer}
+	 * @return The {@literal ArgumentAdapter} to use for every argument passed to the {@literal consumer}
+	 */
+	public static ArgumentAdapter forConsumer(Consumer<?> consumer) {
+		Class<?> argType = ConsumerUtils.resolveArgType(consumer);
+		if (argType.isAssignableFrom(Event.class)) {
+			return PASS_EVENT;
+		}
+		return new ArgumentAdapter(argType);
+	}
+
+	/**
+	 * Whether the {@link Consumer} takes the {@link Event} itself, rather than its data.
+	 *
+	 * @return {@literal true} if arguments are passed through as they are, {@literal false} otherwise
+	 */
+	public boolean isPassThrough() {
+		return null == argType;
+	}
+
+	/**
+	 * Turn the given argument into what the {@link Consumer} wants: the argument as it is, or, if it is an {@link Event},
+	 * its data, converted with the given {@link Converter} if it isn't of the right type. If it can't be converted, the
+	 * data is returned as it is and the consumer will fail as it would have done anyway.
+	 *
+	 * @param arg       The argument, usually an {@link Event}
+	 * @param converter The {@link Converter} to use. May be {@literal null}.
+	 * @return The argument to pass to the {@link Consumer}
+	 */
+	public Object adapt(Object arg, Converter converter) {
+		if (null == argType || argType.isInstance(arg)) {
+			return arg;
+		}
+		Object data = (arg instanceof Event ? ((Event<?>) arg).getData() : arg);
+		if (null == data || argType.isInstance(data)) {
+			return data;
+		}
+		if (null != converter && converter.canConvert(data.getClass(), argType)) {
+			return converter.convert(data, argType);
+		}
+		return data;
+	}
+
+}
@@ -78,7 +78,8 @@ public abstract class ConsumerUtils {
 
 		if (null == clazz) {
 			for (Method m : obj.getClass().getDeclaredMethods()) {
-				if ("accept".equals(m.getName()) && m.getParameterTypes().length == 1) {
+				// the bridge method generated for a generic consumer always takes Object, whatever the consumer is declared to take
+				if ("accept".equals(m.getName()) && m.getParameterTypes().length == 1 && !m.isBridge()) {
 					clazz = (Class<? extends T>) m.getParameterTypes()[0];
 					CACHE_WRITE_LOCK.lock();
 					try {
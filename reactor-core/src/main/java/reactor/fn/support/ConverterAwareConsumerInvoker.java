@@ -33,6 +33,10 @@ import java.util.concurrent.Callable;
  * argument to the consumer, this invoker will unwrap that {@literal Event} and try to invoke the consumer using the
  * data itself.
  * <p/>
+ * Consumers that are selected from a {@link reactor.fn.Registry} are passed an argument already adapted by the {@link
+ * ArgumentAdapter} of their {@link reactor.fn.Registration}, so that the first attempt succeeds and none of the above
+ * happens on the way to them.
+ * <p/>
  * Finally, if the {@literal Consumer} also implements {@link Callable}, then it will invoke the {@link
  * java.util.concurrent.Callable#call()} method to obtain a return value and return that. Otherwise it will return
  * {@literal null} or throw any raised exceptions.
@@ -16,16 +16,22 @@
 
 package reactor.fn.support;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Represents a URI template. A URI template is a URI-like String that contains variables enclosed by braces
  * (<code>{</code>, <code>}</code>), which can be expanded to produce an actual URI.
+ * <p/>
+ * Templates whose path segments are each either plain text, a single <code>{name}</code> variable, a
+ * <code>**</code> splat or a <code>{name}**</code> named splat are matched segment by segment without using a regular
+ * expression. Any other template is compiled into a {@link Pattern}.
+ * <p/>
+ * Instances are thread-safe. Each thread matching against the compiled {@link Pattern} reuses its own {@link Matcher},
+ * and the variables resolved by {@link #match(String)} are kept in a bounded cache whose size can be set with the
+ * {@code reactor.uritemplate.cache.size} system property.
  *
  * @author Arjen Poutsma
  * @author Juergen Hoeller
@@ -34,6 +40,9 @@ import java.util.regex.Pattern;
  */
 public class UriTemplate {
 
+	private static final String REGEX_METACHARACTERS = "\\.[]{}()*+?^$|";
+	private static final int    MAX_CACHED_MATCHES   = Integer.parseInt(System.getProperty("reactor.uritemplate.cache.size", "256"));
+
 	private static final Pattern FULL_SPLAT_PATTERN     = Pattern.compile("[\\*][\\*]");
 	private static final String  FULL_SPLAT_REPLACEMENT = ".*";
 
@@ -47,11 +56,17 @@ public class UriTemplate {
 	//private static final String  NAME_REPLACEMENT = "(?<%NAME%>[^\\/.]*)";
 	private static final String  NAME_REPLACEMENT = "([^\\/.]*)";
 
-	private final List<String>                         pathVariables = new ArrayList<String>();
-	private final HashMap<String, Matcher>             matchers      = new HashMap<String, Matcher>();
-	private final HashMap<String, Map<String, String>> vars          = new HashMap<String, Map<String, String>>();
+	private final List<String>                                   pathVariables = new ArrayList<String>();
+	private final ConcurrentHashMap<String, Map<String, String>> vars          = new ConcurrentHashMap<String, Map<String, String>>();
+	private final ThreadLocal<Matcher>                           matchers      = new ThreadLocal<Matcher>() {
+		@Override
+		protected Matcher initialValue() {
+			return uriPattern.matcher("");
+		}
+	};
 
-	private final Pattern uriPattern;
+	private final Pattern  uriPattern;
+	private final String[] segments;
 
 	public UriTemplate(String uriPattern) {
 		String s = "^" + uriPattern;
@@ -83,16 +98,36 @@ public class UriTemplate {
 		}
 
 		this.uriPattern = Pattern.compile(s + "$");
+		this.segments = parseSegments(uriPattern);
 	}
 
 	public Pattern getUriPattern() {
 		return uriPattern;
 	}
 
+	/**
+	 * Get the path segments of this template if it can be matched without a regular expression. Each segment is either
+	 * plain text, <code>{name}</code>, <code>**</code>, or <code>{name}**</code>.
+	 *
+	 * @return The segments of this template, or {@literal null} if it has to be matched using its {@link Pattern}.
+	 */
+	public String[] getSegments() {
+		return (null != segments ? segments.clone() : null);
+	}
+
 	public boolean matches(String uri) {
+		if (null != segments) {
+			return matchSegments(segments, 0, splitSegments(uri), 0, null);
+		}
 		return matcher(uri).matches();
 	}
 
+	/**
+	 * Resolve the values of this template's variables from the given uri.
+	 *
+	 * @param uri The uri to match
+	 * @return A read-only map of variable names to values, which is empty if the uri doesn't match
+	 */
 	public Map<String, String> match(String uri) {
 		Map<String, String> pathParameters = vars.get(uri);
 		if (null != pathParameters) {
@@ -100,30 +135,166 @@ public class UriTemplate {
 		}
 
 		pathParameters = new HashMap<String, String>();
-		Matcher m = matcher(uri);
-		if (m.matches()) {
-			int i = 1;
-			for (String name : pathVariables) {
-				String val = m.group(i++);
-				pathParameters.put(name, val);
+		if (null != segments) {
+			if (!matchSegments(segments, 0, splitSegments(uri), 0, pathParameters)) {
+				pathParameters.clear();
+			}
+		} else {
+			Matcher m = matcher(uri);
+			if (m.matches()) {
+				int i = 1;
+				for (String name : pathVariables) {
+					String val = m.group(i++);
+					pathParameters.put(name, val);
+				}
 			}
 		}
-		synchronized (vars) {
-			vars.put(uri, pathParameters);
+		pathParameters = (pathParameters.isEmpty()
+				? Collections.<String, String>emptyMap()
+				: Collections.unmodifiableMap(pathParameters));
+
+		if (vars.size() >= MAX_CACHED_MATCHES) {
+			// cheaper than tracking recency; the hot uris find their way back in straight away
+			vars.clear();
 		}
+		vars.put(uri, pathParameters);
 
 		return pathParameters;
 	}
 
-	private Matcher matcher(String uri) {
-		Matcher m = matchers.get(uri);
-		if (null == m) {
-			m = uriPattern.matcher(uri);
-			synchronized (matchers) {
-				matchers.put(uri, m);
+	/**
+	 * Split a path into its segments. A path of {@code n} slashes has {@code n + 1} segments, some of which may be empty.
+	 *
+	 * @param path The path to split
+	 * @return The segments of the path
+	 */
+	public static String[] splitSegments(String path) {
+		int count = 1;
+		for (int i = path.indexOf('/'); i >= 0; i = path.indexOf('/', i + 1)) {
+			count++;
+		}
+		String[] segments = new String[count];
+		int start = 0;
+		for (int i = 0; i < count - 1; i++) {
+			int end = path.indexOf('/', start);
+			segments[i] = path.substring(start, end);
+			start = end + 1;
+		}
+		segments[count - 1] = path.substring(start);
+		return segments;
+	}
+
+	/**
+	 * Whether a template segment is a splat, matching one or more whole path segments.
+	 *
+	 * @param segment The template segment
+	 * @return {@literal true} for <code>**</code> and <code>{name}**</code>
+	 */
+	public static boolean isSplat(String segment) {
+		return segment.endsWith("**");
+	}
+
+	/**
+	 * Whether a template segment captures a variable.
+	 *
+	 * @param segment The template segment
+	 * @return {@literal true} for <code>{name}</code> and <code>{name}**</code>
+	 */
+	public static boolean isVariable(String segment) {
+		return segment.startsWith("{");
+	}
+
+	/**
+	 * Get the name of the variable captured by a template segment.
+	 *
+	 * @param segment The template segment
+	 * @return The variable name
+	 */
+	public static String variableName(String segment) {
+		return segment.substring(1, segment.indexOf('}'));
+	}
+
+	/**
+	 * Whether a path segment can be captured by a <code>{name}</code> template segment.
+	 *
+	 * @param segment The path segment
+	 * @return {@literal true} if the value doesn't contain a {@code '.'}
+	 */
+	public static boolean isVariableValue(String segment) {
+		return segment.indexOf('.') < 0;
+	}
+
+	private static boolean matchSegments(String[] tmpl, int ti, String[] path, int pi, Map<String, String> vars) {
+		if (ti == tmpl.length) {
+			return pi == path.length;
+		}
+		if (pi == path.length) {
+			return false;
+		}
+
+		String t = tmpl[ti];
+		if (isSplat(t)) {
+			// a splat consumes at least one path segment and may consume the rest of them
+			for (int end = pi + 1; end <= path.length; end++) {
+				if (matchSegments(tmpl, ti + 1, path, end, vars)) {
+					if (null != vars && isVariable(t)) {
+						StringBuilder sb = new StringBuilder(path[pi]);
+						for (int i = pi + 1; i < end; i++) {
+							sb.append('/').append(path[i]);
+						}
+						vars.put(variableName(t), sb.toString());
+					}
+					return true;
+				}
+			}
+			return false;
+		} else if (isVariable(t)) {
+			if (!isVariableValue(path[pi]) || !matchSegments(tmpl, ti + 1, path, pi + 1, vars)) {
+				return false;
+			}
+			if (null != vars) {
+				vars.put(variableName(t), path[pi]);
 			}
+			return true;
+		} else {
+			return t.equals(path[pi]) && matchSegments(tmpl, ti + 1, path, pi + 1, vars);
 		}
-		return m;
+	}
+
+	/*
+	 * Only templates whose literal text contains no regex metacharacters can be matched segment by segment and still
+	 * behave exactly like the compiled pattern.
+	 */
+	private static String[] parseSegments(String template) {
+		String[] segments = splitSegments(template);
+		for (String segment : segments) {
+			String literal;
+			if ("**".equals(segment)) {
+				continue;
+			} else if (segment.startsWith("{")) {
+				int close = segment.indexOf('}');
+				if (close < 2 || segment.indexOf('{', 1) >= 0) {
+					return null;
+				}
+				literal = segment.substring(close + 1);
+				if (literal.length() > 0 && !"**".equals(literal)) {
+					return null;
+				}
+				continue;
+			} else {
+				literal = segment;
+			}
+			for (int i = 0; i < literal.length(); i++) {
+				if (REGEX_METACHARACTERS.indexOf(literal.charAt(i)) >= 0) {
+					return null;
+				}
+			}
+		}
+		return segments;
+	}
+
+	private Matcher matcher(String uri) {
+		return matchers.get().reset(uri);
 	}
 
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.fn.Consumer;
+import reactor.fn.Lifecycle;
+import reactor.util.Assert;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A timer that can hold any number of pending timeouts with a single thread. Time is divided into ticks and the
+ * timeouts are kept in a wheel of buckets, one bucket for each tick of a turn of the wheel; on every tick the thread
+ * fires the timeouts in the next bucket that are due on this turn. Scheduling and cancelling a timeout only adds it to
+ * a lock-free queue that the thread drains on its next tick, so both take constant time whatever the number of pending
+ * timeouts, at the price of firing up to a tick late.
+ * <p/>
+ * The timer's thread runs the {@link Consumer} of each timeout itself, so consumers should only hand off work, for
+ * example by notifying a {@link reactor.core.Reactor}, which is what {@link reactor.fn.Observable#schedule} does.
+ * <p/>
+ * The thread is started when the first timeout is scheduled. By default the timer ticks every {@code
+ * reactor.timer.tick} milliseconds (10 unless set) and has {@code reactor.timer.wheelSize} buckets (512 unless set).
+ *
+ * @author Jon Brisbin
+ */
+public class HashedWheelTimer implements Lifecycle<HashedWheelTimer> {
+
+	private static final long          DEFAULT_TICK       = Long.parseLong(System.getProperty("reactor.timer.tick", "10"));
+	private static final int           DEFAULT_WHEEL_SIZE = Integer.parseInt(System.getProperty("reactor.timer.wheelSize", "512"));
+	private static final AtomicInteger INSTANCE_COUNT     = new AtomicInteger();
+
+	private static final int NEW       = 0;
+	private static final int STARTED   = 1;
+	private static final int STOPPED   = 2;
+	// the number of new timeouts moved onto the wheel each tick, so that a flood of them can't stall the wheel
+	private static final int MAX_MOVES = 100000;
+
+	private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<Entry>();
+	private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<Entry>();
+	private final AtomicInteger state     = new AtomicInteger(NEW);
+	private final AtomicLong    pending   = new AtomicLong();
+
+	private final long     tickNanos;
+	private final Bucket[] wheel;
+	private final int      mask;
+	private final Thread   worker;
+
+	// counted down once startTime has been set, as a thread that loses the race to start the timer has to wait for it
+	private final CountDownLatch startTimeSet = new CountDownLatch(1);
+	private volatile long startTime;
+
+	/**
+	 * Creates a new {@literal HashedWheelTimer} with the default tick and wheel size.
+	 */
+	public HashedWheelTimer() {
+		this("timer", DEFAULT_TICK, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Creates a new {@literal HashedWheelTimer}.
+	 *
+	 * @param name      The name of the timer's thread
+	 * @param tick      How long a tick is, which is how precise the timer is
+	 * @param unit      The unit of the tick
+	 * @param wheelSize The number of buckets, rounded up to a power of two. One turn of the wheel takes this many ticks.
+	 */
+	public HashedWheelTimer(String name, long tick, TimeUnit unit, int wheelSize) {
+		Assert.isTrue(tick > 0, "Tick must be greater than zero.");
+		Assert.isTrue(wheelSize > 0, "Wheel size must be greater than zero.");
+		this.tickNanos = Math.max(unit.toNanos(tick), TimeUnit.MILLISECONDS.toNanos(1));
+
+		int size = 1;
+		while (size < wheelSize) {
+			size <<= 1;
+		}
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+
+		this.worker = new Thread(new Worker(), name + "-" + INSTANCE_COUNT.incrementAndGet());
+		this.worker.setDaemon(true);
+	}
+
+	/**
+	 * Schedule a {@link Consumer} to be called once, after the given delay. The consumer is passed the time, in
+	 * milliseconds, at which it was called.
+	 *
+	 * @param consumer The consumer to call
+	 * @param delay    The delay
+	 * @param unit     The unit of the delay
+	 * @return A {@link Timeout} with which to cancel it
+	 */
+	public Timeout schedule(Consumer<Long> consumer, long delay, TimeUnit unit) {
+		return schedule(consumer, delay, 0, unit);
+	}
+
+	/**
+	 * Schedule a {@link Consumer} to be called after the given delay, and then every {@literal period} until it is
+	 * cancelled. The consumer is passed the time, in milliseconds, at which it was called.
+	 *
+	 * @param consumer The consumer to call
+	 * @param delay    The delay before the first call
+	 * @param period   The time between calls, or 0 to only call it once
+	 * @param unit     The unit of the delay and period
+	 * @return A {@link Timeout} with which to cancel it
+	 */
+	public Timeout schedule(Consumer<Long> consumer, long delay, long period, TimeUnit unit) {
+		Assert.notNull(consumer, "Consumer cannot be null.");
+		Assert.isTrue(delay >= 0, "Delay cannot be negative.");
+		Assert.isTrue(period >= 0, "Period cannot be negative.");
+		start();
+		if (state.get() == STOPPED) {
+			throw new IllegalStateException("Timer has been stopped.");
+		}
+		awaitStartTime();
+
+		Entry e = new Entry(consumer, System.nanoTime() - startTime + unit.toNanos(delay), unit.toNanos(period));
+		pending.incrementAndGet();
+		scheduled.add(e);
+		return e;
+	}
+
+	/**
+	 * Get the number of timeouts that haven't fired yet, including the periodic ones.
+	 *
+	 * @return The number of pending timeouts
+	 */
+	public long getPendingTimeouts() {
+		return pending.get();
+	}
+
+	@Override
+	public HashedWheelTimer destroy() {
+		return stop();
+	}
+
+	/**
+	 * Stop the timer's thread. Timeouts that haven't fired yet never will.
+	 */
+	@Override
+	public HashedWheelTimer stop() {
+		if (state.getAndSet(STOPPED) == STARTED) {
+			worker.interrupt();
+		}
+		return this;
+	}
+
+	@Override
+	public HashedWheelTimer start() {
+		if (state.compareAndSet(NEW, STARTED)) {
+			startTime = System.nanoTime();
+			startTimeSet.countDown();
+			worker.start();
+		}
+		return this;
+	}
+
+	private void awaitStartTime() {
+		boolean interrupted = false;
+		while (startTimeSet.getCount() > 0) {
+			try {
+				startTimeSet.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isAlive() {
+		return state.get() == STARTED;
+	}
+
+	private class Worker implements Runnable {
+		// only touched by the worker thread
+		private long tick;
+
+		@Override
+		public void run() {
+			while (state.get() == STARTED) {
+				long deadline = tickNanos * (tick + 1);
+				long sleep = deadline - (System.nanoTime() - startTime);
+				if (sleep > 0) {
+					try {
+						Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleep), (int) (sleep % 1000000));
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+					continue;
+				}
+
+				removeCancelled();
+				moveScheduled();
+				expire(wheel[(int) (tick & mask)], deadline);
+				tick++;
+			}
+		}
+
+		private void removeCancelled() {
+			Entry e;
+			while (null != (e = cancelled.poll())) {
+				if (null != e.bucket) {
+					e.bucket.remove(e);
+				}
+			}
+		}
+
+		private void moveScheduled() {
+			Entry e;
+			for (int i = 0; i < MAX_MOVES && null != (e = scheduled.poll()); i++) {
+				if (!e.isCancelled()) {
+					place(e, tick);
+				}
+			}
+		}
+
+		private void place(Entry e, long earliestTick) {
+			// a timeout that is already due goes into the earliest bucket there is, to fire as soon as possible
+			long ticks = Math.max(e.deadline / tickNanos, earliestTick);
+			wheel[(int) (ticks & mask)].add(e);
+		}
+
+		private void expire(Bucket bucket, long deadline) {
+			Entry e = bucket.head;
+			while (null != e) {
+				Entry next = e.next;
+				// a bucket holds the timeouts of every turn of the wheel, only fire those of this one
+				if (e.deadline < deadline) {
+					bucket.remove(e);
+					fire(e);
+				}
+				e = next;
+			}
+		}
+
+		private void fire(Entry e) {
+			if (e.isCancelled()) {
+				return;
+			}
+			if (e.period == 0 && !e.state.compareAndSet(Entry.WAITING, Entry.EXPIRED)) {
+				return;
+			}
+			if (e.period == 0) {
+				pending.decrementAndGet();
+			}
+			try {
+				e.consumer.accept(System.currentTimeMillis());
+			} catch (Throwable x) {
+				Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+				if (log.isErrorEnabled()) {
+					log.error(x.getMessage(), x);
+				}
+			}
+			if (e.period > 0 && !e.isCancelled()) {
+				// measured from the first deadline, so that the period doesn't drift by however late each firing was
+				e.deadline += e.period;
+				place(e, tick + 1);
+			}
+		}
+	}
+
+	private class Entry implements Timeout {
+		static final int WAITING   = 0;
+		static final int CANCELLED = 1;
+		static final int EXPIRED   = 2;
+
+		final AtomicInteger  state = new AtomicInteger(WAITING);
+		final Consumer<Long> consumer;
+		final long           period;
+		// the rest is only touched by the worker thread
+		long   deadline;
+		Bucket bucket;
+		Entry  prev;
+		Entry  next;
+
+		Entry(Consumer<Long> consumer, long deadline, long period) {
+			this.consumer = consumer;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (!state.compareAndSet(WAITING, CANCELLED)) {
+				return false;
+			}
+			pending.decrementAndGet();
+			cancelled.add(this);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of entries, so that a cancelled entry can be taken out without searching for it.
+	 */
+	private static class Bucket {
+		Entry head;
+		Entry tail;
+
+		void add(Entry e) {
+			e.bucket = this;
+			e.prev = tail;
+			e.next = null;
+			if (null == tail) {
+				head = e;
+			} else {
+				tail.next = e;
+			}
+			tail = e;
+		}
+
+		void remove(Entry e) {
+			if (null == e.prev) {
+				head = e.next;
+			} else {
+				e.prev.next = e.next;
+			}
+			if (null == e.next) {
+				tail = e.prev;
+			} else {
+				e.next.prev = e.prev;
+			}
+			e.bucket = null;
+			e.prev = null;
+			e.next = null;
+		}
+	}
+
+}
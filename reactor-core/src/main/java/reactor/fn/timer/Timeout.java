@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.timer;
+
+/**
+ * A handle on something scheduled with a {@link HashedWheelTimer}, that can be used to cancel it.
+ *
+ * @author Jon Brisbin
+ */
+public interface Timeout {
+
+	/**
+	 * Cancel this {@literal Timeout}, so that it doesn't fire, or for a periodic one, doesn't fire again.
+	 *
+	 * @return {@literal true} if it was cancelled, {@literal false} if it had already fired, for good, or been cancelled
+	 */
+	boolean cancel();
+
+	/**
+	 * Whether this {@literal Timeout} has been cancelled.
+	 *
+	 * @return {@literal true} if cancelled, {@literal false} otherwise
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Whether this {@literal Timeout} has fired. A periodic one never expires: it fires until it is cancelled.
+	 *
+	 * @return {@literal true} if it has fired and won't fire again, {@literal false} otherwise
+	 */
+	boolean isExpired();
+
+}
@@ -18,6 +18,9 @@ package reactor.core;
 
 import static org.junit.Assert.assertEquals;
 import static reactor.Fn.$;
+import static reactor.Fn.R;
+import static reactor.Fn.T;
+import static reactor.Fn.U;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,6 +32,7 @@ import org.junit.Test;
 import reactor.fn.Registration;
 import reactor.fn.SelectionStrategy;
 import reactor.fn.Selector;
+import reactor.fn.selector.BaseSelector;
 
 public final class CachingRegistryTests {
 
@@ -87,7 +91,7 @@ public final class CachingRegistryTests {
 	}
 
 	@Test
-	public void cacheIsRefreshedWhenANewRegistrationWithTheSameSelectorIsMade() {
+	public void cacheIsUpdatedInPlaceWhenANewRegistrationWithTheSameSelectorIsMade() {
 		String key = "selector";
 		Selector selector = $(key);
 
@@ -100,14 +104,13 @@ public final class CachingRegistryTests {
 
 		this.cachingRegistry.register(selector, "bravo");
 
-		this.cachingRegistry.select(key);
-		this.cachingRegistry.select(key);
-
-		assertEquals(2, this.cacheMisses.get());
+		assertEquals(Arrays.asList("alpha", "bravo"), selectObjects(key));
+		assertEquals(1, this.cacheMisses.get());
+		assertEquals(1, this.cachingRegistry.getInvalidatedKeyCount());
 	}
 
 	@Test
-	public void cacheIsRefreshedWhenANewRegistrationWithADifferentSelectorIsMade() {
+	public void cacheIsNotInvalidatedWhenANewRegistrationWithADifferentSelectorIsMade() {
 		String key1 = "selector";
 		Selector selector1 = $(key1);
 
@@ -126,7 +129,158 @@ public final class CachingRegistryTests {
 		this.cachingRegistry.select(key1);
 		this.cachingRegistry.select(key1);
 
+		assertEquals(1, this.cacheMisses.get());
+		assertEquals(0, this.cachingRegistry.getInvalidatedKeyCount());
+	}
+
+	@Test
+	public void cancelledRegistrationsAreRemovedFromTheCache() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		Registration<String> alpha = this.cachingRegistry.register(selector, "alpha");
+		this.cachingRegistry.register(selector, "bravo");
+		this.cachingRegistry.select(key);
+		this.cachingRegistry.select("other");
+
+		alpha.cancel();
+
+		assertEquals(Arrays.asList("bravo"), selectObjects(key));
 		assertEquals(2, this.cacheMisses.get());
+		assertEquals(1, this.cachingRegistry.getInvalidatedKeyCount());
+	}
+
+	@Test
+	public void cacheIsBoundedAndEvictsLeastRecentlyUsedKeys() {
+		CachingRegistry<Object> registry = new CacheMissCountingCachingRegistry<Object>(null, null, 2, 1, cacheMisses);
+		registry.register($("alpha"), "alpha");
+		registry.register($("bravo"), "bravo");
+		registry.register($("charlie"), "charlie");
+
+		registry.select("alpha");
+		registry.select("bravo");
+		registry.select("alpha");
+		registry.select("charlie");
+
+		assertEquals(2, registry.getCacheSize());
+		assertEquals(1, registry.getEvictedKeyCount());
+
+		registry.select("alpha");
+		assertEquals(3, this.cacheMisses.get());
+
+		registry.select("bravo");
+		assertEquals(4, this.cacheMisses.get());
+	}
+
+	@Test
+	public void keysWithNoRegistrationsUseTheirOwnBudget() {
+		CachingRegistry<Object> registry = new CacheMissCountingCachingRegistry<Object>(null, null, 2, 1, cacheMisses);
+		registry.register($("alpha"), "alpha");
+
+		registry.select("alpha");
+		registry.select("unknown1");
+		registry.select("unknown2");
+
+		assertEquals(2, registry.getCacheSize());
+
+		registry.select("alpha");
+		registry.select("unknown2");
+		assertEquals(3, this.cacheMisses.get());
+
+		registry.register($("unknown2"), "unknown2");
+		assertEquals(Arrays.asList("unknown2"), selectObjects(registry, "unknown2"));
+		assertEquals(3, this.cacheMisses.get());
+	}
+
+	@Test
+	public void indexedAndUnindexedSelectorsAreSelectedInRegistrationOrder() {
+		this.cachingRegistry.register(T(Number.class), "number");
+		this.cachingRegistry.register(R("java.*"), "regex");
+		this.cachingRegistry.register($(Integer.class), "exact");
+		this.cachingRegistry.register(T(Comparable.class), "comparable");
+		this.cachingRegistry.register(T(Object.class), "object");
+		this.cachingRegistry.register(T(String.class), "string");
+
+		assertEquals(Arrays.asList("number", "exact", "comparable", "object"), selectObjects(Integer.class));
+		assertEquals(Arrays.asList("object"), selectObjects(Runnable.class));
+		assertEquals(Arrays.asList("regex"), selectObjects("java.lang"));
+	}
+
+	@Test
+	public void arrayKeysMatchSelectorsForTheArraysOfTheirComponentsSupertypes() {
+		this.cachingRegistry.register(T(Object[].class), "objects");
+		this.cachingRegistry.register(T(CharSequence[].class), "sequences");
+		this.cachingRegistry.register(T(Object[][].class), "nested");
+		this.cachingRegistry.register(T(Cloneable.class), "cloneable");
+
+		assertEquals(Arrays.asList("objects", "sequences", "cloneable"), selectObjects(String[].class));
+		assertEquals(Arrays.asList("objects", "nested", "cloneable"), selectObjects(String[][].class));
+		assertEquals(Arrays.asList("cloneable"), selectObjects(int[].class));
+	}
+
+	@Test
+	public void customSelectorsAreTestedAlongsideIndexedOnes() {
+		final AtomicInteger matchCalls = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			this.cachingRegistry.register(new BaseSelector<String>("key" + i), "value" + i);
+		}
+		this.cachingRegistry.register(new BaseSelector<String>("key50") {
+			@Override
+			public boolean matches(Object key) {
+				matchCalls.incrementAndGet();
+				return super.matches(key);
+			}
+		}, "custom");
+
+		assertEquals(Arrays.asList("value50", "custom"), selectObjects("key50"));
+		assertEquals(1, matchCalls.get());
+
+		this.cachingRegistry.unregister("key50");
+		assertEquals(Arrays.asList(), selectObjects("key50"));
+	}
+
+	@Test
+	public void uriTemplatesAreMatchedThroughThePathIndex() {
+		this.cachingRegistry.register(U("/orders/{id}"), "order");
+		this.cachingRegistry.register(U("/orders/**"), "orders");
+		this.cachingRegistry.register($("/orders/1"), "exact");
+		this.cachingRegistry.register(U("/orders/{id}/items/{item}"), "item");
+		this.cachingRegistry.register(U("/**/**"), "any");
+
+		assertEquals(Arrays.asList("order", "orders", "exact", "any"), selectObjects("/orders/1"));
+		assertEquals(Arrays.asList("orders", "item", "any"), selectObjects("/orders/1/items/2"));
+		assertEquals(Arrays.asList("orders", "any"), selectObjects("/orders/1.json"));
+		assertEquals(Arrays.asList(), selectObjects("orders"));
+	}
+
+	@Test
+	public void regexSelectorsAreMatchedThroughTheAutomaton() {
+		this.cachingRegistry.register(R("order\\.([0-9]+)"), "order");
+		this.cachingRegistry.register(R("order\\..*"), "orders");
+		this.cachingRegistry.register($("order.1"), "exact");
+		this.cachingRegistry.register(R("(order)\\.\\1"), "backreference");
+		this.cachingRegistry.register(R("[a-z]+\\.[0-9]+"), "any");
+
+		assertEquals(Arrays.asList("order", "orders", "exact", "any"), selectObjects("order.1"));
+		assertEquals(Arrays.asList("orders", "backreference"), selectObjects("order.order"));
+		assertEquals(Arrays.asList("any"), selectObjects("invoice.1"));
+		assertEquals(Arrays.asList(), selectObjects("ORDER.1"));
+
+		this.cachingRegistry.unregister("order.1");
+		this.cachingRegistry.register(R("order\\.1"), "again");
+		assertEquals(Arrays.asList("again"), selectObjects("order.1"));
+	}
+
+	private List<Object> selectObjects(Object key) {
+		return selectObjects(this.cachingRegistry, key);
+	}
+
+	private static List<Object> selectObjects(CachingRegistry<Object> registry, Object key) {
+		List<Object> objects = new ArrayList<Object>();
+		for (Registration<? extends Object> registration : registry.select(key)) {
+			objects.add(registration.getObject());
+		}
+		return objects;
 	}
 
 	private static final class CacheMissCountingCachingRegistry<T> extends CachingRegistry<T> {
@@ -140,6 +294,14 @@ public final class CachingRegistryTests {
 			this.cacheMisses = cacheMisses;
 		}
 
+		public CacheMissCountingCachingRegistry(
+				reactor.fn.Registry.LoadBalancingStrategy loadBalancingStrategy,
+				SelectionStrategy selectionStrategy, int maxCacheSize, int maxNegativeCacheSize,
+				AtomicInteger cacheMisses) {
+			super(loadBalancingStrategy, selectionStrategy, maxCacheSize, maxNegativeCacheSize);
+			this.cacheMisses = cacheMisses;
+		}
+
 		@Override
 		protected void cacheMiss(Object key) {
 			this.cacheMisses.incrementAndGet();
@@ -19,14 +19,19 @@ package reactor.core;
 import org.hamcrest.Matcher;
 import org.junit.Test;
 import reactor.fn.*;
+import reactor.fn.dispatch.SynchronousDispatcher;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.CoreMatchers.everyItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.number.OrderingComparison.lessThan;
 import static reactor.Fn.$;
@@ -205,6 +210,46 @@ public class ComposableTests {
 		await(c, is(15));
 	}
 
+	@Test
+	public void fusedStagesRunOnTheThreadThatAcceptedTheValue() throws InterruptedException {
+		Composable<String> c = new Composable<String>(new SynchronousDispatcher());
+		final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+		final List<Integer> odd = new CopyOnWriteArrayList<Integer>();
+
+		Composable<Integer> filtered = c
+				.map(STRING_2_INTEGER)
+				.filter(new Function<Integer, Boolean>() {
+					@Override
+					public Boolean apply(Integer i) {
+						return i % 2 != 0;
+					}
+				})
+				.consume(new Consumer<Integer>() {
+					@Override
+					public void accept(Integer i) {
+						odd.add(i);
+					}
+				});
+		Composable<Integer> taken = filtered
+				.map(new Function<Integer, Integer>() {
+					@Override
+					public Integer apply(Integer i) {
+						threads.add(Thread.currentThread());
+						return i * 10;
+					}
+				})
+				.take(2);
+
+		for (String s : Arrays.asList("1", "2", "3", "4", "5")) {
+			c.accept(s);
+		}
+
+		assertThat(odd, contains(1, 3, 5));
+		assertThat(threads, everyItem(is(Thread.currentThread())));
+		assertThat(threads.size(), is(3));
+		await(taken, is(30));
+	}
+
 	<T> void await(Deferred<T> d, Matcher<T> expected) throws InterruptedException {
 		long startTime = System.currentTimeMillis();
 		T result = null;
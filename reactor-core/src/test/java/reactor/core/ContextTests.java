@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import org.junit.Test;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.ShutdownReport;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static reactor.Fn.$;
+
+/**
+ * @author Jon Brisbin
+ */
+public class ContextTests {
+
+	@Test
+	public void dispatchersAreHandedOutRoundRobin() {
+		Context context = new Context(3);
+		try {
+			Set<Dispatcher> dispatchers = new HashSet<Dispatcher>();
+			for (int i = 0; i < 30; i++) {
+				dispatchers.add(context.nextDispatcher());
+			}
+			assertThat(dispatchers, hasSize(3));
+		} finally {
+			context.shutdown();
+		}
+	}
+
+	@Test
+	public void defaultReactorsShareTheDefaultEventLoops() throws InterruptedException {
+		int reactors = 100;
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final CountDownLatch latch = new CountDownLatch(reactors);
+		for (int i = 0; i < reactors; i++) {
+			Reactor r = new Reactor();
+			r.on($("test"), new Consumer<Event<Void>>() {
+				@Override
+				public void accept(Event<Void> ev) {
+					threads.add(Thread.currentThread());
+					latch.countDown();
+				}
+			});
+			r.notify("test", new Event<Void>(null));
+		}
+
+		assertThat("Every reactor dispatched its event", latch.await(5, TimeUnit.SECONDS));
+		assertThat(threads.size(), is(lessThanOrEqualTo(Context.getDefault().getEventLoops())));
+	}
+
+	@Test
+	public void stoppingASharedLoopLeavesItRunning() throws InterruptedException {
+		Context context = new Context(1);
+		try {
+			Reactor first = new Reactor(context.nextDispatcher());
+			Reactor second = new Reactor(context.nextDispatcher());
+			first.getDispatcher().stop();
+
+			final CountDownLatch latch = new CountDownLatch(1);
+			second.on($("test"), new Consumer<Event<Void>>() {
+				@Override
+				public void accept(Event<Void> ev) {
+					latch.countDown();
+				}
+			});
+			second.notify("test", new Event<Void>(null));
+
+			assertThat("The shared loop is still dispatching", latch.await(5, TimeUnit.SECONDS));
+		} finally {
+			context.shutdown();
+		}
+	}
+
+	@Test
+	public void aSharedLoopCantBeShutDownOnItsOwn() throws InterruptedException {
+		Context context = new Context(1);
+		try {
+			Reactor reactor = new Reactor(context.nextDispatcher());
+			try {
+				reactor.getDispatcher().shutdown(1, TimeUnit.SECONDS);
+				fail("Shut down a shared loop");
+			} catch (UnsupportedOperationException expected) {
+			}
+
+			ShutdownReport report = context.shutdown(1, TimeUnit.SECONDS);
+			assertThat(report.isTerminated(), is(true));
+		} finally {
+			context.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import reactor.fn.Registration;
+import reactor.fn.Registry.LoadBalancingStrategy;
+import reactor.fn.SelectionStrategy;
+import reactor.fn.Selector;
+
+public final class CopyOnWriteRegistryTests {
+
+	private final AtomicInteger cacheMisses = new AtomicInteger();
+
+	private final CopyOnWriteRegistry<Object> registry = new CacheMissCountingCopyOnWriteRegistry<Object>(null, null, cacheMisses);
+
+	@Test
+	public void registrationsWithTheSameSelectorAreOrderedByInsertionOrder() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		this.registry.register(selector, "echo");
+		this.registry.register(selector, "bravo");
+		this.registry.register(selector, "alpha");
+		this.registry.register(selector, "charlie");
+		this.registry.register(selector, "delta");
+
+		Iterable<Registration<? extends Object>> registrations = this.registry.select(key);
+		List<Object> objects = new ArrayList<Object>();
+		for (Registration<? extends Object> registration : registrations) {
+			objects.add(registration.getObject());
+		}
+
+		assertEquals(Arrays.asList("echo", "bravo", "alpha", "charlie", "delta"), objects);
+	}
+
+	@Test
+	public void nonEmptyResultsAreCached() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		this.registry.register(selector, "alpha");
+
+		this.registry.select(key);
+		this.registry.select(key);
+
+		assertEquals(1, this.cacheMisses.get());
+	}
+
+	@Test
+	public void emptyResultsAreCached() {
+		this.registry.register($("another-key"), "alpha");
+		this.registry.select("key");
+		this.registry.select("key");
+
+		assertEquals(1, this.cacheMisses.get());
+	}
+
+	@Test
+	public void emptyResultsAreCachedWhenThereAreNoRegistrations() {
+		this.registry.select("key");
+		this.registry.select("key");
+
+		assertEquals(1, this.cacheMisses.get());
+	}
+
+	@Test
+	public void cacheIsRefreshedWhenANewRegistrationWithTheSameSelectorIsMade() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		this.registry.register(selector, "alpha");
+
+		this.registry.select(key);
+		this.registry.select(key);
+
+		assertEquals(1, this.cacheMisses.get());
+
+		this.registry.register(selector, "bravo");
+
+		this.registry.select(key);
+		this.registry.select(key);
+
+		assertEquals(2, this.cacheMisses.get());
+	}
+
+	@Test
+	public void cacheIsNotRefreshedWhenANewRegistrationWithANonMatchingSelectorIsMade() {
+		String key1 = "selector";
+		Selector selector1 = $(key1);
+
+		this.registry.register(selector1, "alpha");
+
+		this.registry.select(key1);
+		this.registry.select(key1);
+
+		assertEquals(1, this.cacheMisses.get());
+
+		this.registry.register($("selector2"), "bravo");
+
+		this.registry.select(key1);
+		this.registry.select(key1);
+
+		assertEquals(1, this.cacheMisses.get());
+	}
+
+	@Test
+	public void cancelledRegistrationsAreNoLongerSelected() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		Registration<String> alpha = this.registry.register(selector, "alpha");
+		this.registry.register(selector, "bravo");
+
+		this.registry.select(key);
+		alpha.cancel();
+
+		List<Object> objects = new ArrayList<Object>();
+		for (Registration<? extends Object> registration : this.registry.select(key)) {
+			objects.add(registration.getObject());
+		}
+
+		assertEquals(Arrays.asList((Object) "bravo"), objects);
+		assertEquals(2, this.cacheMisses.get());
+	}
+
+	@Test
+	public void unregisterRemovesAllMatchingRegistrations() {
+		String key = "selector";
+		Selector selector = $(key);
+
+		this.registry.register(selector, "alpha");
+		this.registry.register(selector, "bravo");
+
+		assertTrue(this.registry.unregister(key));
+		assertFalse(this.registry.select(key).iterator().hasNext());
+		assertFalse(this.registry.unregister(key));
+	}
+
+	@Test
+	public void cacheIsBoundedForKeysWithAndWithoutRegistrations() {
+		CopyOnWriteRegistry<Object> registry = new CopyOnWriteRegistry<Object>(LoadBalancingStrategy.ROUND_ROBIN, null, 4, 2);
+		for (int i = 0; i < 100; i++) {
+			registry.register($("key" + i), "value" + i);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals("value" + i, registry.select("key" + i).iterator().next().getObject());
+			registry.select("unknown" + i);
+		}
+		assertEquals(6, registry.getCacheSize());
+
+		registry.register($("unknown99"), "late");
+		assertEquals("late", registry.select("unknown99").iterator().next().getObject());
+	}
+
+	private static final class CacheMissCountingCopyOnWriteRegistry<T> extends CopyOnWriteRegistry<T> {
+
+		private final AtomicInteger cacheMisses;
+
+		public CacheMissCountingCopyOnWriteRegistry(
+				reactor.fn.Registry.LoadBalancingStrategy loadBalancingStrategy,
+				SelectionStrategy selectionStrategy, AtomicInteger cacheMisses) {
+			super(loadBalancingStrategy, selectionStrategy);
+			this.cacheMisses = cacheMisses;
+		}
+
+		@Override
+		protected void cacheMiss(Object key) {
+			this.cacheMisses.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.core;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static reactor.Fn.$;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.EventTranslator;
+import reactor.fn.dispatch.RingBufferDispatcher;
+import reactor.fn.dispatch.SynchronousDispatcher;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * @author Jon Brisbin
+ */
+public class EventAllocationTests {
+
+	static int warmups    = 50000;
+	static int iterations = 500000;
+
+	@Test
+	public void eventIdsAreCreatedOnceAndOnlyWhenAskedFor() {
+		Event<String> ev = new Event<String>("hello");
+
+		assertThat(ev.getId(), sameInstance(ev.getId()));
+		assertThat(ev.getId(), not(new Event<String>("hello").getId()));
+	}
+
+	@Test
+	public void notifyingWithoutIdsAllocatesLess() {
+		com.sun.management.ThreadMXBean allocations = allocations();
+
+		Reactor reactor = new Reactor(new SynchronousDispatcher());
+		reactor.on($("test"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+			}
+		});
+
+		notify(reactor, warmups, false);
+		notify(reactor, warmups, true);
+
+		long tid = Thread.currentThread().getId();
+		long start = allocations.getThreadAllocatedBytes(tid);
+		notify(reactor, iterations, false);
+		long lazy = (allocations.getThreadAllocatedBytes(tid) - start) / iterations;
+
+		start = allocations.getThreadAllocatedBytes(tid);
+		notify(reactor, iterations, true);
+		long eager = (allocations.getThreadAllocatedBytes(tid) - start) / iterations;
+
+		System.out.println(String.format("notify allocation: %s bytes/event with lazy ids, %s bytes/event with an id for every event",
+																		 lazy,
+																		 eager));
+		assertThat(lazy, is(lessThan(eager)));
+	}
+
+	@Test
+	public void translatedNotificationsAllocateNothingOnThePublishingThread() throws InterruptedException {
+		com.sun.management.ThreadMXBean allocations = allocations();
+
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher("test", 1, 1024, ProducerType.SINGLE, new BlockingWaitStrategy());
+		Reactor reactor = new Reactor(dispatcher.start());
+		final AtomicLong sum = new AtomicLong();
+		reactor.on($("test"), new Consumer<Event<Long>>() {
+			@Override
+			public void accept(Event<Long> ev) {
+				sum.addAndGet(ev.getData());
+			}
+		});
+		EventTranslator<Long, Long> translator = new EventTranslator<Long, Long>() {
+			@Override
+			public void translate(Event<Long> ev, Long value) {
+				ev.setData(value);
+			}
+		};
+		Long value = 1L;
+
+		for (int i = 0; i < warmups; i++) {
+			reactor.notify("test", translator, value);
+		}
+		long tid = Thread.currentThread().getId();
+		long start = allocations.getThreadAllocatedBytes(tid);
+		for (int i = 0; i < iterations; i++) {
+			reactor.notify("test", translator, value);
+		}
+		long translated = (allocations.getThreadAllocatedBytes(tid) - start) / iterations;
+
+		start = allocations.getThreadAllocatedBytes(tid);
+		for (int i = 0; i < iterations; i++) {
+			reactor.notify("test", new Event<Long>(value));
+		}
+		long allocated = (allocations.getThreadAllocatedBytes(tid) - start) / iterations;
+		dispatcher.shutdown(10, TimeUnit.SECONDS);
+
+		System.out.println(String.format("publishing allocation: %s bytes/event translated, %s bytes/event with a new Event",
+																		 translated,
+																		 allocated));
+		assertThat(sum.get(), is((long) (warmups + iterations * 2)));
+		assertThat(translated, is(0L));
+	}
+
+	private static com.sun.management.ThreadMXBean allocations() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+		return allocations;
+	}
+
+	private static void notify(Reactor reactor, int count, boolean withId) {
+		Integer data = 1;
+		for (int i = 0; i < count; i++) {
+			Event<Integer> ev = new Event<Integer>(data);
+			if (withId) {
+				// what every event used to cost
+				ev.getId();
+			}
+			reactor.notify("test", ev);
+		}
+	}
+
+}
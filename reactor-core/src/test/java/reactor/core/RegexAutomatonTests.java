@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jon Brisbin
+ */
+public class RegexAutomatonTests {
+
+	private static final String[] PATTERNS = {
+			"test([0-9]+)",
+			"t[a-z]st",
+			"^event\\.(\\w+)$",
+			"a|ab|abc",
+			"(ab)*c?",
+			"x{2,3}y{2}z{1,}",
+			"[^a-c\\d]+",
+			"[a-]+-[\\s]?",
+			".*\\..*",
+			"(?:foo|bar)+baz??",
+			"\\D\\W\\S",
+			"[\\]\\[]x",
+			"",
+			"\u00fc+"
+	};
+
+	private static final String[] KEYS = {
+			"", "test", "test1", "test123", "test12a", "test", "tast", "tAst", "event.a_1", "event.",
+			"a", "ab", "abc", "abcc", "ababc", "c", "xxyyz", "xxxyyzzz", "xxxxyyz", "def", "dad", "d1",
+			"a-", "--\t", "a-b", "a.b", ".", "foobar", "foobarbaz", "bazz", "a b", "a.\n", "]x", "[x", "\u00fc\u00fc",
+			"\n.", "abc\n", "test1\u00e9", "t\ud83d\ude00st"
+	};
+
+	@Test
+	public void matchesAgreeWithPattern() {
+		RegexAutomaton<String> automaton = new RegexAutomaton<String>();
+		for (String p : PATTERNS) {
+			assertTrue("Expected " + p + " to be supported", automaton.add(Pattern.compile(p), p));
+		}
+
+		for (String key : KEYS) {
+			List<String> expected = new ArrayList<String>();
+			for (String p : PATTERNS) {
+				if (Pattern.compile(p).matcher(key).matches()) {
+					expected.add(p);
+				}
+			}
+			List<String> actual = new ArrayList<String>();
+			automaton.match(key, actual);
+			assertEquals("Matches for '" + key + "'", expected, actual);
+		}
+	}
+
+	@Test
+	public void unsupportedSyntaxIsRefused() {
+		RegexAutomaton<String> automaton = new RegexAutomaton<String>();
+		for (String p : Arrays.asList("(a)\\1", "a(?=b)", "(?i)abc", "\\bword", "a++", "[a-z&&[^e]]", "a$b", "\\p{Alpha}")) {
+			assertFalse("Expected " + p + " to be refused", automaton.add(Pattern.compile(p), p));
+		}
+		assertFalse(automaton.add(Pattern.compile("abc", Pattern.CASE_INSENSITIVE), "flags"));
+		assertTrue(automaton.isEmpty());
+	}
+
+	@Test
+	public void removedPatternsNoLongerMatch() {
+		RegexAutomaton<String> automaton = new RegexAutomaton<String>();
+		String first = "first";
+		String second = "second";
+		automaton.add(Pattern.compile("a+"), first);
+		automaton.add(Pattern.compile("a*"), second);
+
+		List<String> matches = new ArrayList<String>();
+		automaton.match("aa", matches);
+		assertEquals(Arrays.asList(first, second), matches);
+
+		assertTrue(automaton.remove(first));
+		assertFalse(automaton.remove(first));
+		matches.clear();
+		automaton.match("aa", matches);
+		assertEquals(Arrays.asList(second), matches);
+	}
+
+}
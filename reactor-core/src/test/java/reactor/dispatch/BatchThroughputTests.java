@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.RingBufferDispatcher;
+import reactor.fn.dispatch.SynchronousDispatcher;
+import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+
+/**
+ * Compares notifying events one at a time with handing them to the {@link Dispatcher} in batches.
+ *
+ * @author Jon Brisbin
+ */
+public class BatchThroughputTests extends AbstractThroughputTests {
+
+	private final int batchSize = 1024;
+
+	private final List<Event<String>> batch = Collections.nCopies(batchSize, hello);
+
+	public void registerConsumersAndWarmCache(Reactor reactor) {
+		for (int i = 0; i < selectors; i++) {
+			Object object = "test" + i;
+			sels[i] = $(object);
+			objects[i] = object;
+			reactor.on(sels[i], countDownConsumer);
+		}
+		for (int i = 0; i < selectors; i++) {
+			// pre-select everything to ensure it's in the cache
+			reactor.getConsumerRegistry().select(objects[i]);
+		}
+	}
+
+	protected void doTest(Reactor reactor, boolean batched) throws InterruptedException {
+		registerConsumersAndWarmCache(reactor);
+
+		for (int j = 0; j < testRuns; j++) {
+			preRun();
+			for (int i = 0; i < selectors; i++) {
+				Object key = objects[i];
+				for (int k = 0; k < iterations; ) {
+					if (batched) {
+						int size = Math.min(batchSize, iterations - k);
+						reactor.notifyBatch(key, batch.subList(0, size));
+						k += size;
+					} else {
+						reactor.notify(key, hello);
+						k++;
+					}
+				}
+			}
+			postRun(reactor);
+		}
+
+		reactor.getDispatcher().stop();
+	}
+
+	@Test
+	public void singleNotifyRingBufferThroughput() throws InterruptedException {
+		log.info("Starting single notify, single-producer RingBuffer test...");
+		doTest(new Reactor(createRingBufferDispatcher()), false);
+	}
+
+	@Test
+	public void batchNotifyRingBufferThroughput() throws InterruptedException {
+		log.info("Starting batch notify, single-producer RingBuffer test...");
+		doTest(new Reactor(createRingBufferDispatcher()), true);
+	}
+
+	@Test
+	public void singleNotifyMultiProducerRingBufferThroughput() throws InterruptedException {
+		log.info("Starting single notify, multi-producer RingBuffer test...");
+		doTest(new Reactor(new RingBufferDispatcher().start()), false);
+	}
+
+	@Test
+	public void batchNotifyMultiProducerRingBufferThroughput() throws InterruptedException {
+		log.info("Starting batch notify, multi-producer RingBuffer test...");
+		doTest(new Reactor(new RingBufferDispatcher().start()), true);
+	}
+
+	@Test
+	public void batchNotifyBlockingQueueThroughput() throws InterruptedException {
+		log.info("Starting batch notify, blocking queue test...");
+		doTest(new Reactor(new BlockingQueueDispatcher().start()), true);
+	}
+
+	@Test
+	public void batchedEventsAreDispatchedInOrder() throws InterruptedException {
+		// more events than the ring buffer holds, so the batch has to be split
+		int count = 2000;
+		List<Event<Integer>> events = new ArrayList<Event<Integer>>(count);
+		for (int i = 0; i < count; i++) {
+			events.add(new Event<Integer>(i));
+		}
+
+		Dispatcher[] dispatchers = {
+				createRingBufferDispatcher(),
+				new RingBufferDispatcher().start(),
+				new BlockingQueueDispatcher().start(),
+				new ThreadPoolExecutorDispatcher(1, 128).start(),
+				new SynchronousDispatcher()
+		};
+		for (Dispatcher dispatcher : dispatchers) {
+			Reactor reactor = new Reactor(dispatcher);
+			final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+			final CountDownLatch latch = new CountDownLatch(count);
+			reactor.on($("ordered"), new Consumer<Event<Integer>>() {
+				@Override
+				public void accept(Event<Integer> ev) {
+					received.add(ev.getData());
+					latch.countDown();
+				}
+			});
+
+			reactor.notifyBatch("ordered", events);
+
+			assertTrue(dispatcher.getClass().getSimpleName() + " did not dispatch every event",
+					latch.await(5, TimeUnit.SECONDS));
+			for (int i = 0; i < count; i++) {
+				assertEquals(dispatcher.getClass().getSimpleName(), Integer.valueOf(i), received.get(i));
+			}
+			dispatcher.stop();
+		}
+	}
+
+}
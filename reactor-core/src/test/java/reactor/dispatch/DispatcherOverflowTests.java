@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+import static reactor.Fn.T;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.EventTranslator;
+import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.DispatcherOverflowException;
+import reactor.fn.dispatch.OverflowPolicy;
+import reactor.fn.dispatch.RingBufferDispatcher;
+import reactor.fn.dispatch.StandardWaitStrategy;
+import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * @author Jon Brisbin
+ */
+public class DispatcherOverflowTests {
+
+	private static final int CAPACITY = 4;
+
+	@Test
+	public void dropNewestDropsWhatDoesntFit() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.DROP_NEWEST));
+		assertThat(stalled.dispatcher.remainingCapacity(), is((long) CAPACITY));
+
+		stalled.notify(1, 10);
+		assertThat(stalled.dispatcher.remainingCapacity(), is(0L));
+
+		stalled.release(5);
+		assertThat(stalled.received, contains(0, 1, 2, 3, 4));
+	}
+
+	@Test
+	public void dropOldestMakesRoomForTheNewest() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.DROP_OLDEST));
+
+		stalled.notify(1, 10);
+
+		stalled.release(5);
+		assertThat(stalled.received, contains(0, 6, 7, 8, 9));
+	}
+
+	@Test
+	public void callerRunsExecutesOnTheSubmittingThread() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.CALLER_RUNS));
+		stalled.notify(1, CAPACITY + 1);
+
+		final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+		stalled.reactor.on($("overflow"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				threads.add(Thread.currentThread());
+			}
+		});
+		stalled.reactor.notify("overflow", new Event<Void>(null));
+		assertThat(threads, contains(Thread.currentThread()));
+
+		stalled.release(CAPACITY + 1);
+	}
+
+	@Test
+	public void signalErrorNotifiesTheReactor() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.SIGNAL_ERROR));
+		final List<Object> rejected = stalled.rejected();
+
+		stalled.notify(1, 10);
+		assertThat(rejected, contains((Object) 5, 6, 7, 8, 9));
+
+		stalled.release(5);
+	}
+
+	@Test
+	public void signalErrorHandsOverACopyOfATranslatedEvent() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.SIGNAL_ERROR));
+		final List<DispatcherOverflowException> exceptions = new CopyOnWriteArrayList<DispatcherOverflowException>();
+		stalled.reactor.on(T(DispatcherOverflowException.class), new Consumer<Event<DispatcherOverflowException>>() {
+			@Override
+			public void accept(Event<DispatcherOverflowException> ev) {
+				exceptions.add(ev.getData());
+			}
+		});
+		EventTranslator<Integer, Integer> translator = new EventTranslator<Integer, Integer>() {
+			@Override
+			public void translate(Event<Integer> ev, Integer i) {
+				ev.setData(i);
+				ev.getHeaders().set("x-number", String.valueOf(i));
+				ev.setReplyTo("reply" + i);
+			}
+		};
+
+		stalled.notify(1, CAPACITY + 1);
+		stalled.reactor.notify("test", translator, CAPACITY + 1);
+		// the rejected task has been recycled by now and the next one may reuse it
+		stalled.reactor.notify("test", translator, CAPACITY + 2);
+
+		assertThat(exceptions.size(), is(2));
+		Event<?> ev = exceptions.get(0).getEvent();
+		assertThat(ev.getData(), is((Object) (CAPACITY + 1)));
+		assertThat(ev.getHeaders().get("x-number"), is(String.valueOf(CAPACITY + 1)));
+		assertThat(ev.getReplyTo(), is((Object) ("reply" + (CAPACITY + 1))));
+
+		stalled.release(CAPACITY + 1);
+	}
+
+	@Test
+	public void blockWithTimeoutSignalsAnErrorOnceTheTimeoutRunsOut() throws InterruptedException {
+		Stalled stalled = new Stalled(bounded(OverflowPolicy.block(20, TimeUnit.MILLISECONDS)));
+		List<Object> rejected = stalled.rejected();
+
+		stalled.notify(1, CAPACITY + 1);
+		long start = System.nanoTime();
+		stalled.notify(CAPACITY + 1, CAPACITY + 2);
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertThat(rejected, contains((Object) (CAPACITY + 1)));
+
+		stalled.release(CAPACITY + 1);
+	}
+
+	@Test
+	public void threadPoolExecutorDispatcherAppliesThePolicy() throws InterruptedException {
+		Dispatcher dispatcher = new ThreadPoolExecutorDispatcher(1, 16, StandardWaitStrategy.BLOCKING, CAPACITY, OverflowPolicy.SIGNAL_ERROR);
+		Stalled stalled = new Stalled(dispatcher);
+		List<Object> rejected = stalled.rejected();
+		assertThat(dispatcher.remainingCapacity(), is((long) CAPACITY));
+
+		stalled.notify(1, 10);
+		assertThat(dispatcher.remainingCapacity(), is(0L));
+		assertThat(rejected, contains((Object) 5, 6, 7, 8, 9));
+
+		stalled.release(5);
+		dispatcher.stop();
+	}
+
+	@Test
+	public void ringBufferDispatcherAppliesThePolicy() throws InterruptedException {
+		Dispatcher dispatcher = new RingBufferDispatcher("test", 1, 8, ProducerType.MULTI, new BlockingWaitStrategy(), false, OverflowPolicy.SIGNAL_ERROR);
+		Stalled stalled = new Stalled(dispatcher);
+		List<Object> rejected = stalled.rejected();
+
+		// the slot of the task being executed isn't free until it's done
+		stalled.notify(1, 10);
+		assertThat(dispatcher.remainingCapacity(), is(0L));
+		assertThat(rejected, contains((Object) 8, 9));
+
+		stalled.release(8);
+		dispatcher.destroy();
+	}
+
+	private static Dispatcher bounded(OverflowPolicy policy) {
+		return new BlockingQueueDispatcher("test", 16, StandardWaitStrategy.BLOCKING, CAPACITY, policy);
+	}
+
+	/**
+	 * A reactor whose dispatcher is stuck executing the first event it was notified of until it is released.
+	 */
+	private static class Stalled {
+		final Dispatcher     dispatcher;
+		final Reactor        reactor;
+		final List<Integer>  received = new CopyOnWriteArrayList<Integer>();
+		final CountDownLatch started  = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+
+		Stalled(Dispatcher dispatcher) throws InterruptedException {
+			this.dispatcher = dispatcher.start();
+			this.reactor = new Reactor(dispatcher);
+			reactor.on($("test"), new Consumer<Event<Integer>>() {
+				@Override
+				public void accept(Event<Integer> ev) {
+					received.add(ev.getData());
+					started.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			reactor.notify("test", new Event<Integer>(0));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+		}
+
+		void notify(int from, int to) {
+			for (int i = from; i < to; i++) {
+				reactor.notify("test", new Event<Integer>(i));
+			}
+		}
+
+		List<Object> rejected() {
+			final List<Object> rejected = new CopyOnWriteArrayList<Object>();
+			reactor.on(T(DispatcherOverflowException.class), new Consumer<Event<DispatcherOverflowException>>() {
+				@Override
+				public void accept(Event<DispatcherOverflowException> ev) {
+					rejected.add(ev.getData().getEvent().getData());
+				}
+			});
+			return rejected;
+		}
+
+		void release(int expected) throws InterruptedException {
+			released.countDown();
+			long deadline = System.currentTimeMillis() + 5000;
+			while (received.size() < expected && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(expected, received.size());
+		}
+	}
+
+}
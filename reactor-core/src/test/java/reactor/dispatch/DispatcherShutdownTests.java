@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static reactor.Fn.$;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.JavaEventSerializer;
+import reactor.fn.dispatch.PartitionedDispatcher;
+import reactor.fn.dispatch.PriorityDispatcher;
+import reactor.fn.dispatch.RingBufferDispatcher;
+import reactor.fn.dispatch.ShutdownReport;
+import reactor.fn.dispatch.SpillingDispatcher;
+import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * @author Jon Brisbin
+ */
+public class DispatcherShutdownTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void blockingQueueDispatcherDrainsItsBacklog() throws InterruptedException {
+		drainsItsBacklog(new BlockingQueueDispatcher("test", 128));
+	}
+
+	@Test
+	public void ringBufferDispatcherDrainsItsBacklog() throws InterruptedException {
+		drainsItsBacklog(new RingBufferDispatcher("test", 1, 128, ProducerType.MULTI, new BlockingWaitStrategy()));
+	}
+
+	@Test
+	public void partitionedDispatcherDrainsItsBacklog() throws InterruptedException {
+		drainsItsBacklog(new PartitionedDispatcher("test", 2, 128, null));
+	}
+
+	@Test
+	public void threadPoolExecutorDispatcherDrainsItsBacklog() throws InterruptedException {
+		ThreadPoolExecutorDispatcher dispatcher = new ThreadPoolExecutorDispatcher(2, 128);
+		assertTrue(dispatcher.isAlive());
+		drainsItsBacklog(dispatcher);
+		assertThat(dispatcher.isAlive(), is(false));
+	}
+
+	@Test
+	public void whatIsntDoneInTimeIsAbandoned() throws InterruptedException {
+		Dispatcher dispatcher = new BlockingQueueDispatcher("test", 128).start();
+		Reactor reactor = new Reactor(dispatcher);
+		final CountDownLatch released = new CountDownLatch(1);
+		final AtomicInteger count = new AtomicInteger();
+		reactor.on($("test"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				count.incrementAndGet();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			reactor.notify("test", new Event<Integer>(i));
+		}
+
+		ShutdownReport report = dispatcher.shutdown(50, TimeUnit.MILLISECONDS);
+		released.countDown();
+
+		assertThat(report.isTerminated(), is(false));
+		assertThat(report.getAbandoned(), is(9L));
+		assertThat(count.get(), is(1));
+	}
+
+	@Test
+	public void blockingQueueDispatcherLosesNoTaskSubmittedDuringShutdown() throws InterruptedException {
+		losesNoTaskSubmittedDuringShutdown(new BlockingQueueDispatcher("test", 128));
+	}
+
+	@Test
+	public void priorityDispatcherLosesNoTaskSubmittedDuringShutdown() throws InterruptedException {
+		losesNoTaskSubmittedDuringShutdown(new PriorityDispatcher("test", 128, 2, 1));
+	}
+
+	@Test
+	public void spillingDispatcherLosesNoTaskSubmittedDuringShutdown() throws InterruptedException {
+		losesNoTaskSubmittedDuringShutdown(new SpillingDispatcher("test", 128, 16, folder.getRoot(), 4096, new JavaEventSerializer()));
+	}
+
+	/**
+	 * Every task that a publisher got in, racing with the shutdown, must either be executed or counted as abandoned.
+	 */
+	private static void losesNoTaskSubmittedDuringShutdown(Dispatcher dispatcher) throws InterruptedException {
+		dispatcher.start();
+		final Reactor reactor = new Reactor(dispatcher);
+		final AtomicInteger executed = new AtomicInteger();
+		final AtomicInteger accepted = new AtomicInteger();
+		reactor.on($("test"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				executed.incrementAndGet();
+			}
+		});
+
+		List<Thread> publishers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; ; i++) {
+							reactor.notify("test", new Event<Integer>(i));
+							accepted.incrementAndGet();
+						}
+					} catch (RejectedExecutionException expected) {
+					}
+				}
+			});
+			t.start();
+			publishers.add(t);
+		}
+		Thread.sleep(50);
+
+		ShutdownReport report = dispatcher.shutdown(5, TimeUnit.SECONDS);
+		for (Thread t : publishers) {
+			t.join(5000);
+			assertThat(t.isAlive(), is(false));
+		}
+
+		// the task being executed when the thread was interrupted may still be finishing
+		long deadline = System.currentTimeMillis() + 5000;
+		while (executed.get() + report.getAbandoned() < accepted.get() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(executed.get() + report.getAbandoned(), is((long) accepted.get()));
+	}
+
+	private static void drainsItsBacklog(Dispatcher dispatcher) throws InterruptedException {
+		dispatcher.start();
+		Reactor reactor = new Reactor(dispatcher);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		final AtomicInteger count = new AtomicInteger();
+		reactor.on($("test"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				if (ev.getData() == 0) {
+					started.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				count.incrementAndGet();
+			}
+		});
+		reactor.notify("test", new Event<Integer>(0));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < 50; i++) {
+			reactor.notify("test", new Event<Integer>(i));
+		}
+		released.countDown();
+
+		ShutdownReport report = dispatcher.shutdown(5, TimeUnit.SECONDS);
+		assertThat(report.isTerminated(), is(true));
+		assertThat(report.getAbandoned(), is(0L));
+		assertThat(count.get(), is(50));
+
+		try {
+			reactor.notify("test", new Event<Integer>(50));
+			fail("Notified after shutdown");
+		} catch (RejectedExecutionException expected) {
+		}
+	}
+
+}
@@ -16,14 +16,29 @@
 
 package reactor.dispatch;
 
+import static org.junit.Assert.assertTrue;
 import static reactor.Fn.$;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 import org.junit.Test;
 
 import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
 import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.PartitionedDispatcher;
 import reactor.fn.dispatch.RingBufferDispatcher;
+import reactor.fn.dispatch.StandardWaitStrategy;
 import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+import reactor.fn.dispatch.WaitStrategy;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
 
 /**
  * @author Jon Brisbin
@@ -59,6 +74,47 @@ public class DispatcherThroughputTests extends AbstractThroughputTests {
 		reactor.getDispatcher().stop();
 	}
 
+	/**
+	 * Notifies one event at a time, pausing after each one long enough for the dispatcher's thread to go back to waiting,
+	 * and logs how long each event took to reach its consumer.
+	 */
+	protected void doLatencyTest(WaitStrategy waitStrategy) throws InterruptedException {
+		Dispatcher dispatcher = new BlockingQueueDispatcher("test", 512, waitStrategy).start();
+		Reactor reactor = new Reactor(dispatcher);
+
+		int events = 1000;
+		final long[] latencies = new long[events];
+		final AtomicInteger received = new AtomicInteger();
+		reactor.on($("latency"), new Consumer<Event<Long>>() {
+			@Override
+			public void accept(Event<Long> ev) {
+				latencies[received.get()] = System.nanoTime() - ev.getData();
+				received.incrementAndGet();
+			}
+		});
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		for (int i = 0; i < events; i++) {
+			reactor.notify("latency", new Event<Long>(System.nanoTime()));
+			while (received.get() <= i) {
+				assertTrue("Event " + i + " was not received within 30 seconds", System.nanoTime() < deadline);
+				// leave the CPU to the dispatcher's thread on machines with few cores
+				Thread.yield();
+			}
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+		}
+		dispatcher.stop();
+
+		Arrays.sort(latencies);
+		log.info(waitStrategy + " latency (us): p50=" + micros(latencies, 0.5) + " p99=" + micros(latencies, 0.99)
+				         + " p99.9=" + micros(latencies, 0.999) + " max=" + micros(latencies, 1));
+	}
+
+	private static long micros(long[] sorted, double percentile) {
+		int i = (int) Math.ceil(percentile * sorted.length) - 1;
+		return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, i)]);
+	}
+
 	@Test
 	public void blockingQueueDispatcherThroughput() throws InterruptedException {
 		log.info("Starting blocking queue test...");
@@ -77,10 +133,54 @@ public class DispatcherThroughputTests extends AbstractThroughputTests {
 		doTest(new Reactor(new RingBufferDispatcher().start()));
 	}
 
+	@Test
+	public void workerPoolRingBufferDispatcherThroughput() throws InterruptedException {
+		log.info("Starting multi-threaded RingBuffer test...");
+		doTest(new Reactor(new RingBufferDispatcher("test", 4, 512, ProducerType.MULTI, new BlockingWaitStrategy()).start()));
+	}
+
+	@Test
+	public void keyOrderedRingBufferDispatcherThroughput() throws InterruptedException {
+		log.info("Starting multi-threaded, key-ordered RingBuffer test...");
+		doTest(new Reactor(new RingBufferDispatcher("test", 4, 512, ProducerType.MULTI, new BlockingWaitStrategy(), true).start()));
+	}
+
 	@Test
 	public void singleProducerRingBufferDispatcherThroughput() throws InterruptedException {
 		log.info("Starting single-producer, yielding RingBuffer test...");
 		doTest(new Reactor(createRingBufferDispatcher()));
 	}
 
+	@Test
+	public void partitionedDispatcherThroughput() throws InterruptedException {
+		log.info("Starting partitioned test...");
+		doTest(new Reactor(new PartitionedDispatcher("test", 4, 512).start()));
+	}
+
+	@Test
+	public void blockingWaitStrategyLatency() throws InterruptedException {
+		doLatencyTest(StandardWaitStrategy.BLOCKING);
+	}
+
+	@Test
+	public void parkingWaitStrategyLatency() throws InterruptedException {
+		doLatencyTest(StandardWaitStrategy.PARKING);
+	}
+
+	@Test
+	public void yieldingWaitStrategyLatency() throws InterruptedException {
+		doLatencyTest(StandardWaitStrategy.YIELDING);
+	}
+
+	@Test
+	public void busySpinWaitStrategyLatency() throws InterruptedException {
+		doLatencyTest(StandardWaitStrategy.BUSY_SPIN);
+	}
+
+	@Test
+	public void yieldingThreadPoolDispatcherThroughput() throws InterruptedException {
+		log.info("Starting thread pool test with a yielding wait strategy...");
+		doTest(new Reactor(new ThreadPoolExecutorDispatcher(StandardWaitStrategy.YIELDING).start()));
+	}
+
 }
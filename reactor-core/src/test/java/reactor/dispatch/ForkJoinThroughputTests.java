@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static reactor.Fn.$;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.Dispatcher;
+import reactor.fn.dispatch.ForkJoinDispatcher;
+import reactor.fn.dispatch.ThreadPoolExecutorDispatcher;
+
+/**
+ * Compares the {@link ForkJoinDispatcher} with the {@link ThreadPoolExecutorDispatcher}, both for events notified from
+ * outside the pool and for events whose consumers notify another {@link Reactor} on the same dispatcher.
+ *
+ * @author Jon Brisbin
+ */
+public class ForkJoinThroughputTests extends AbstractThroughputTests {
+
+	public void registerConsumersAndWarmCache(Reactor reactor, Consumer<Event<Object>> consumer) {
+		for (int i = 0; i < selectors; i++) {
+			Object object = "test" + i;
+			sels[i] = $(object);
+			objects[i] = object;
+			reactor.on(sels[i], consumer);
+		}
+		for (int i = 0; i < selectors; i++) {
+			// pre-select everything to ensure it's in the cache
+			reactor.getConsumerRegistry().select(objects[i]);
+		}
+	}
+
+	protected void doTest(Dispatcher dispatcher, boolean nested) throws InterruptedException {
+		Reactor reactor = new Reactor(dispatcher);
+		if (nested) {
+			// every event hops to a second reactor before it is counted, as in a Composable chain
+			final Reactor next = new Reactor(dispatcher);
+			next.on($("next"), countDownConsumer);
+			registerConsumersAndWarmCache(reactor, new Consumer<Event<Object>>() {
+				@Override
+				public void accept(Event<Object> ev) {
+					next.notify("next", ev);
+				}
+			});
+		} else {
+			registerConsumersAndWarmCache(reactor, countDownConsumer);
+		}
+
+		for (int j = 0; j < testRuns; j++) {
+			preRun();
+			for (int i = 0; i < selectors * iterations; i++) {
+				reactor.notify(objects[i % selectors], hello);
+			}
+			postRun(reactor);
+		}
+
+		dispatcher.stop();
+	}
+
+	@Test
+	public void threadPoolDispatcherThroughput() throws InterruptedException {
+		log.info("Starting thread pool test...");
+		doTest(new ThreadPoolExecutorDispatcher().start(), false);
+	}
+
+	@Test
+	public void forkJoinDispatcherThroughput() throws InterruptedException {
+		log.info("Starting fork/join test...");
+		doTest(new ForkJoinDispatcher().start(), false);
+	}
+
+	@Test
+	public void threadPoolDispatcherNestedNotifyThroughput() throws InterruptedException {
+		log.info("Starting thread pool test with nested notifications...");
+		doTest(new ThreadPoolExecutorDispatcher().start(), true);
+	}
+
+	@Test
+	public void forkJoinDispatcherNestedNotifyThroughput() throws InterruptedException {
+		log.info("Starting fork/join test with nested notifications...");
+		doTest(new ForkJoinDispatcher().start(), true);
+	}
+
+}
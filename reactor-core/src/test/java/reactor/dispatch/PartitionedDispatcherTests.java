@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+import static reactor.Fn.R;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.PartitionedDispatcher;
+import reactor.fn.dispatch.ShutdownReport;
+
+/**
+ * @author Jon Brisbin
+ */
+public class PartitionedDispatcherTests {
+
+	private static final int LANES     = 4;
+	private static final int PRODUCERS = 4;
+	private static final int EVENTS    = 20000;
+
+	@Test
+	public void tasksWithTheSameKeyStayInOrder() throws InterruptedException {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", LANES, 128);
+		final Reactor reactor = new Reactor(dispatcher.start());
+
+		final int keys = 16;
+		final Map<Object, List<Integer>> received = new ConcurrentHashMap<Object, List<Integer>>();
+		final Map<Object, Thread> owners = new ConcurrentHashMap<Object, Thread>();
+		final CountDownLatch latch = new CountDownLatch(EVENTS * PRODUCERS);
+		for (int k = 0; k < keys; k++) {
+			final String key = "key" + k;
+			received.put(key, new ArrayList<Integer>());
+			reactor.on($(key), new Consumer<Event<Integer>>() {
+				@Override
+				public void accept(Event<Integer> ev) {
+					// only ever touched by the lane that owns the key
+					received.get(key).add(ev.getData());
+					Thread owner = owners.get(key);
+					if (null == owner) {
+						owners.put(key, Thread.currentThread());
+					} else {
+						assertEquals(owner, Thread.currentThread());
+					}
+					latch.countDown();
+				}
+			});
+		}
+
+		// each producer sends its own run of numbers to every key
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < EVENTS; i++) {
+						reactor.notify("key" + (i % keys), new Event<Integer>(producer * EVENTS + i));
+					}
+				}
+			}).start();
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		for (int k = 0; k < keys; k++) {
+			List<Integer> values = received.get("key" + k);
+			assertEquals(EVENTS * PRODUCERS / keys, values.size());
+			int[] last = new int[PRODUCERS];
+			for (Integer v : values) {
+				int producer = v / EVENTS;
+				assertTrue("Out of order: " + v, v % EVENTS >= last[producer]);
+				last[producer] = v % EVENTS;
+			}
+		}
+		assertTrue("Expected keys to be spread over more than one lane", new HashSet<Thread>(owners.values()).size() > 1);
+	}
+
+	@Test
+	public void unorderedKeysAreStolenByIdleLanes() throws InterruptedException {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", LANES, 128, R("unordered.*"));
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final AtomicIntegerArray executions = new AtomicIntegerArray(EVENTS);
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final CountDownLatch latch = new CountDownLatch(EVENTS);
+		reactor.on($("unordered"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				threads.add(Thread.currentThread());
+				executions.incrementAndGet(ev.getData());
+				Thread.yield();
+				latch.countDown();
+			}
+		});
+
+		for (int i = 0; i < EVENTS; i++) {
+			reactor.notify("unordered", new Event<Integer>(i));
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		for (int i = 0; i < EVENTS; i++) {
+			assertEquals("Executions of task " + i, 1, executions.get(i));
+		}
+		assertTrue("Expected more than one lane to execute tasks, got " + threads, threads.size() > 1);
+	}
+
+	@Test
+	public void laneCanNotifyItselfPastItsBacklog() throws InterruptedException {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 1, 8);
+		final Reactor reactor = new Reactor(dispatcher.start());
+
+		final int fanOut = 100;
+		final List<Integer> received = new ArrayList<Integer>();
+		final CountDownLatch latch = new CountDownLatch(fanOut);
+		reactor.on($("start"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				// far more than the lane's ring can hold
+				for (int i = 0; i < fanOut; i++) {
+					reactor.notify("next", new Event<Integer>(i));
+				}
+			}
+		});
+		reactor.on($("next"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				received.add(ev.getData());
+				latch.countDown();
+			}
+		});
+
+		reactor.notify("start", new Event<Void>(null));
+
+		assertTrue("Lane deadlocked notifying itself", latch.await(5, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		for (int i = 0; i < fanOut; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+		}
+	}
+
+	@Test
+	public void publisherWaitingForRoomIsRejectedWhenStopped() throws InterruptedException {
+		final PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 1, 8);
+		final Reactor reactor = new Reactor(dispatcher.start());
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		reactor.on($("test"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				started.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		reactor.notify("test", new Event<Integer>(0));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i <= 8; i++) {
+			reactor.notify("test", new Event<Integer>(i));
+		}
+
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread publisher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reactor.notify("test", new Event<Integer>(9));
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		});
+		publisher.start();
+		Thread.sleep(50);
+		dispatcher.stop();
+		publisher.join(5000);
+		released.countDown();
+
+		assertTrue(error.get() instanceof RejectedExecutionException);
+	}
+
+	@Test
+	public void shutdownCountsWhatALaneKeptPastItsBacklog() throws InterruptedException {
+		PartitionedDispatcher dispatcher = new PartitionedDispatcher("test", 1, 8);
+		final Reactor reactor = new Reactor(dispatcher.start());
+		final CountDownLatch fannedOut = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		reactor.on($("start"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				for (int i = 0; i < 100; i++) {
+					reactor.notify("next", new Event<Integer>(i));
+				}
+				fannedOut.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		reactor.notify("start", new Event<Void>(null));
+		assertTrue(fannedOut.await(5, TimeUnit.SECONDS));
+
+		ShutdownReport report = dispatcher.shutdown(50, TimeUnit.MILLISECONDS);
+		released.countDown();
+
+		assertEquals(100, report.getAbandoned());
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.dispatch;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+import static reactor.Fn.R;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.TaggableKey;
+import reactor.fn.dispatch.PriorityDispatcher;
+
+/**
+ * @author Jon Brisbin
+ */
+public class PriorityDispatcherTests {
+
+	@Test
+	public void controlEventsOvertakeBulkEvents() throws InterruptedException {
+		PriorityDispatcher dispatcher = new PriorityDispatcher("test", 64, 8, 4, 1)
+				.assign($("control"), 0);
+		Stalled stalled = new Stalled(dispatcher, 1001);
+
+		for (int i = 0; i < 1000; i++) {
+			stalled.reactor.notify("bulk", new Event<String>("bulk"));
+		}
+		stalled.reactor.notify("control", new Event<String>("control"));
+		assertThat(dispatcher.getQueueDepth(0), is(1));
+		assertThat(dispatcher.getQueueDepth(2), is(1000));
+
+		stalled.release();
+		// at most one bulk task can go before it, the one the dispatcher had already started on
+		assertThat(stalled.received.indexOf("control"), lessThanOrEqualTo(2));
+		assertThat(dispatcher.getDispatchedCount(0), is(1L));
+		assertThat(dispatcher.getQueueDepth(2), is(0));
+		dispatcher.stop();
+	}
+
+	@Test
+	public void lowPriorityLanesAreNotStarved() throws InterruptedException {
+		PriorityDispatcher dispatcher = new PriorityDispatcher("test", 64, 3, 1)
+				.assign(R("high.*"), 0);
+		Stalled stalled = new Stalled(dispatcher, 80);
+
+		for (int i = 0; i < 40; i++) {
+			stalled.reactor.notify("high", new Event<String>("high"));
+			stalled.reactor.notify("low", new Event<String>("low"));
+		}
+
+		stalled.release();
+		// three high for every low
+		List<String> first = stalled.received.subList(0, 40);
+		assertThat(Collections.frequency(first, "low"), greaterThanOrEqualTo(9));
+		assertThat(Collections.frequency(first, "high"), greaterThanOrEqualTo(29));
+		dispatcher.stop();
+	}
+
+	@Test
+	public void lanesCanBeAssignedByTagOrByHeader() throws InterruptedException {
+		PriorityDispatcher dispatcher = new PriorityDispatcher("test", 64, 1, 1, 1)
+				.assign("heartbeat", 1)
+				.assignByHeader("x-priority");
+		Stalled stalled = new Stalled(dispatcher, 3);
+
+		TaggableKey tagged = new TaggableKey("bulk");
+		tagged.setTags("heartbeat");
+		stalled.reactor.notify(tagged, new Event<String>("heartbeat"));
+		Event<String> urgent = new Event<String>("urgent");
+		urgent.getHeaders().set("x-priority", "0");
+		stalled.reactor.notify("bulk", urgent);
+		Event<String> bulk = new Event<String>("bulk");
+		stalled.reactor.notify("bulk", bulk);
+
+		assertThat(dispatcher.getQueueDepth(0), is(1));
+		assertThat(dispatcher.getQueueDepth(1), is(1));
+		assertThat(dispatcher.getQueueDepth(2), is(1));
+		// looking for the header didn't give the event headers it didn't have
+		assertThat(bulk.hasHeaders(), is(false));
+		stalled.release();
+		dispatcher.stop();
+	}
+
+	/**
+	 * A reactor whose dispatcher is stuck executing the first event it was notified of until it is released.
+	 */
+	private static class Stalled {
+		final Reactor        reactor;
+		final List<String>   received = new CopyOnWriteArrayList<String>();
+		final CountDownLatch started  = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		final CountDownLatch done;
+
+		Stalled(PriorityDispatcher dispatcher, int expected) throws InterruptedException {
+			this.reactor = new Reactor(dispatcher.start());
+			this.done = new CountDownLatch(expected);
+			reactor.on($("stall"), new Consumer<Event<String>>() {
+				@Override
+				public void accept(Event<String> ev) {
+					started.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			Consumer<Event<String>> recorder = new Consumer<Event<String>>() {
+				@Override
+				public void accept(Event<String> ev) {
+					received.add(ev.getData());
+					done.countDown();
+				}
+			};
+			reactor.on($("bulk"), recorder);
+			reactor.on($("control"), recorder);
+			reactor.on($("high"), recorder);
+			reactor.on($("low"), recorder);
+			reactor.notify("stall", new Event<String>("stall"));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+		}
+
+		void release() throws InterruptedException {
+			released.countDown();
+			assertTrue("Not every event was dispatched", done.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static reactor.Fn.$;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.EventTranslator;
+import reactor.fn.dispatch.RingBufferDispatcher;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * @author Jon Brisbin
+ */
+public class RingBufferDispatcherTests {
+
+	private static final int THREADS = 4;
+	private static final int EVENTS  = 20000;
+
+	@Test
+	public void poolThreadsShareTasksAndExecuteEachOnce() throws InterruptedException {
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher("test", THREADS, 512, ProducerType.MULTI, new BlockingWaitStrategy());
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final AtomicIntegerArray executions = new AtomicIntegerArray(EVENTS);
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final CountDownLatch latch = new CountDownLatch(EVENTS);
+		reactor.on($("task"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				threads.add(Thread.currentThread());
+				executions.incrementAndGet(ev.getData());
+				// give the other threads a chance to pick up work
+				Thread.yield();
+				latch.countDown();
+			}
+		});
+
+		for (int i = 0; i < EVENTS; i++) {
+			reactor.notify("task", new Event<Integer>(i));
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		for (int i = 0; i < EVENTS; i++) {
+			assertEquals("Executions of task " + i, 1, executions.get(i));
+		}
+		assertTrue("Expected more than one thread to execute tasks, got " + threads, threads.size() > 1);
+	}
+
+	@Test
+	public void translatedEventsAreReusedAndEmptiedBetweenNotifications() throws InterruptedException {
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher("test", 1, 8, ProducerType.SINGLE, new BlockingWaitStrategy());
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final List<Integer> received = new ArrayList<Integer>();
+		final Set<Event<?>> events = Collections.newSetFromMap(new IdentityHashMap<Event<?>, Boolean>());
+		final CountDownLatch latch = new CountDownLatch(100);
+		reactor.on($("task"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				events.add(ev);
+				// only even numbers are given the header
+				if (ev.getHeaders().contains("x-even") == (ev.getData() % 2 == 0)) {
+					received.add(ev.getData());
+				}
+				latch.countDown();
+			}
+		});
+
+		EventTranslator<Integer, Integer> translator = new EventTranslator<Integer, Integer>() {
+			@Override
+			public void translate(Event<Integer> ev, Integer i) {
+				ev.setData(i);
+				if (i % 2 == 0) {
+					ev.getHeaders().set("x-even", "true");
+				}
+			}
+		};
+		for (int i = 0; i < 100; i++) {
+			reactor.notify("task", translator, i);
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		assertEquals(100, received.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+		}
+		assertTrue("Expected no more events than slots, got " + events.size(), events.size() <= 8);
+	}
+
+	@Test
+	public void nothingIsDispatchedForAnEventThatFailedToTranslate() throws InterruptedException {
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher("test", 1, 8, ProducerType.SINGLE, new BlockingWaitStrategy());
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		reactor.on($("task"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				received.add(ev.getData());
+				latch.countDown();
+			}
+		});
+
+		EventTranslator<Integer, Integer> translator = new EventTranslator<Integer, Integer>() {
+			@Override
+			public void translate(Event<Integer> ev, Integer i) {
+				ev.setData(i);
+				if (i < 0) {
+					throw new IllegalArgumentException("Negative");
+				}
+			}
+		};
+		try {
+			reactor.notify("task", translator, -1);
+			fail("The translator's exception was swallowed");
+		} catch (IllegalArgumentException expected) {
+		}
+		reactor.notify("task", translator, 1);
+
+		assertTrue("The second task wasn't executed", latch.await(5, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		assertEquals(Arrays.asList(1), received);
+	}
+
+	@Test
+	public void tasksWithTheSameKeyStayInOrderWhenOrderedByKey() throws InterruptedException {
+		RingBufferDispatcher dispatcher = new RingBufferDispatcher("test", THREADS, 512, ProducerType.MULTI, new BlockingWaitStrategy(), true);
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		int keys = 16;
+		final Map<Object, List<Integer>> received = new ConcurrentHashMap<Object, List<Integer>>();
+		final Map<Object, Thread> owners = new ConcurrentHashMap<Object, Thread>();
+		final List<String> violations = new CopyOnWriteArrayList<String>();
+		final CountDownLatch latch = new CountDownLatch(EVENTS);
+		for (int k = 0; k < keys; k++) {
+			final String key = "key" + k;
+			received.put(key, new ArrayList<Integer>());
+			reactor.on($(key), new Consumer<Event<Integer>>() {
+				@Override
+				public void accept(Event<Integer> ev) {
+					// only ever touched by the thread that owns the key
+					received.get(key).add(ev.getData());
+					Thread owner = owners.get(key);
+					if (null == owner) {
+						owners.put(key, Thread.currentThread());
+					} else if (owner != Thread.currentThread()) {
+						// a failed assertion here would be swallowed by the dispatcher
+						violations.add(key + " moved from " + owner.getName() + " to " + Thread.currentThread().getName());
+					}
+					latch.countDown();
+				}
+			});
+		}
+
+		for (int i = 0; i < EVENTS; i++) {
+			reactor.notify("key" + (i % keys), new Event<Integer>(i));
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		assertTrue("Keys were executed by more than one thread: " + violations, violations.isEmpty());
+		for (int k = 0; k < keys; k++) {
+			List<Integer> values = received.get("key" + k);
+			assertEquals(EVENTS / keys, values.size());
+			for (int i = 0; i < values.size(); i++) {
+				assertEquals(Integer.valueOf(k + i * keys), values.get(i));
+			}
+		}
+		assertTrue("Expected keys to be spread over more than one thread", new HashSet<Thread>(owners.values()).size() > 1);
+	}
+
+}
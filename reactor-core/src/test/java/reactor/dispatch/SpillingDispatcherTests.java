@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.dispatch;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static reactor.Fn.$;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.JavaEventSerializer;
+import reactor.fn.dispatch.SpillingDispatcher;
+
+/**
+ * @author Jon Brisbin
+ */
+public class SpillingDispatcherTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void eventsThatDontFitInMemoryAreSpilledAndDrainedInOrder() throws InterruptedException {
+		// small segments, so that they have to be rotated
+		SpillingDispatcher dispatcher = new SpillingDispatcher("test", 16, 8, folder.getRoot(), 1024, new JavaEventSerializer());
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		int events = 1000;
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		final CountDownLatch latch = new CountDownLatch(events);
+		final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+		reactor.on($("audit"), new Consumer<Event<Integer>>() {
+			@Override
+			public void accept(Event<Integer> ev) {
+				started.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				received.add(ev.getData());
+				latch.countDown();
+			}
+		});
+
+		for (int i = 0; i < events; i++) {
+			Event<Integer> ev = new Event<Integer>(i);
+			ev.getHeaders().set("x-seq", String.valueOf(i));
+			reactor.notify("audit", ev);
+			if (i == 0) {
+				// so that the queue is full once the first event is being executed
+				assertTrue(started.await(5, TimeUnit.SECONDS));
+			}
+		}
+
+		assertThat(dispatcher.getSpilledCount(), greaterThan(0L));
+		assertThat(dispatcher.getSpillBacklog(), is(dispatcher.getSpilledCount()));
+		assertThat(dispatcher.getSegments(), greaterThan(1));
+		assertThat(dispatcher.getDiskUsage(), greaterThan(1024L));
+		assertThat(dispatcher.remainingCapacity(), is(0L));
+
+		released.countDown();
+		assertTrue("Not every event was dispatched", latch.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < events; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+		}
+		assertThat(dispatcher.getDrainedCount(), is(dispatcher.getSpilledCount()));
+		assertThat(dispatcher.getSpillBacklog(), is(0L));
+		// the last segment is kept for the next overload
+		assertThat(dispatcher.getSegments(), is(1));
+
+		dispatcher.stop();
+		assertThat(dispatcher.getDiskUsage(), is(0L));
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void headersAndCompletionConsumersSurviveSpilling() throws InterruptedException {
+		SpillingDispatcher dispatcher = new SpillingDispatcher("test", 16, 1, folder.getRoot(), 4096, new JavaEventSerializer());
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final CountDownLatch released = new CountDownLatch(1);
+		final List<String> headers = new CopyOnWriteArrayList<String>();
+		reactor.on($("audit"), new Consumer<Event<String>>() {
+			@Override
+			public void accept(Event<String> ev) {
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				headers.add(ev.getHeaders().get("x-user"));
+			}
+		});
+
+		int events = 10;
+		final CountDownLatch completed = new CountDownLatch(events);
+		Consumer<Event<String>> onComplete = new Consumer<Event<String>>() {
+			@Override
+			public void accept(Event<String> ev) {
+				completed.countDown();
+			}
+		};
+		for (int i = 0; i < events; i++) {
+			Event<String> ev = new Event<String>("login");
+			ev.getHeaders().set("x-user", "user" + i);
+			reactor.notify("audit", ev, onComplete);
+		}
+		assertThat(dispatcher.getSpilledCount(), greaterThan(0L));
+
+		released.countDown();
+		assertTrue("Not every event completed", completed.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < events; i++) {
+			assertEquals("user" + i, headers.get(i));
+		}
+		dispatcher.stop();
+	}
+
+	@Test
+	public void nothingIsSpilledOnceStopped() throws InterruptedException {
+		SpillingDispatcher dispatcher = new SpillingDispatcher("test", 16, 1, folder.getRoot(), 4096, new JavaEventSerializer());
+		Reactor reactor = new Reactor(dispatcher.start());
+		dispatcher.stop();
+
+		for (int i = 0; i < 10; i++) {
+			try {
+				reactor.notify("audit", new Event<Integer>(i));
+				fail("Notified after stop");
+			} catch (RejectedExecutionException expected) {
+			}
+		}
+		assertThat(dispatcher.getSpilledCount(), is(0L));
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+}
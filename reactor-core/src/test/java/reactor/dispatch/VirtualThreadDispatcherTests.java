@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.VirtualThreadDispatcher;
+
+/**
+ * @author Jon Brisbin
+ */
+public class VirtualThreadDispatcherTests {
+
+	@Test
+	public void platformThreadsAreFewerByDefault() {
+		VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher();
+		if (VirtualThreadDispatcher.isVirtual()) {
+			assertEquals(10000, dispatcher.getMaxConcurrency());
+		} else {
+			assertEquals(4 * Runtime.getRuntime().availableProcessors(), dispatcher.getMaxConcurrency());
+		}
+		dispatcher.stop();
+	}
+
+	@Test
+	public void blockedConsumersDontHoldUpOthers() throws InterruptedException {
+		VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher("test", 100, 64, false);
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		int blocked = 50;
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch blocking = new CountDownLatch(blocked);
+		final CountDownLatch done = new CountDownLatch(blocked);
+		reactor.on($("blocking"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				blocking.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		});
+		final CountDownLatch other = new CountDownLatch(1);
+		reactor.on($("other"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				other.countDown();
+			}
+		});
+
+		for (int i = 0; i < blocked; i++) {
+			reactor.notify("blocking", new Event<Void>(null));
+		}
+		assertTrue("Every blocking consumer should be running", blocking.await(5, TimeUnit.SECONDS));
+		reactor.notify("other", new Event<Void>(null));
+
+		assertTrue("Blocked consumers held up another consumer", other.await(5, TimeUnit.SECONDS));
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		dispatcher.destroy();
+	}
+
+	@Test
+	public void concurrencyIsBounded() throws InterruptedException {
+		final int maxConcurrency = 4;
+		VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher("test", maxConcurrency, 64, false);
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		int events = 40;
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(events);
+		reactor.on($("test"), new Consumer<Event<Void>>() {
+			@Override
+			public void accept(Event<Void> ev) {
+				int now = running.incrementAndGet();
+				int max;
+				while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+				}
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				latch.countDown();
+			}
+		});
+
+		for (int i = 0; i < events; i++) {
+			reactor.notify("test", new Event<Void>(null));
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		assertTrue("Ran " + maxRunning.get() + " tasks at once", maxRunning.get() <= maxConcurrency);
+		assertTrue("Expected tasks to run concurrently", maxRunning.get() > 1);
+	}
+
+	@Test
+	public void tasksWithTheSameKeyStayInOrderWhenOrderedByKey() throws InterruptedException {
+		VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher("test", 8, 64, true);
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		int keys = 16;
+		int events = 4000;
+		final Map<Object, List<Integer>> received = new ConcurrentHashMap<Object, List<Integer>>();
+		final CountDownLatch latch = new CountDownLatch(events);
+		for (int k = 0; k < keys; k++) {
+			final String key = "key" + k;
+			final List<Integer> values = new ArrayList<Integer>();
+			received.put(key, values);
+			reactor.on($(key), new Consumer<Event<Integer>>() {
+				@Override
+				public void accept(Event<Integer> ev) {
+					// a chain only ever runs one task at a time
+					synchronized (values) {
+						values.add(ev.getData());
+					}
+					latch.countDown();
+				}
+			});
+		}
+
+		for (int i = 0; i < events; i++) {
+			reactor.notify("key" + (i % keys), new Event<Integer>(i));
+		}
+
+		assertTrue("Not every task was executed", latch.await(10, TimeUnit.SECONDS));
+		dispatcher.destroy();
+		for (int k = 0; k < keys; k++) {
+			List<Integer> values = received.get("key" + k);
+			synchronized (values) {
+				assertEquals(events / keys, values.size());
+				for (int i = 0; i < values.size(); i++) {
+					assertEquals(Integer.valueOf(k + i * keys), values.get(i));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Jon Brisbin
+ */
+public class EventHeadersTests {
+
+	@Test
+	public void namesAreCaseInsensitive() {
+		Event.Headers headers = new Event.Headers();
+		headers.set("X-Test", "1");
+
+		assertThat(headers.get("x-test"), is("1"));
+		assertThat(headers.get("X-TEST"), is("1"));
+		assertThat(headers.contains("x-Test"), is(true));
+		assertThat(headers.asMap().keySet().iterator().next(), is("x-test"));
+	}
+
+	@Test
+	public void settingAHeaderAgainReplacesItAndSettingItToNullRemovesIt() {
+		Event.Headers headers = new Event.Headers();
+		for (int i = 0; i < 10; i++) {
+			headers.set("x-" + i, String.valueOf(i));
+		}
+		headers.set("x-3", "three");
+		headers.set("x-5", null);
+
+		assertThat(headers.size(), is(9));
+		assertThat(headers.get("x-3"), is("three"));
+		assertThat(headers.contains("x-5"), is(false));
+		assertThat(headers.get("x-9"), is("9"));
+
+		List<String> names = new ArrayList<String>();
+		for (Map.Entry<String, String> entry : headers) {
+			names.add(entry.getKey());
+		}
+		assertThat(names.size(), is(9));
+		assertThat(names.get(8), is("x-9"));
+	}
+
+	@Test
+	public void copiesAreChangedIndependently() {
+		Event.Headers headers = new Event.Headers(Collections.singletonMap("x-a", "a"));
+		Event.Headers copy = headers.copy();
+
+		copy.set("x-a", "b");
+		copy.set("x-c", "c");
+		headers.set("x-d", "d");
+
+		assertThat(headers.get("x-a"), is("a"));
+		assertThat(headers.get("x-c"), is(nullValue()));
+		assertThat(copy.get("x-a"), is("b"));
+		assertThat(copy.get("x-d"), is(nullValue()));
+	}
+
+	@Test
+	public void headersSurviveJavaSerialization() throws IOException, ClassNotFoundException {
+		Event.Headers headers = new Event.Headers();
+		headers.set("x-a", "a");
+		headers.setOrigin("origin");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(headers);
+		out.close();
+		Event.Headers read = (Event.Headers) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertThat(read.get("x-a"), is("a"));
+		assertThat(read.getOrigin(), is("origin"));
+		read.set("x-b", "b");
+		assertThat(read.size(), is(3));
+		assertThat(headers.get("x-b"), is(nullValue()));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void readOnlyHeadersAreASnapshotThatCantBeChanged() {
+		Event.Headers headers = new Event.Headers();
+		headers.setOrigin("origin");
+		Event.Headers readOnly = headers.readOnly();
+		headers.setOrigin("elsewhere");
+
+		assertThat(readOnly.getOrigin(), is("origin"));
+		readOnly.set("x-a", "a");
+	}
+
+}
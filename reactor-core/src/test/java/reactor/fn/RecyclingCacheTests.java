@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Jon Brisbin
+ */
+public class RecyclingCacheTests {
+
+	@Test
+	public void exhaustedCacheDoesNotBlock() {
+		final AtomicInteger created = new AtomicInteger();
+		RecyclingCache<Object> cache = new RecyclingCache<Object>(
+				new Supplier<Object>() {
+					@Override
+					public Object get() {
+						created.incrementAndGet();
+						return new Object();
+					}
+				},
+				16,
+				4
+		);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 116; i++) {
+			assertThat(cache.allocate(), is(notNullValue()));
+		}
+		long end = System.currentTimeMillis();
+
+		assertThat("Allocation waited for the cache", end - start, is(lessThan(100L)));
+		assertThat(cache.getMisses(), is(100L));
+		assertThat(created.get(), is(116));
+	}
+
+	@Test
+	public void deallocatedObjectsAreReused() {
+		RecyclingCache<Object> cache = new RecyclingCache<Object>(
+				new Supplier<Object>() {
+					@Override
+					public Object get() {
+						return new Object();
+					}
+				},
+				16,
+				4
+		);
+
+		Object obj = cache.allocate();
+		cache.deallocate(obj);
+		assertThat(cache.allocate(), is(sameInstance(obj)));
+		assertThat(cache.getMisses(), is(0L));
+	}
+
+	@Test
+	public void objectsBeyondCapacityOverflow() {
+		RecyclingCache<Object> cache = new RecyclingCache<Object>(
+				new Supplier<Object>() {
+					@Override
+					public Object get() {
+						return new Object();
+					}
+				},
+				16,
+				4
+		);
+
+		List<Object> objs = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++) {
+			objs.add(cache.allocate());
+		}
+		for (Object obj : objs) {
+			cache.deallocate(obj);
+		}
+
+		// whatever didn't fit in the depot or this thread's magazine was let go
+		assertThat(cache.getOverflows(), is(100L - 16 - 4));
+	}
+
+	@Test
+	public void objectsAreNeverHandedOutTwice() throws InterruptedException {
+		final RecyclingCache<AtomicBoolean> cache = new RecyclingCache<AtomicBoolean>(
+				new Supplier<AtomicBoolean>() {
+					@Override
+					public AtomicBoolean get() {
+						return new AtomicBoolean();
+					}
+				},
+				64,
+				8
+		);
+		final int count = 200000;
+		final BlockingQueue<AtomicBoolean> handoff = new ArrayBlockingQueue<AtomicBoolean>(256);
+		final AtomicInteger duplicates = new AtomicInteger();
+
+		// objects are allocated by some threads and released by others, as dispatchers do with their tasks
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 2; i++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < count; j++) {
+						AtomicBoolean leased = cache.allocate();
+						if (!leased.compareAndSet(false, true)) {
+							duplicates.incrementAndGet();
+						}
+						try {
+							handoff.put(leased);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+			});
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < count; j++) {
+						try {
+							AtomicBoolean leased = handoff.poll(5, TimeUnit.SECONDS);
+							leased.set(false);
+							cache.deallocate(leased);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+			});
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join(30000);
+		}
+
+		assertThat(duplicates.get(), is(0));
+		assertThat(cache.getHits(), is(greaterThan(0L)));
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.fn.support;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static reactor.Fn.$;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import reactor.convert.Converter;
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.Registration;
+import reactor.fn.dispatch.SynchronousDispatcher;
+
+/**
+ * @author Jon Brisbin
+ */
+public class ArgumentAdapterTests {
+
+	@Test
+	public void eventConsumersArePassedTheEvent() {
+		Event<String> ev = new Event<String>("hello");
+		ArgumentAdapter adapter = ArgumentAdapter.forConsumer(new Consumer<Event<String>>() {
+			@Override
+			public void accept(Event<String> ev) {
+			}
+		});
+
+		assertThat(adapter.isPassThrough(), is(true));
+		assertThat(adapter.adapt(ev, null), sameInstance((Object) ev));
+	}
+
+	@Test
+	public void dataConsumersArePassedTheData() {
+		ArgumentAdapter adapter = ArgumentAdapter.forConsumer(new Consumer<String>() {
+			@Override
+			public void accept(String s) {
+			}
+		});
+
+		assertThat(adapter.isPassThrough(), is(false));
+		assertThat(adapter.adapt(new Event<String>("hello"), null), is((Object) "hello"));
+		assertThat(adapter.adapt(new Event<String>(null), null), is((Object) null));
+	}
+
+	@Test
+	public void dataIsConvertedWhenItIsntOfTheRightType() {
+		ArgumentAdapter adapter = ArgumentAdapter.forConsumer(new Consumer<String>() {
+			@Override
+			public void accept(String s) {
+			}
+		});
+
+		assertThat(adapter.adapt(new Event<Integer>(42), new ToStringConverter()), is((Object) "42"));
+		assertThat(adapter.adapt(new Event<Integer>(42), null), is((Object) 42));
+	}
+
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void registrationsCarryTheAdapterOfTheirConsumer() {
+		Reactor reactor = new Reactor(new SynchronousDispatcher(), null, null, new ToStringConverter());
+		final List<String> received = new CopyOnWriteArrayList<String>();
+		Registration<Consumer<Event<String>>> reg = reactor.on($("test"), (Consumer) new Consumer<String>() {
+			@Override
+			public void accept(String s) {
+				received.add(s);
+			}
+		});
+		assertThat(reg.getArgumentAdapter().isPassThrough(), is(false));
+
+		reactor.notify("test", new Event<String>("hello"));
+		reactor.notify("test", new Event<Integer>(42));
+
+		assertThat(received, contains("hello", "42"));
+	}
+
+	private static class ToStringConverter implements Converter {
+		@Override
+		public boolean canConvert(Class<?> sourceType, Class<?> targetType) {
+			return targetType == String.class;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T convert(Object source, Class<T> targetType) {
+			return (T) String.valueOf(source);
+		}
+	}
+
+}
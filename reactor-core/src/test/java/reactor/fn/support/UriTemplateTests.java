@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.fn.support;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jon Brisbin
+ */
+public class UriTemplateTests {
+
+	private static final String[] TEMPLATES = {
+			"/orders/{id}",
+			"/orders/{id}/items/{item}",
+			"/static/**",
+			"/files/{path}**",
+			"/a/**/b",
+			"**",
+			"orders",
+			""
+	};
+
+	private static final String[] PATHS = {
+			"/orders/1",
+			"/orders/",
+			"/orders/1.json",
+			"/orders/1/items/2",
+			"/orders/1/items",
+			"/static",
+			"/static/",
+			"/static/css/site.css",
+			"/files/a/b/c",
+			"/a//b",
+			"/a/x/y/b",
+			"/a/b",
+			"orders",
+			""
+	};
+
+	@Test
+	public void segmentMatchingAgreesWithThePattern() {
+		for (String tmpl : TEMPLATES) {
+			UriTemplate template = new UriTemplate(tmpl);
+			assertNotNull(tmpl + " should be matched by segment", template.getSegments());
+			for (String path : PATHS) {
+				boolean expected = template.getUriPattern().matcher(path).matches();
+				assertEquals(tmpl + " against " + path, expected, template.matches(path));
+			}
+		}
+	}
+
+	@Test
+	public void pathVariablesAreResolved() {
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put("id", "1");
+		expected.put("item", "2");
+		assertEquals(expected, new UriTemplate("/orders/{id}/items/{item}").match("/orders/1/items/2"));
+
+		expected.clear();
+		expected.put("path", "a/b/c");
+		assertEquals(expected, new UriTemplate("/files/{path}**").match("/files/a/b/c"));
+
+		assertTrue(new UriTemplate("/orders/{id}").match("/customers/1").isEmpty());
+	}
+
+	@Test
+	public void templatesUsingRegexSyntaxFallBackToThePattern() {
+		UriTemplate template = new UriTemplate("/orders/v{version}/[0-9]+");
+		assertNull(template.getSegments());
+		assertTrue(template.matches("/orders/v2/42"));
+		assertFalse(template.matches("/orders/v2/abc"));
+		assertEquals("2", template.match("/orders/v2/42").get("version"));
+	}
+
+	@Test
+	public void matchingIsThreadSafe() throws InterruptedException, ExecutionException {
+		final UriTemplate regex = new UriTemplate("/orders/v{version}/[0-9]+");
+		final UriTemplate segments = new UriTemplate("/orders/{id}/items/{item}");
+		final int threads = 8;
+		final int uris = 2000;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int offset = t;
+			results.add(pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					for (int i = 0; i < uris; i++) {
+						// each thread walks the same uris from a different starting point so they overlap in the caches
+						int n = (i + offset * 97) % uris;
+						assertTrue(regex.matches("/orders/v" + n + "/" + (n * 7)));
+						assertFalse(regex.matches("/orders/v" + n + "/x" + n));
+						assertEquals(String.valueOf(n), regex.match("/orders/v" + n + "/" + (n * 7)).get("version"));
+						assertTrue(regex.match("/orders/v" + n + "/x" + n).isEmpty());
+
+						Map<String, String> vars = segments.match("/orders/" + n + "/items/" + (n + 1));
+						assertEquals(String.valueOf(n), vars.get("id"));
+						assertEquals(String.valueOf(n + 1), vars.get("item"));
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+
+		try {
+			for (Future<Void> f : results) {
+				f.get(30, TimeUnit.SECONDS);
+			}
+		} catch (TimeoutException e) {
+			fail("Matching didn't finish in time");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void matchedVariablesAreReadOnly() {
+		new UriTemplate("/orders/{id}").match("/orders/1").put("id", "2");
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2011-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package reactor.timer;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static reactor.Fn.$;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import reactor.core.Reactor;
+import reactor.fn.Consumer;
+import reactor.fn.Event;
+import reactor.fn.dispatch.BlockingQueueDispatcher;
+import reactor.fn.timer.HashedWheelTimer;
+import reactor.fn.timer.Timeout;
+
+/**
+ * @author Jon Brisbin
+ */
+public class HashedWheelTimerTests {
+
+	private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 5, TimeUnit.MILLISECONDS, 64);
+
+	@After
+	public void cleanup() {
+		timer.stop();
+	}
+
+	@Test
+	public void timeoutsFireNoSoonerThanTheirDelay() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<Long> firedAt = new AtomicReference<Long>();
+		long start = System.currentTimeMillis();
+		// longer than a turn of the wheel
+		Timeout t = timer.schedule(new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				firedAt.set(now);
+				latch.countDown();
+			}
+		}, 400, TimeUnit.MILLISECONDS);
+
+		assertTrue("Timeout didn't fire", latch.await(5, TimeUnit.SECONDS));
+		assertThat(firedAt.get() - start, greaterThanOrEqualTo(400L));
+		assertTrue(t.isExpired());
+		assertFalse(t.cancel());
+		assertThat(timer.getPendingTimeouts(), is(0L));
+	}
+
+	@Test
+	public void timeoutsScheduledWhileTheTimerStartsFireOnTime() throws InterruptedException {
+		int threads = 8;
+		final CountDownLatch go = new CountDownLatch(1);
+		final CountDownLatch fired = new CountDownLatch(threads);
+		final Consumer<Long> consumer = new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				fired.countDown();
+			}
+		};
+		for (int i = 0; i < threads; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						go.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					// every one of them races to start the timer
+					timer.schedule(consumer, 10, TimeUnit.MILLISECONDS);
+				}
+			}).start();
+		}
+		go.countDown();
+
+		assertTrue("A timeout was scheduled against a start time that wasn't set yet", fired.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancelledTimeoutsDontFire() throws InterruptedException {
+		final AtomicInteger fired = new AtomicInteger();
+		Consumer<Long> consumer = new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				fired.incrementAndGet();
+			}
+		};
+		Timeout cancelled = timer.schedule(consumer, 50, TimeUnit.MILLISECONDS);
+		final CountDownLatch latch = new CountDownLatch(1);
+		timer.schedule(new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				latch.countDown();
+			}
+		}, 100, TimeUnit.MILLISECONDS);
+
+		assertTrue(cancelled.cancel());
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertThat(fired.get(), is(0));
+		assertTrue(cancelled.isCancelled());
+	}
+
+	@Test
+	public void manyTimeoutsAreServedByOneThread() throws InterruptedException {
+		int timeouts = 100000;
+		final CountDownLatch latch = new CountDownLatch(timeouts);
+		Consumer<Long> consumer = new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				latch.countDown();
+			}
+		};
+		for (int i = 0; i < timeouts; i++) {
+			timer.schedule(consumer, i % 500, TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue("Not every timeout fired", latch.await(10, TimeUnit.SECONDS));
+		assertThat(timer.getPendingTimeouts(), is(0L));
+	}
+
+	@Test
+	public void periodicTimeoutsFireUntilCancelled() throws InterruptedException {
+		final AtomicInteger fired = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(5);
+		Timeout t = timer.schedule(new Consumer<Long>() {
+			@Override
+			public void accept(Long now) {
+				fired.incrementAndGet();
+				latch.countDown();
+			}
+		}, 0, 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertFalse(t.isExpired());
+		assertTrue(t.cancel());
+		int firings = fired.get();
+		Thread.sleep(100);
+		assertThat(fired.get(), is(firings));
+	}
+
+	@Test
+	public void reactorPublishesScheduledEventsThroughItsDispatcher() throws InterruptedException {
+		BlockingQueueDispatcher dispatcher = new BlockingQueueDispatcher("test", 64);
+		Reactor reactor = new Reactor(dispatcher.start());
+
+		final CountDownLatch scheduled = new CountDownLatch(1);
+		final AtomicReference<String> thread = new AtomicReference<String>();
+		reactor.on($("scheduled"), new Consumer<Event<String>>() {
+			@Override
+			public void accept(Event<String> ev) {
+				thread.set(Thread.currentThread().getName());
+				scheduled.countDown();
+			}
+		});
+		final CountDownLatch periodic = new CountDownLatch(3);
+		reactor.on($("periodic"), new Consumer<Event<Long>>() {
+			@Override
+			public void accept(Event<Long> ev) {
+				periodic.countDown();
+			}
+		});
+
+		reactor.schedule("scheduled", new Event<String>("hello"), 50, TimeUnit.MILLISECONDS);
+		Timeout t = reactor.notifyEvery("periodic", 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(scheduled.await(5, TimeUnit.SECONDS));
+		assertTrue("Expected the dispatcher's thread", thread.get().startsWith("test-dispatcher"));
+		assertTrue(periodic.await(5, TimeUnit.SECONDS));
+		t.cancel();
+		dispatcher.stop();
+	}
+
+}